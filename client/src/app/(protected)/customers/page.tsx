@@ -274,24 +274,14 @@ function CustomerCard({
         ) / customer.satisfactionLevel.length
       : 0;
 
-  // Calculate total orders and total spent from orders array
-  const totalOrders = customer.orders.length;
-  const totalSpent = customer.orders.reduce(
-    (sum: number, order: any) => sum + order.totalAmount,
-    0
-  );
+  // Totals are kept on the customer by the server
+  const totalOrders = customer.orderCount;
+  const totalSpent = customer.totalOrderValue;
 
   // Get last order date
-  const lastOrder =
-    customer.orders.length > 0
-      ? new Date(
-          Math.max(
-            ...customer.orders.map((order: any) =>
-              new Date(order.orderDate).getTime()
-            )
-          )
-        ).toLocaleDateString()
-      : 'Never';
+  const lastOrder = customer.lastOrderDate
+    ? new Date(customer.lastOrderDate).toLocaleDateString()
+    : 'Never';
 
   return (
     <motion.div
@@ -407,9 +397,9 @@ function CustomerCard({
                 <h4 className='text-sm font-semibold text-foreground mb-3'>
                   Recent Orders
                 </h4>
-                {customer.orders.length > 0 ? (
+                {customer.lastFiveMonthsOrders.length > 0 ? (
                   <div className='space-y-2'>
-                    {customer.orders.slice(0, 3).map((order: any) => (
+                    {customer.lastFiveMonthsOrders.slice(-3).reverse().map((order: any) => (
                       <div
                         key={order.orderId}
                         className='flex justify-between items-center text-xs'
@@ -499,12 +489,7 @@ function CustomerStats({ customers }: { customers: any[] }) {
     active: customers.filter((c) => c.status === 'active').length,
     inactive: customers.filter((c) => c.status === 'inactive').length,
     totalRevenue: customers.reduce(
-      (sum, customer) =>
-        sum +
-        customer.orders.reduce(
-          (orderSum: number, order: any) => orderSum + order.totalAmount,
-          0
-        ),
+      (sum, customer) => sum + customer.totalOrderValue,
       0
     ),
     avgSatisfaction:
@@ -523,7 +508,7 @@ function CustomerStats({ customers }: { customers: any[] }) {
   };
 
   const totalOrders = customers.reduce(
-    (sum, customer) => sum + customer.orders.length,
+    (sum, customer) => sum + customer.orderCount,
     0
   );
   const avgOrderValue = totalOrders > 0 ? stats.totalRevenue / totalOrders : 0;
@@ -276,15 +276,6 @@ const InventoryDashboard = () => {
         threshold: 20,
         lastDateOfUpdate: new Date('2025-09-20'),
         image: '/images/wireless-mouse.png',
-        updateHistory: [
-          {
-            vendorName: 'Electronics Hub',
-            quantityUpdated: 20,
-            cost: 400,
-            updateType: 'REPLENISHMENT',
-            date: new Date('2025-09-19'),
-          },
-        ],
       },
       {
         id: 'item-2',
@@ -295,15 +286,6 @@ const InventoryDashboard = () => {
         threshold: 10,
         lastDateOfUpdate: new Date('2025-09-19'),
         image: '/images/office-chair.png',
-        updateHistory: [
-          {
-            vendorName: 'Office World',
-            quantityUpdated: 10,
-            cost: 1800,
-            updateType: 'REPLENISHMENT',
-            date: new Date('2025-09-18'),
-          },
-        ],
       },
       {
         id: 'item-3',
@@ -314,15 +296,6 @@ const InventoryDashboard = () => {
         threshold: 25,
         lastDateOfUpdate: new Date('2025-09-21'),
         image: '/images/usb-cable.png',
-        updateHistory: [
-          {
-            vendorName: 'Tech Supplies Co',
-            quantityUpdated: 30,
-            cost: 300,
-            updateType: 'REPLENISHMENT',
-            date: new Date('2025-09-20'),
-          },
-        ],
       },
       {
         id: 'item-4',
@@ -333,15 +306,6 @@ const InventoryDashboard = () => {
         threshold: 30,
         lastDateOfUpdate: new Date('2025-09-18'),
         image: '/images/notebook.png',
-        updateHistory: [
-          {
-            vendorName: 'Supply Chain Plus',
-            quantityUpdated: 50,
-            cost: 250,
-            updateType: 'REPLENISHMENT',
-            date: new Date('2025-09-17'),
-          },
-        ],
       },
       {
         id: 'item-5',
@@ -352,15 +316,6 @@ const InventoryDashboard = () => {
         threshold: 15,
         lastDateOfUpdate: new Date('2025-09-17'),
         image: '/images/desk-lamp.png',
-        updateHistory: [
-          {
-            vendorName: 'Office World',
-            quantityUpdated: 15,
-            cost: 450,
-            updateType: 'REPLENISHMENT',
-            date: new Date('2025-09-16'),
-          },
-        ],
       },
       {
         id: 'item-6',
@@ -371,15 +326,6 @@ const InventoryDashboard = () => {
         threshold: 12,
         lastDateOfUpdate: new Date('2025-09-16'),
         image: '/images/keyboard.png',
-        updateHistory: [
-          {
-            vendorName: 'Electronics Hub',
-            quantityUpdated: 12,
-            cost: 540,
-            updateType: 'REPLENISHMENT',
-            date: new Date('2025-09-15'),
-          },
-        ],
       },
     ],
     vendors: [
@@ -633,10 +579,7 @@ const InventoryDashboard = () => {
   };
 
   const totalSpent = (customer: Customer) => {
-    return customer.orders.reduce(
-      (sum: number, order: any) => sum + order.totalAmount,
-      0,
-    );
+    return customer.totalOrderValue;
   };
 
   // Calculate summary stats
@@ -1124,7 +1067,7 @@ const InventoryDashboard = () => {
                             )}
                           </div>
                           <p className='text-xs text-muted-foreground'>
-                            {customer.orders && customer.orders.length} orders
+                            {customer.orderCount} orders
                           </p>
                         </div>
                         <div className='text-right'>
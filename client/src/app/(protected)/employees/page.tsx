@@ -448,13 +448,7 @@ function EmployeeCard({
         (1000 * 3600 * 24 * 365),
     );
 
-  const avgRating =
-    employee.performance?.length > 0
-      ? employee.performance.reduce(
-          (sum, review) => sum + ratingToNumber(review.rating),
-          0,
-        ) / employee.performance.length
-      : 0;
+  const avgRating = employee.reviewSummary?.averageRating ?? 0;
 
   return (
     <Card
@@ -675,16 +669,10 @@ function EmployeeStats({ employees }: { employees: Employee[] }) {
         : 0,
     avgPerformance:
       employees.length > 0
-        ? employees.reduce((sum, emp) => {
-            const empAvg =
-              emp.performance?.length > 0
-                ? emp.performance.reduce(
-                    (s, r) => s + ratingToNumber(r.rating),
-                    0,
-                  ) / emp.performance.length
-                : 0;
-            return sum + empAvg;
-          }, 0) / employees.length
+        ? employees.reduce(
+            (sum, emp) => sum + (emp.reviewSummary?.averageRating ?? 0),
+            0,
+          ) / employees.length
         : 0,
   };
 
@@ -990,13 +978,14 @@ function ViewEmployeeDetailsModal({
         (1000 * 3600 * 24 * 365),
     );
 
-  const avgRating =
-    employee.performance?.length > 0
-      ? employee.performance.reduce(
-          (sum, review) => sum + ratingToNumber(review.rating),
-          0,
-        ) / employee.performance.length
-      : 0;
+  const avgRating = employee.reviewSummary?.averageRating ?? 0;
+
+  // The list only carries the summary, the reviews are loaded when the details are opened
+  const { reviewsReceived, getReviewsReceived } = usePerformanceReviewStore();
+
+  useEffect(() => {
+    getReviewsReceived(employee.employeeId);
+  }, [employee.employeeId, getReviewsReceived]);
 
   useEffect(() => {
     const handlePress = (event: KeyboardEvent) => {
@@ -1197,13 +1186,13 @@ function ViewEmployeeDetailsModal({
         </div>
 
         {/* Performance Reviews */}
-        {employee.performance && employee.performance.length > 0 && (
+        {reviewsReceived.length > 0 && (
           <div className='bg-background/30 rounded-lg p-6'>
             <h4 className='text-sm font-semibold text-foreground mb-4'>
               Performance History
             </h4>
             <div className='space-y-3 max-h-60 overflow-y-auto'>
-              {employee.performance.map((review, idx) => (
+              {reviewsReceived.map((review, idx) => (
                 <div
                   key={idx}
                   className='bg-background/50 rounded-lg p-4 border border-border'
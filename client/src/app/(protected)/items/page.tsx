@@ -6,7 +6,7 @@ import { useState, useEffect } from 'react';
 import { motion, AnimatePresence } from 'framer-motion';
 import { Navbar } from '@/components/navbar';
 import useAuthStore from '@/store/useAuthStore';
-import useItemStore, { Item, UpdateHistory } from '@/store/useItemStore';
+import useItemStore, { Item, StockMovement } from '@/store/useItemStore';
 import { useRouter } from 'next/navigation';
 import { Loader, Trash2, Eye } from 'lucide-react';
 import useVendorStore, { Vendor } from '@/store/useVendorStore';
@@ -378,20 +378,16 @@ function ItemCard({
         ? 'low-stock'
         : 'in-stock';
 
-  // Calculate total cost from update history with proper null checks
-  const totalCost = (item?.updateHistory || []).reduce(
-    (sum: number, update: any) =>
-      sum + (update?.quantityUpdated || 0) * (update?.cost || 0),
-    0,
+  // Only the first page of history is loaded, and only once the card is expanded
+  const { history, loading: historyLoading } = useItemHistory(
+    item?.id,
+    isSelected,
   );
 
-  // Calculate last replenishment with proper null checks
-  const lastReplenishment = (item?.updateHistory || [])
-    .filter((update: any) => update?.updateType === 'REPLENISHMENT')
-    .sort(
-      (a: any, b: any) =>
-        new Date(b?.date || 0).getTime() - new Date(a?.date || 0).getTime(),
-    )[0];
+  // History comes newest first
+  const lastReplenishment = history.find(
+    (update) => update?.updateType === 'REPLENISHMENT',
+  );
 
   return (
     <motion.div
@@ -501,22 +497,6 @@ function ItemCard({
           </div>
         </div>
 
-        {/* Summary Stats */}
-        <div className='grid grid-cols-2 gap-4 mb-4 text-xs'>
-          <div>
-            <span className='text-muted-foreground'>Total Updates: </span>
-            <span className='text-foreground font-medium'>
-              {(item?.updateHistory || []).length}
-            </span>
-          </div>
-          <div>
-            <span className='text-muted-foreground'>Total Value: </span>
-            <span className='text-foreground font-medium'>
-              ₹{totalCost.toFixed(2)}
-            </span>
-          </div>
-        </div>
-
         {/* Expanded Content */}
         <AnimatePresence>
           {isSelected && (
@@ -530,18 +510,17 @@ function ItemCard({
                 <h4 className='text-sm font-semibold text-foreground mb-3'>
                   Recent Updates
                 </h4>
-                {(item?.updateHistory || []).length > 0 ? (
+                {historyLoading && history.length === 0 ? (
+                  <div className='flex justify-center mb-4'>
+                    <Loader className='animate-spin h-4 w-4 text-primary' />
+                  </div>
+                ) : history.length > 0 ? (
                   <div className='space-y-2 mb-4'>
-                    {(item?.updateHistory || [])
-                      .sort(
-                        (a: any, b: any) =>
-                          new Date(b?.date || 0).getTime() -
-                          new Date(a?.date || 0).getTime(),
-                      )
+                    {history
                       .slice(0, 3)
-                      .map((update: any, idx: number) => (
+                      .map((update: StockMovement, idx: number) => (
                         <div
-                          key={idx}
+                          key={update?.id || idx}
                           className='flex justify-between items-center text-xs bg-background/50 rounded p-2'
                         >
                           <div>
@@ -644,6 +623,45 @@ function ItemCard({
   );
 }
 
+// Pages through GET /items/{id}/history, newest first. Nothing is fetched until enabled.
+function useItemHistory(id: string | undefined, enabled: boolean) {
+  const { fetchItemHistory } = useItemStore();
+  const [history, setHistory] = useState<StockMovement[]>([]);
+  const [page, setPage] = useState(0);
+  const [hasMore, setHasMore] = useState(false);
+  const [loading, setLoading] = useState(false);
+
+  useEffect(() => {
+    if (!id || !enabled) return;
+    let cancelled = false;
+    setLoading(true);
+    fetchItemHistory(id, 0).then((result) => {
+      if (cancelled) return;
+      setHistory(result.history || []);
+      setPage(0);
+      setHasMore(result.success && !result.last);
+      setLoading(false);
+    });
+    return () => {
+      cancelled = true;
+    };
+  }, [id, enabled, fetchItemHistory]);
+
+  const loadMore = async () => {
+    if (!id || loading) return;
+    setLoading(true);
+    const result = await fetchItemHistory(id, page + 1);
+    if (result.success) {
+      setHistory((current) => [...current, ...(result.history || [])]);
+      setPage(page + 1);
+      setHasMore(!result.last);
+    }
+    setLoading(false);
+  };
+
+  return { history, loading, hasMore, loadMore };
+}
+
 function StockStatusBadge({ status }: { status: string }) {
   const colorClass =
     stockStatusColors[status as keyof typeof stockStatusColors] || 'muted';
@@ -676,14 +694,6 @@ function InventoryStats({ items }: { items: any[] }) {
         (item?.quantity || 0) > 0,
     ).length,
     outOfStock: items.filter((item) => (item?.quantity || 0) === 0).length,
-    totalValue: items.reduce((sum, item) => {
-      const itemValue = (item?.updateHistory || []).reduce(
-        (histSum: number, update: any) =>
-          histSum + (update?.quantityUpdated || 0) * (update?.cost || 0),
-        0,
-      );
-      return sum + itemValue;
-    }, 0),
     totalQuantity: items.reduce((sum, item) => sum + (item?.quantity || 0), 0),
     avgThreshold:
       items.length > 0
@@ -712,8 +722,8 @@ function InventoryStats({ items }: { items: any[] }) {
           color='destructive'
         />
         <StatCard
-          label='Total Value'
-          value={`₹${(stats.totalValue / 1000).toFixed(1)}K`}
+          label='Avg Threshold'
+          value={stats.avgThreshold.toFixed(1)}
           color='primary'
         />
         <StatCard
@@ -802,12 +812,6 @@ function DeleteConfirmationModal({
                 <span>Current Stock:</span>
                 <span className='font-medium'>{item?.quantity || 0}</span>
               </div>
-              <div className='flex justify-between'>
-                <span>Total Updates:</span>
-                <span className='font-medium'>
-                  {(item?.updateHistory || []).length}
-                </span>
-              </div>
             </div>
           </div>
 
@@ -860,18 +864,28 @@ function ViewDetailsModal({
         ? 'low-stock'
         : 'in-stock';
 
-  const totalCost = (item?.updateHistory || []).reduce(
-    (sum: number, update: any) =>
+  const {
+    history,
+    loading: historyLoading,
+    hasMore,
+    loadMore,
+  } = useItemHistory(item?.id, true);
+
+  // Totals over the pages loaded so far, marked with a + while older ones remain
+  const more = hasMore ? '+' : '';
+
+  const totalCost = history.reduce(
+    (sum: number, update) =>
       sum + (update?.quantityUpdated || 0) * (update?.cost || 0),
     0,
   );
 
-  const totalReplenishments = (item?.updateHistory || []).filter(
-    (update: any) => update?.updateType === 'REPLENISHMENT',
+  const totalReplenishments = history.filter(
+    (update) => update?.updateType === 'REPLENISHMENT',
   ).length;
 
-  const totalOrders = (item?.updateHistory || []).filter(
-    (update: any) => update?.updateType === 'ORDER',
+  const totalOrders = history.filter(
+    (update) => update?.updateType === 'ORDER',
   ).length;
 
   useEffect(() => {
@@ -962,12 +976,14 @@ function ViewDetailsModal({
               <div className='bg-background/50 rounded-lg p-4 text-center'>
                 <div className='text-2xl font-bold text-primary mb-1'>
                   ₹{totalCost.toFixed(0)}
+                  {more}
                 </div>
                 <div className='text-xs text-muted-foreground'>Total Value</div>
               </div>
               <div className='bg-background/50 rounded-lg p-4 text-center'>
                 <div className='text-2xl font-bold text-secondary mb-1'>
-                  {(item?.updateHistory || []).length}
+                  {history.length}
+                  {more}
                 </div>
                 <div className='text-xs text-muted-foreground'>
                   Total Updates
@@ -976,6 +992,7 @@ function ViewDetailsModal({
               <div className='bg-background/50 rounded-lg p-4 text-center'>
                 <div className='text-2xl font-bold text-green-500 mb-1'>
                   {totalReplenishments}
+                  {more}
                 </div>
                 <div className='text-xs text-muted-foreground'>
                   Replenishments
@@ -984,6 +1001,7 @@ function ViewDetailsModal({
               <div className='bg-background/50 rounded-lg p-4 text-center'>
                 <div className='text-2xl font-bold text-blue-500 mb-1'>
                   {totalOrders}
+                  {more}
                 </div>
                 <div className='text-xs text-muted-foreground'>Orders Out</div>
               </div>
@@ -1021,79 +1039,87 @@ function ViewDetailsModal({
             Complete Update History
           </h3>
 
-          {(item?.updateHistory || []).length > 0 ? (
+          {historyLoading && history.length === 0 ? (
+            <div className='flex justify-center py-8'>
+              <Loader className='animate-spin h-8 w-8 text-primary' />
+            </div>
+          ) : history.length > 0 ? (
             <div className='space-y-3 max-h-96 overflow-y-auto'>
-              {(item?.updateHistory || [])
-                .sort(
-                  (a: any, b: any) =>
-                    new Date(b?.date || 0).getTime() -
-                    new Date(a?.date || 0).getTime(),
-                )
-                .map((update: UpdateHistory, idx: number) => (
-                  <motion.div
-                    key={idx}
-                    className='flex justify-between items-center p-4 bg-card/50 rounded-lg border border-border hover:border-primary/30 transition-all duration-300'
-                    initial={{ opacity: 0, x: -20 }}
-                    animate={{ opacity: 1, x: 0 }}
-                    transition={{ delay: idx * 0.05 }}
-                  >
-                    <div className='flex items-center gap-4'>
-                      <div
-                        className={`w-3 h-3 rounded-full ${
-                          update?.updateType === 'REPLENISHMENT'
-                            ? 'bg-green-500'
-                            : 'bg-blue-500'
-                        }`}
-                      />
-                      <div>
-                        <div className='flex items-center gap-2 mb-1'>
-                          <span className='font-medium text-foreground'>
-                            {update?.updateType === 'REPLENISHMENT' ? (
-                              <>
-                                {update?.vendorId || 'N/A'}:{' '}
-                                {update?.vendorName || 'Unknown'}
-                              </>
-                            ) : (
-                              <>
-                                {update?.orderId || 'N/A'} -{' '}
-                                {update?.orderName || 'Unknown'}
-                              </>
-                            )}
-                          </span>
-                          <span
-                            className={`px-2 py-1 rounded-full text-xs font-medium ${
-                              update?.updateType === 'REPLENISHMENT'
-                                ? 'bg-green-500/20 text-green-500'
-                                : 'bg-blue-500/20 text-blue-500'
-                            }`}
-                          >
-                            {update?.updateType || 'UNKNOWN'}
-                          </span>
-                        </div>
-                        <div className='text-sm text-muted-foreground'>
-                          {update?.date
-                            ? new Date(update.date).toLocaleString()
-                            : 'No date'}
-                        </div>
-                      </div>
-                    </div>
-                    <div className='text-right'>
-                      <div className='font-bold text-foreground'>
-                        {update?.updateType === 'REPLENISHMENT' ? '+' : '-'}
-                        {update?.quantityUpdated || 0}
+              {history.map((update: StockMovement, idx: number) => (
+                <motion.div
+                  key={update?.id || idx}
+                  className='flex justify-between items-center p-4 bg-card/50 rounded-lg border border-border hover:border-primary/30 transition-all duration-300'
+                  initial={{ opacity: 0, x: -20 }}
+                  animate={{ opacity: 1, x: 0 }}
+                  transition={{ delay: idx * 0.05 }}
+                >
+                  <div className='flex items-center gap-4'>
+                    <div
+                      className={`w-3 h-3 rounded-full ${
+                        update?.updateType === 'REPLENISHMENT'
+                          ? 'bg-green-500'
+                          : 'bg-blue-500'
+                      }`}
+                    />
+                    <div>
+                      <div className='flex items-center gap-2 mb-1'>
+                        <span className='font-medium text-foreground'>
+                          {update?.updateType === 'REPLENISHMENT' ? (
+                            <>
+                              {update?.vendorId || 'N/A'}:{' '}
+                              {update?.vendorName || 'Unknown'}
+                            </>
+                          ) : (
+                            <>
+                              {update?.orderId || 'N/A'} -{' '}
+                              {update?.orderName || 'Unknown'}
+                            </>
+                          )}
+                        </span>
+                        <span
+                          className={`px-2 py-1 rounded-full text-xs font-medium ${
+                            update?.updateType === 'REPLENISHMENT'
+                              ? 'bg-green-500/20 text-green-500'
+                              : 'bg-blue-500/20 text-blue-500'
+                          }`}
+                        >
+                          {update?.updateType || 'UNKNOWN'}
+                        </span>
                       </div>
                       <div className='text-sm text-muted-foreground'>
-                        ₹{(update?.cost || 0).toFixed(2)}/unit
-                      </div>
-                      <div className='text-sm font-medium text-primary'>
-                        Total: ₹
-                        {(
-                          (update?.quantityUpdated || 0) * (update?.cost || 0)
-                        ).toFixed(2)}
+                        {update?.date
+                          ? new Date(update.date).toLocaleString()
+                          : 'No date'}
                       </div>
                     </div>
-                  </motion.div>
-                ))}
+                  </div>
+                  <div className='text-right'>
+                    <div className='font-bold text-foreground'>
+                      {update?.updateType === 'REPLENISHMENT' ? '+' : '-'}
+                      {update?.quantityUpdated || 0}
+                    </div>
+                    <div className='text-sm text-muted-foreground'>
+                      ₹{(update?.cost || 0).toFixed(2)}/unit
+                    </div>
+                    <div className='text-sm font-medium text-primary'>
+                      Total: ₹
+                      {(
+                        (update?.quantityUpdated || 0) * (update?.cost || 0)
+                      ).toFixed(2)}
+                    </div>
+                  </div>
+                </motion.div>
+              ))}
+              {hasMore && (
+                <button
+                  type='button'
+                  onClick={loadMore}
+                  disabled={historyLoading}
+                  className='w-full py-2 text-sm text-primary hover:underline disabled:opacity-50'
+                >
+                  {historyLoading ? 'Loading...' : 'Load older updates'}
+                </button>
+              )}
             </div>
           ) : (
             <div className='text-center py-8'>
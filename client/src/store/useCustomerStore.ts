@@ -22,7 +22,12 @@ export interface Customer {
   status: 'active' | 'inactive';
   gstNo: string;
   dateOfJoining: Date;
-  orders: CustomerOrder[];
+  // Only on a single customer, lists carry the totals and the recent orders
+  orders?: CustomerOrder[];
+  orderCount: number;
+  totalOrderValue: number;
+  lastOrderDate?: Date;
+  lastFiveMonthsOrders: CustomerOrder[];
   satisfactionLevel: number[];
   preferredCategories: string[];
 }
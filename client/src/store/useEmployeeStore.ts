@@ -3,7 +3,6 @@ import { axiosInstance } from '@/lib/axios';
 import { AxiosError } from 'axios';
 import { create } from 'zustand';
 import { persist } from 'zustand/middleware';
-import { PerformanceReview } from './usePerformanceReviewStore';
 
 export interface Message {
   id: string;
@@ -15,6 +14,13 @@ export interface Message {
   updatedAt: string;
 }
 
+export interface ReviewSummary {
+  count: number;
+  ratingTotal: number;
+  averageRating: number;
+  lastReviewDate?: string;
+}
+
 export interface Employee {
   id: string;
   orgId: string;
@@ -28,7 +34,7 @@ export interface Employee {
   department: string;
   phone: string;
   location: string;
-  performance: PerformanceReview[];
+  reviewSummary?: ReviewSummary;
   experience: number;
   salary: number;
   status: 'ACTIVE' | 'INACTIVE' | 'SUSPENDED';
@@ -38,7 +44,6 @@ export interface Employee {
   manager?: string;
   managerId?: string;
   skills: string[];
-  messages: Message[];
 }
 
 export interface EmployeeCreateData {
@@ -16,6 +16,12 @@ export interface UpdateHistory {
   date?: Date;
 }
 
+// One entry of an item's stock history, served page by page from /items/{id}/history
+export interface StockMovement extends UpdateHistory {
+  id: string;
+  itemId: string;
+}
+
 export interface Item {
   id: string;
   orgId: string;
@@ -25,7 +31,6 @@ export interface Item {
   threshold: number;
   lastDateOfUpdate: Date;
   image: string;
-  updateHistory: UpdateHistory[];
 }
 
 interface ItemState {
@@ -58,6 +63,16 @@ interface ItemState {
     error?: string;
   }>;
   deleteItem: (id: string) => Promise<{ success: boolean; error?: string }>;
+  fetchItemHistory: (
+    id: string,
+    page?: number,
+    size?: number
+  ) => Promise<{
+    success: boolean;
+    history?: StockMovement[];
+    last?: boolean;
+    error?: string;
+  }>;
   updateItemQuantity: (
     id: string,
     updateQuantityData: UpdateHistory
@@ -79,7 +94,6 @@ interface ItemUpdateData {
   quantity: number;
   threshold: number;
   image?: string;
-  updateHistory: UpdateHistory[];
 }
 
 const useItemStore = create<ItemState>()(
@@ -229,6 +243,29 @@ const useItemStore = create<ItemState>()(
         }
       },
 
+      // Newest first. Kept out of the store, each view holds the pages it has loaded itself.
+      fetchItemHistory: async (id: string, page = 0, size = 20) => {
+        try {
+          const response = await axiosInstance.get(`/items/${id}/history`, {
+            params: { page, size },
+          });
+          return {
+            success: true,
+            history: response.data.content,
+            last: response.data.last,
+          };
+        } catch (error) {
+          const err = error as AxiosError<{ message: string }>;
+          const msg =
+            err.response?.data.message || 'Failed to fetch item history!';
+          showErrorToast({
+            message: 'Error while fetching item history!',
+            description: msg,
+          });
+          return { success: false, error: msg };
+        }
+      },
+
       updateItemQuantity: async (
         id: string,
         updateQuantityData: UpdateHistory
@@ -0,0 +1,67 @@
+package com.anujsamdariya07.nightshiftInventory.benchmarks;
+
+import com.anujsamdariya07.nightshiftInventory.controllers.CookieUtil;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseCookie;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// The session cookie lookup SessionTokenFilter runs on every request. Browsers send the site's
+// other cookies along, so the session cookie is placed last among them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CookieBenchmark {
+    @Param({"1", "20"})
+    private int cookies;
+
+    private String token;
+    private MockHttpServletRequest request;
+    private MockHttpServletRequest anonymous;
+
+    @Setup
+    public void setUp() {
+        Cookie[] jar = new Cookie[cookies];
+        for (int i = 0; i < cookies - 1; i++) {
+            jar[i] = new Cookie("pref_" + i, "value-" + i);
+        }
+        // About the length of a signed session token
+        token = "x".repeat(180);
+        jar[cookies - 1] = new Cookie(CookieUtil.SESSION_COOKIE, token);
+
+        request = new MockHttpServletRequest();
+        request.setCookies(jar);
+        anonymous = new MockHttpServletRequest();
+    }
+
+    @Benchmark
+    public String getCookieValue() {
+        return CookieUtil.getCookieValue(request, CookieUtil.SESSION_COOKIE);
+    }
+
+    @Benchmark
+    public String getCookieValueWithoutCookies() {
+        return CookieUtil.getCookieValue(anonymous, CookieUtil.SESSION_COOKIE);
+    }
+
+    @Benchmark
+    public ResponseCookie sessionCookie() {
+        return CookieUtil.sessionCookie(token, Duration.ofHours(12));
+    }
+}
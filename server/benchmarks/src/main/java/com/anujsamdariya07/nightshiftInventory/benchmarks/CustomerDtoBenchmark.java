@@ -0,0 +1,97 @@
+package com.anujsamdariya07.nightshiftInventory.benchmarks;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Customer;
+import com.anujsamdariya07.nightshiftInventory.entity.CustomerDTO;
+import com.anujsamdariya07.nightshiftInventory.entity.CustomerOrder;
+import com.anujsamdariya07.nightshiftInventory.services.CustomerService;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Building the customer list entries: deriving the recent orders and order frequency of each
+// customer, as the list endpoint and the sync do. The list endpoint has Mongo cut the embedded orders
+// down to the recent ones, which needs a database, so this measures the worst case: every customer
+// arrives with a year of order history, of which roughly the last five months counts as recent.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerDtoBenchmark {
+    @Param({"200"})
+    private int customers;
+
+    @Param({"10", "1000"})
+    private int ordersPerCustomer;
+
+    private CustomerService customerService;
+    private List<Customer> loaded;
+
+    @Setup
+    public void setUp() {
+        loaded = customers(new ObjectId(), customers, ordersPerCustomer);
+        customerService = new CustomerService();
+    }
+
+    @Benchmark
+    public List<CustomerDTO> toDTOs() {
+        return customerService.toDTOs(loaded);
+    }
+
+    private static List<Customer> customers(ObjectId orgId, int count, int ordersPerCustomer) {
+        LocalDate today = LocalDate.now();
+        long spanDays = 365;
+        List<Customer> customers = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            ArrayList<CustomerOrder> orders = new ArrayList<>(ordersPerCustomer);
+            double total = 0;
+            for (int o = 0; o < ordersPerCustomer; o++) {
+                // Oldest first, the order the service keeps them in
+                long daysAgo = spanDays - (spanDays * o / ordersPerCustomer);
+                double amount = 50 + (o % 17) * 12.5;
+                orders.add(CustomerOrder.builder()
+                        .orderId("ORD-" + (c * ordersPerCustomer + o))
+                        .orderDate(date(today.minusDays(daysAgo)))
+                        .totalAmount(amount)
+                        .build());
+                total += amount;
+            }
+            customers.add(Customer.builder()
+                    .id(new ObjectId())
+                    .orgId(orgId)
+                    .customerId(String.format("CUST-%03d", c + 1))
+                    .name("Customer " + c)
+                    .phone("98765" + String.format("%05d", c))
+                    .email("customer" + c + "@example.com")
+                    .address(c + " Market Road")
+                    .orders(orders)
+                    .orderCount(orders.size())
+                    .totalOrderValue(total)
+                    .lastOrderDate(orders.isEmpty() ? null : orders.get(orders.size() - 1).getOrderDate())
+                    .dateOfJoining(date(today.minusDays(spanDays + c % 90)))
+                    .build());
+        }
+        return customers;
+    }
+
+    private static Date date(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
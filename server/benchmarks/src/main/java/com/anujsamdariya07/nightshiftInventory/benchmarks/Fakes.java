@@ -0,0 +1,98 @@
+package com.anujsamdariya07.nightshiftInventory.benchmarks;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Sequence;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// In-memory stand-ins for the Mongo side of the services, so the benchmarks measure the server's own
+// code and run without a database.
+final class Fakes {
+    private Fakes() {
+    }
+
+    // A repository whose methods are answered by the given functions, keyed by method name. Anything
+    // else throws, so a benchmark that starts touching another query fails instead of measuring null.
+    @SuppressWarnings("unchecked")
+    static <R> R repository(Class<R> type, Map<String, Function<Object[], Object>> methods) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> "Fake" + type.getSimpleName();
+                };
+            }
+            Function<Object[], Object> answer = methods.get(method.getName());
+            if (answer == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not faked");
+            }
+            return answer.apply(args);
+        });
+    }
+
+    // Sets an @Autowired or @Value field the way Spring would.
+    static void inject(Object target, String fieldName, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), fieldName);
+        if (field == null) {
+            throw new IllegalArgumentException(target.getClass().getSimpleName() + " has no field " + fieldName);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    // Keeps the sequences collection in a map. Only the calls SequenceService makes are supported;
+    // the org is reported as already seeded so allocation is a single findAndModify, as it is in
+    // steady state.
+    static class SequenceTemplate extends MongoTemplate {
+        private final Map<String, AtomicLong> values = new ConcurrentHashMap<>();
+
+        SequenceTemplate() {
+            super(databaseFactory());
+        }
+
+        @Override
+        public boolean exists(Query query, Class<?> entityClass) {
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T findAndModify(Query query, UpdateDefinition update, FindAndModifyOptions options, Class<T> entityClass) {
+            String key = (String) query.getQueryObject().get("_id");
+            Number count = (Number) ((Document) update.getUpdateObject().get("$inc")).get("value");
+            long value = values.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(count.longValue());
+            return (T) Sequence.builder().id(key).value(value).build();
+        }
+
+        @Override
+        public UpdateResult upsert(Query query, UpdateDefinition update, Class<?> entityClass) {
+            throw new UnsupportedOperationException("SequenceTemplate never seeds");
+        }
+    }
+
+    private static MongoDatabaseFactory databaseFactory() {
+        MongoExceptionTranslator translator = new MongoExceptionTranslator();
+        return (MongoDatabaseFactory) Proxy.newProxyInstance(
+                MongoDatabaseFactory.class.getClassLoader(),
+                new Class<?>[]{MongoDatabaseFactory.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getExceptionTranslator")) return translator;
+                    if (method.getName().equals("isTransactionActive")) return false;
+                    throw new UnsupportedOperationException("No database behind the benchmark fakes");
+                });
+    }
+}
@@ -0,0 +1,66 @@
+package com.anujsamdariya07.nightshiftInventory.benchmarks;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Sequence;
+import com.anujsamdariya07.nightshiftInventory.services.SequenceService;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Id generation on the create paths. The sequences collection is the in-memory fake, so this is the
+// service's own overhead: key building, the hi/lo block and formatting.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequenceBenchmark {
+    @Param({"1", "100"})
+    private int blockSize;
+
+    private SequenceService sequenceService;
+    private ObjectId orgId;
+
+    @Setup
+    public void setUp() {
+        sequenceService = new SequenceService();
+        Fakes.inject(sequenceService, "mongoTemplate", new Fakes.SequenceTemplate());
+        Fakes.inject(sequenceService, "blockSize", blockSize);
+        orgId = new ObjectId();
+    }
+
+    @Benchmark
+    public String nextId() {
+        return sequenceService.nextId(orgId, Sequence.Type.ORDER);
+    }
+
+    // Orders from several request threads for the same org share one block
+    @Benchmark
+    @Threads(4)
+    public String nextIdContended() {
+        return sequenceService.nextId(orgId, Sequence.Type.ORDER);
+    }
+
+    @Benchmark
+    public List<String> nextIds() {
+        return sequenceService.nextIds(orgId, Sequence.Type.ITEM, 50);
+    }
+
+    @Benchmark
+    public String format() {
+        return Sequence.Type.CUSTOMER.format(12345);
+    }
+}
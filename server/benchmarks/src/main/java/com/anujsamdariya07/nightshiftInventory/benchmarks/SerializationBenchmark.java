@@ -0,0 +1,144 @@
+package com.anujsamdariya07.nightshiftInventory.benchmarks;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.Organization;
+import com.anujsamdariya07.nightshiftInventory.entity.StockMovement;
+import com.anujsamdariya07.nightshiftInventory.entity.UpdateHistory;
+import com.anujsamdariya07.nightshiftInventory.repository.StockMovementRepository;
+import com.anujsamdariya07.nightshiftInventory.services.StockLedgerService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Response bodies of the busiest reads, written with a mapper configured the way Spring Boot
+// configures the one behind the controllers. An item's update history no longer lives on the item,
+// so the large-history case is the paged stock ledger read that replaced it; likewise the
+// organization now carries counters instead of DBRef lists.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"100", "5000"})
+    private int items;
+
+    // Entries the fake ledger holds for the item, a page never returns more than 100 of them
+    @Param({"10000"})
+    private int historyEntries;
+
+    private ObjectMapper objectMapper;
+    private List<Item> itemList;
+    private Organization organization;
+    private StockLedgerService stockLedgerService;
+    private ObjectId orgId;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        orgId = new ObjectId();
+        itemList = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            itemList.add(Item.builder()
+                    .id(new ObjectId())
+                    .orgId(orgId)
+                    .itemId(String.format("ITEM-%03d", i + 1))
+                    .name("Item " + i)
+                    .quantity(i % 250)
+                    .threshold(10)
+                    .lowStock(i % 250 <= 10)
+                    .changeVersion(i)
+                    .build());
+        }
+
+        organization = Organization.builder()
+                .id(orgId)
+                .name("Nightshift Traders")
+                .mobileNo("9876543210")
+                .email("admin@nightshift.example")
+                .gstNo("22AAAAA0000A1Z5")
+                .address("1 Warehouse Lane")
+                .employeeCount(40)
+                .orderCount(250_000)
+                .customerCount(3_000)
+                .itemCount(items)
+                .vendorCount(60)
+                .changeVersion(1_000_000)
+                .build();
+
+        List<StockMovement> ledger = ledger(orgId, "ITEM-001", historyEntries);
+        StockMovementRepository repository = Fakes.repository(StockMovementRepository.class, Map.of(
+                "findByOrgIdAndItemIdOrderByDateDesc", args -> page(ledger, (Pageable) args[2])
+        ));
+        stockLedgerService = new StockLedgerService();
+        Fakes.inject(stockLedgerService, "stockMovementRepository", repository);
+    }
+
+    @Benchmark
+    public byte[] itemList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(itemList);
+    }
+
+    @Benchmark
+    public byte[] itemHistoryPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(stockLedgerService.getHistory(orgId, "ITEM-001", 0, 100));
+    }
+
+    @Benchmark
+    public byte[] organization() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(organization);
+    }
+
+    private static List<StockMovement> ledger(ObjectId orgId, String itemId, int count) {
+        long now = System.currentTimeMillis();
+        List<StockMovement> ledger = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            boolean restock = i % 5 == 0;
+            ledger.add(StockMovement.builder()
+                    .id(new ObjectId())
+                    .orgId(orgId)
+                    .itemId(itemId)
+                    .vendorName(restock ? "Vendor " + (i % 7) : "")
+                    .vendorId(restock ? "VEND-00" + (i % 7) : null)
+                    .orderName(restock ? null : "Order")
+                    .orderId(restock ? null : "ORD-" + i)
+                    .quantityUpdated(restock ? 50 : 1 + i % 4)
+                    .cost(12.5 + i % 10)
+                    .updateType(restock ? UpdateHistory.UpdateTypes.REPLENISHMENT : UpdateHistory.UpdateTypes.ORDER)
+                    .date(new Date(now - i * 60_000L))
+                    .build());
+        }
+        return ledger;
+    }
+
+    private static SliceImpl<StockMovement> page(List<StockMovement> ledger, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), ledger.size());
+        int to = Math.min(from + pageable.getPageSize(), ledger.size());
+        return new SliceImpl<>(new ArrayList<>(ledger.subList(from, to)), pageable, to < ledger.size());
+    }
+}
@@ -0,0 +1,255 @@
+package com.anujsamdariya07.nightshiftInventory.loadtest;
+
+import com.anujsamdariya07.nightshiftInventory.config.CorrelationIdFilter;
+import com.anujsamdariya07.nightshiftInventory.controllers.CookieUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Talks to the server over HTTP the way the client app does: JSON bodies, the session cookie, and
+// If-None-Match on the item list. Every request carries an X-Request-Id naming its scenario.
+class Driver {
+    static final String MEASURED_PREFIX = "m.";
+    private static final String WARMUP_PREFIX = "w.";
+    private static final String SEED_PREFIX = "s.";
+    private static final String PASSWORD = "load-test-password";
+    private static final int SEED_ORDERS = 20;
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper json = new ObjectMapper();
+    private final String baseUrl;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger reportedErrors = new AtomicInteger();
+    // Keeps emails, phone numbers and GST numbers unique across runs against the same database
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final long runNumber = System.currentTimeMillis() / 1000 % 10_000;
+    private final int linesPerOrder;
+
+    Driver(int port, int linesPerOrder) {
+        this.baseUrl = "http://localhost:" + port;
+        this.linesPerOrder = linesPerOrder;
+    }
+
+    // An edit needs an order that isn't being edited already, when there is none an order is created
+    Scenario resolve(Scenario scenario, Tenant tenant) {
+        return scenario == Scenario.ORDER_EDIT && tenant.orders.isEmpty() ? Scenario.ORDER_CREATE : scenario;
+    }
+
+    // True when the server gave the response the scenario expects
+    boolean run(Scenario scenario, Tenant tenant, boolean measured) throws IOException, InterruptedException {
+        String requestId = (measured ? MEASURED_PREFIX : WARMUP_PREFIX) + scenario.getName() + "-" + sequence.incrementAndGet();
+        return switch (scenario) {
+            case LOGIN -> login(tenant, requestId);
+            case ITEM_LIST -> itemList(tenant, requestId);
+            case ORDER_CREATE -> createOrder(tenant, requestId);
+            case ORDER_EDIT -> editOrder(tenant, requestId);
+            case RESTOCK -> restock(tenant, requestId);
+        };
+    }
+
+    private boolean login(Tenant tenant, String requestId) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/api/auth/login", Map.of("email", tenant.email, "password", tenant.password), null, requestId, null);
+        return expect(response, 200, requestId);
+    }
+
+    private boolean itemList(Tenant tenant, String requestId) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", "/api/items", null, tenant, requestId, tenant.itemListEtag);
+        if (response.statusCode() == 304) return true;
+        response.headers().firstValue("ETag").ifPresent(etag -> tenant.itemListEtag = etag);
+        return expect(response, 200, requestId);
+    }
+
+    private boolean createOrder(Tenant tenant, String requestId) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String customerId = tenant.customerIds.get(random.nextInt(tenant.customerIds.size()));
+
+        List<Tenant.Line> lines = new ArrayList<>();
+        List<Tenant.ItemRef> pool = new ArrayList<>(tenant.items);
+        int lineCount = Math.min(linesPerOrder, pool.size());
+        for (int i = 0; i < lineCount; i++) {
+            Tenant.ItemRef item = pool.remove(random.nextInt(pool.size()));
+            lines.add(new Tenant.Line(item, 1 + random.nextInt(3)));
+        }
+
+        HttpResponse<String> response = send("POST", "/api/orders", orderBody(customerId, lines), tenant, requestId, null);
+        if (!expect(response, 201, requestId)) return false;
+        tenant.remember(new Tenant.OrderRef(json.readTree(response.body()).path("id").asText(), customerId, lines));
+        return true;
+    }
+
+    private boolean editOrder(Tenant tenant, String requestId) throws IOException, InterruptedException {
+        Tenant.OrderRef order = tenant.borrow();
+        if (order == null) return createOrder(tenant, requestId);
+
+        // Moves one line up or down by one, the common edit in practice
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Tenant.Line> lines = new ArrayList<>(order.lines());
+        int changed = random.nextInt(lines.size());
+        Tenant.Line line = lines.get(changed);
+        int quantity = line.quantity() > 1 && random.nextBoolean() ? line.quantity() - 1 : line.quantity() + 1;
+        lines.set(changed, new Tenant.Line(line.item(), quantity));
+
+        HttpResponse<String> response = send("PUT", "/api/orders/" + order.id(), orderBody(order.customerId(), lines), tenant, requestId, null);
+        boolean ok = expect(response, 200, requestId);
+        tenant.remember(ok ? new Tenant.OrderRef(order.id(), order.customerId(), lines) : order);
+        return ok;
+    }
+
+    private boolean restock(Tenant tenant, String requestId) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Tenant.ItemRef item = tenant.items.get(random.nextInt(tenant.items.size()));
+        Tenant.VendorRef vendor = tenant.vendors.get(random.nextInt(tenant.vendors.size()));
+        int quantity = 50 + random.nextInt(200);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("vendorId", vendor.vendorId());
+        body.put("vendorName", vendor.name());
+        body.put("quantityUpdated", quantity);
+        body.put("cost", Math.round(quantity * item.price() * 60) / 100.0);
+        HttpResponse<String> response = send("PATCH", "/api/items/" + item.id() + "/quantity", body, tenant, requestId, null);
+        return expect(response, 200, requestId);
+    }
+
+    private Map<String, Object> orderBody(String customerId, List<Tenant.Line> lines) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        double total = 0;
+        for (Tenant.Line line : lines) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("itemId", line.item().itemId());
+            item.put("itemName", line.item().name());
+            item.put("quantity", line.quantity());
+            item.put("priceAtOrder", line.item().price());
+            items.add(item);
+            total += line.quantity() * line.item().price();
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("customerId", customerId);
+        body.put("items", items);
+        body.put("totalAmount", Math.round(total * 100) / 100.0);
+        return body;
+    }
+
+    // Signs up an organization and fills it through the API, then places a few orders so there is
+    // something to edit from the first request on
+    Tenant seed(int index, LoadTestOptions options) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String suffix = runId + "-" + index;
+        String email = "admin-" + suffix + "@loadtest.local";
+
+        Map<String, Object> signUp = new LinkedHashMap<>();
+        signUp.put("orgName", "Load Test " + suffix);
+        signUp.put("orgMobileNo", phone(index, 0));
+        signUp.put("orgEmail", email);
+        signUp.put("orgGstNo", "LT" + suffix.toUpperCase());
+        signUp.put("orgAddress", index + " Test Street");
+        signUp.put("adminPassword", PASSWORD);
+        HttpResponse<String> response = send("POST", "/api/auth/sign-up", signUp, null, seedId(), null);
+        require(response, 200);
+        String cookie = response.headers().allValues("Set-Cookie").stream()
+                .filter(header -> header.startsWith(CookieUtil.SESSION_COOKIE + "="))
+                .map(header -> header.substring(0, header.contains(";") ? header.indexOf(';') : header.length()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Sign-up didn't set a session cookie"));
+        Tenant seeding = new Tenant(email, PASSWORD, cookie, List.of(), List.of(), List.of());
+
+        List<Tenant.VendorRef> vendors = new ArrayList<>();
+        for (int i = 0; i < options.vendors; i++) {
+            String name = "Vendor " + i;
+            JsonNode vendor = create("/api/vendors", Map.of("name", name, "email", "vendor-" + i + "-" + suffix + "@loadtest.local", "phone", phone(index, 10_000 + i)), seeding);
+            vendors.add(new Tenant.VendorRef(vendor.path("vendorId").asText(), name));
+        }
+
+        List<String> customerIds = new ArrayList<>();
+        for (int i = 0; i < options.customers; i++) {
+            JsonNode customer = create("/api/customers", Map.of("name", "Customer " + i, "email", "customer-" + i + "-" + suffix + "@loadtest.local", "phone", phone(index, 20_000 + i)), seeding);
+            customerIds.add(customer.path("customerId").asText());
+        }
+
+        List<Tenant.ItemRef> items = new ArrayList<>();
+        for (int i = 0; i < options.items; i++) {
+            Tenant.VendorRef vendor = vendors.get(i % vendors.size());
+            double price = 10 + random.nextInt(4900) / 10.0;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", "Item " + i);
+            item.put("quantity", 500 + random.nextInt(1500));
+            item.put("threshold", 20);
+            item.put("cost", price);
+            item.put("vendorId", vendor.vendorId());
+            item.put("vendorName", vendor.name());
+            JsonNode created = create("/api/items", item, seeding);
+            items.add(new Tenant.ItemRef(created.path("id").asText(), created.path("itemId").asText(), "Item " + i, price));
+        }
+
+        Tenant tenant = new Tenant(email, PASSWORD, cookie, List.copyOf(items), List.copyOf(customerIds), List.copyOf(vendors));
+        for (int i = 0; i < SEED_ORDERS; i++) {
+            if (!createOrder(tenant, seedId())) throw new IllegalStateException("Could not place the seed orders");
+        }
+        return tenant;
+    }
+
+    private JsonNode create(String path, Map<String, Object> body, Tenant tenant) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", path, body, tenant, seedId(), null);
+        require(response, 201);
+        return json.readTree(response.body());
+    }
+
+    private HttpResponse<String> send(String method, String path, Object body, Tenant tenant, String requestId, String ifNoneMatch)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header(CorrelationIdFilter.HEADER, requestId)
+                .header("Accept-Encoding", "identity");
+        if (tenant != null) request.header("Cookie", tenant.cookie);
+        if (ifNoneMatch != null) request.header("If-None-Match", ifNoneMatch);
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(body)));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private boolean expect(HttpResponse<String> response, int status, String requestId) {
+        if (response.statusCode() == status) return true;
+        if (reportedErrors.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+            String body = response.body() == null ? "" : response.body();
+            System.err.printf("%s: expected %d, got %d %s%n", requestId, status, response.statusCode(),
+                    body.length() > 200 ? body.substring(0, 200) + "..." : body);
+        }
+        return false;
+    }
+
+    private void require(HttpResponse<String> response, int status) {
+        if (response.statusCode() != status) {
+            throw new IllegalStateException("Seeding failed: " + response.request().method() + " " + response.request().uri()
+                    + " returned " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    private String seedId() {
+        return SEED_PREFIX + "seed-" + sequence.incrementAndGet();
+    }
+
+    // Unique per org and entity within a run, and from one run to the next
+    private String phone(int org, int entity) {
+        return String.format("%04d%03d%05d", runNumber, org % 1000, entity);
+    }
+}
@@ -0,0 +1,280 @@
+package com.anujsamdariya07.nightshiftInventory.loadtest;
+
+import com.anujsamdariya07.nightshiftInventory.Application;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Boots the server on a random port against an in-process Mongo stand-in (or --mongo-uri), seeds a
+// few tenants through the API, drives the configured mix of requests at it and prints throughput,
+// latency percentiles and Mongo commands per request for each scenario. Everything runs over
+// loopback, so a plain Linux box with no network can run it.
+//
+// The stand-in keeps everything in memory and has no query planner, so its absolute latencies
+// aren't comparable to a real mongod; the Mongo commands per request are, and so are before/after
+// comparisons of the server's own overhead. Point --mongo-uri at a local mongod for realistic
+// database latencies.
+//
+// Two things the server relies on are checked rather than assumed. The stand-in can't build partial
+// unique indexes, so the startup check for them is turned off (as in ApplicationTests); those
+// indexes are simply missing for the run. And every write takes its change version with an
+// update pipeline ($ifNull, $filter, $concatArrays in a findAndModify); before booting, the same
+// shape is run against the stand-in, and when it isn't supported the run stops and asks for
+// --mongo-uri instead.
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        MongoServer mongoServer = null;
+        String mongoUri = options.mongoUri;
+        if (mongoUri == null) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = mongoServer.bind();
+            mongoUri = "mongodb://" + address.getHostString() + ":" + address.getPort() + "/loadtest";
+            String unsupported = checkPipelineUpdates(mongoUri);
+            if (unsupported != null) {
+                mongoServer.shutdown();
+                throw new IllegalStateException("The in-process Mongo stand-in can't run the change version update ("
+                        + unsupported + "), rerun with --mongo-uri pointing at a mongod");
+            }
+        }
+
+        MongoOps mongoOps = new MongoOps();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory().registerSingleton(
+                        "loadTestMongoOps", (MongoClientSettingsBuilderCustomizer) settings -> settings.addCommandListener(mongoOps)))
+                .run("--spring.data.mongodb.uri=" + mongoUri,
+                        "--server.port=0",
+                        "--nightshift.migrations.enabled=false",
+                        // The stand-in has no partial unique indexes, the check would refuse to start
+                        "--nightshift.indexes.require-unique=false",
+                        // Sessions only have to outlive the run
+                        "--spring.profiles.active=dev",
+                        "--logging.level.com.anujsamdariya07.nightshiftInventory=WARN",
+                        // The stand-in warns about every index type it doesn't implement
+                        "--logging.level.de.bwaldvogel.mongo=ERROR");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            System.out.println("Load test: " + options.describe());
+
+            Driver driver = new Driver(port, options.linesPerOrder);
+            List<Tenant> tenants = seed(driver, options);
+            Map<Scenario, Stats> stats = new EnumMap<>(Scenario.class);
+            for (Scenario scenario : Scenario.values()) stats.put(scenario, new Stats());
+
+            new Run(driver, options, tenants, stats, mongoOps).execute();
+            report(options, stats, mongoOps);
+        } finally {
+            context.close();
+            if (mongoServer != null) mongoServer.shutdown();
+        }
+    }
+
+    // Runs an update of the same shape as ChangeVersionService.take twice on a scratch document and
+    // checks the outcome. Null when it behaves like a mongod, otherwise what went wrong.
+    private static String checkPipelineUpdates(String mongoUri) {
+        try (MongoClient client = MongoClients.create(mongoUri)) {
+            MongoCollection<Document> scratch = client.getDatabase("loadtest").getCollection("pipeline_check");
+            scratch.insertOne(new Document("_id", 1));
+            List<Document> update = List.of(
+                    new Document("$set", new Document("version", new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L)))
+                            .append("pending", new Document("$filter", new Document("input", new Document("$ifNull", List.of("$pending", List.of())))
+                                    .append("cond", new Document("$gt", List.of("$$this.startedAt", 0L)))))),
+                    new Document("$set", new Document("pending", new Document("$concatArrays", List.of("$pending",
+                            List.of(new Document("version", "$version").append("startedAt", 1L)))))));
+            FindOneAndUpdateOptions returnNew = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+            scratch.findOneAndUpdate(new Document("_id", 1), update, returnNew);
+            Document result = scratch.findOneAndUpdate(new Document("_id", 1), update, returnNew);
+            scratch.drop();
+
+            if (result == null) return "no document returned";
+            List<Document> pending = result.getList("pending", Document.class, List.of());
+            if (((Number) result.get("version")).longValue() != 2 || pending.size() != 2
+                    || ((Number) pending.get(1).get("version")).longValue() != 2) {
+                return "unexpected result " + result.toJson();
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static List<Tenant> seed(Driver driver, LoadTestOptions options) throws Exception {
+        long start = System.nanoTime();
+        ExecutorService seeders = Executors.newFixedThreadPool(Math.min(options.orgs, 8));
+        try {
+            List<Future<Tenant>> futures = new ArrayList<>();
+            for (int i = 0; i < options.orgs; i++) {
+                int index = i;
+                futures.add(seeders.submit(() -> driver.seed(index, options)));
+            }
+            List<Tenant> tenants = new ArrayList<>();
+            for (Future<Tenant> future : futures) tenants.add(future.get());
+            System.out.printf("Seeded %d orgs in %.1fs%n", tenants.size(), (System.nanoTime() - start) / 1e9);
+            return tenants;
+        } finally {
+            seeders.shutdownNow();
+        }
+    }
+
+    // Warmup followed by the measured window, in either the open or the closed model
+    private static class Run {
+        private final Driver driver;
+        private final LoadTestOptions options;
+        private final List<Tenant> tenants;
+        private final Map<Scenario, Stats> stats;
+        private final MongoOps mongoOps;
+        private final Scenario[] weighted;
+
+        private long measureFrom;
+        private long measureUntil;
+
+        private Run(Driver driver, LoadTestOptions options, List<Tenant> tenants, Map<Scenario, Stats> stats, MongoOps mongoOps) {
+            this.driver = driver;
+            this.options = options;
+            this.tenants = tenants;
+            this.stats = stats;
+            this.mongoOps = mongoOps;
+
+            List<Scenario> slots = new ArrayList<>();
+            options.mix.forEach((scenario, weight) -> {
+                for (int i = 0; i < weight; i++) slots.add(scenario);
+            });
+            this.weighted = slots.toArray(new Scenario[0]);
+        }
+
+        private void execute() throws InterruptedException {
+            long start = System.nanoTime();
+            measureFrom = start + options.warmup.toNanos();
+            measureUntil = measureFrom + options.duration.toNanos();
+
+            Thread window = new Thread(() -> {
+                sleepUntil(measureFrom);
+                mongoOps.setMeasuring(true);
+                sleepUntil(measureUntil);
+                mongoOps.setMeasuring(false);
+            }, "load-test-window");
+            window.setDaemon(true);
+            window.start();
+
+            ExecutorService workers = Executors.newFixedThreadPool(options.concurrency);
+            if (options.rate > 0) {
+                arrivals(workers);
+            } else {
+                for (int i = 0; i < options.concurrency; i++) {
+                    workers.execute(() -> {
+                        while (System.nanoTime() < measureUntil) request(System.nanoTime());
+                    });
+                }
+            }
+            workers.shutdown();
+            if (!workers.awaitTermination(60, TimeUnit.SECONDS)) {
+                System.err.println("Requests still running 60s after the end of the run, abandoning them");
+                workers.shutdownNow();
+            }
+            window.join();
+        }
+
+        // Poisson arrivals: exponential gaps with the configured mean, scheduled against the clock
+        // rather than against completions, so a slow server builds a backlog instead of slowing the
+        // arrivals down. Latency counts from the scheduled time, queueing included.
+        private void arrivals(ExecutorService workers) {
+            double meanGapNanos = 1e9 / options.rate;
+            long next = System.nanoTime();
+            while (next < measureUntil) {
+                next += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos);
+                sleepUntil(next);
+                long scheduled = next;
+                workers.execute(() -> request(scheduled));
+            }
+        }
+
+        private void request(long scheduled) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Tenant tenant = tenants.get(random.nextInt(tenants.size()));
+            boolean measured = scheduled >= measureFrom && scheduled < measureUntil;
+            Scenario scenario = driver.resolve(weighted[random.nextInt(weighted.length)], tenant);
+
+            boolean ok;
+            try {
+                ok = driver.run(scenario, tenant, measured);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                ok = false;
+            }
+            if (measured) stats.get(scenario).record(System.nanoTime() - scheduled, ok);
+        }
+
+        private static void sleepUntil(long deadline) {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    private static void report(LoadTestOptions options, Map<Scenario, Stats> stats, MongoOps mongoOps) {
+        double seconds = options.duration.toNanos() / 1e9;
+        List<Stats.Summary> summaries = new ArrayList<>();
+
+        System.out.println();
+        System.out.printf("%-13s %9s %7s %9s %9s %9s %9s %9s %10s  %s%n",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "mongo/req", "mongo commands per request");
+        long totalOps = 0;
+        for (Scenario scenario : Scenario.values()) {
+            Stats.Summary summary = stats.get(scenario).summarize();
+            if (summary.count() == 0) continue;
+            summaries.add(summary);
+
+            Map<String, Long> commands = mongoOps.snapshot(scenario.getName());
+            long ops = commands.values().stream().mapToLong(Long::longValue).sum();
+            totalOps += ops;
+            print(scenario.getName(), summary, seconds, ops, commands);
+        }
+        if (summaries.isEmpty()) {
+            System.out.println("No requests were measured");
+            return;
+        }
+        print("all", Stats.Summary.merge(summaries), seconds, totalOps, Map.of());
+
+        Map<String, Long> background = mongoOps.snapshot(MongoOps.BACKGROUND);
+        if (!background.isEmpty()) {
+            System.out.printf("%nMongo commands outside requests during the run: %s%n", background);
+        }
+    }
+
+    private static void print(String name, Stats.Summary summary, double seconds, long ops, Map<String, Long> commands) {
+        StringBuilder breakdown = new StringBuilder();
+        commands.forEach((command, count) -> {
+            if (!breakdown.isEmpty()) breakdown.append(", ");
+            breakdown.append(command).append(' ').append(String.format("%.2f", (double) count / summary.count()));
+        });
+        System.out.printf("%-13s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %10.2f  %s%n",
+                name, summary.count(), summary.errors(), summary.count() / seconds,
+                summary.percentileMillis(50), summary.percentileMillis(90), summary.percentileMillis(99), summary.maxMillis(),
+                (double) ops / summary.count(), breakdown);
+    }
+}
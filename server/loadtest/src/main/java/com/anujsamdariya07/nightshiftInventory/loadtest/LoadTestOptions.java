@@ -0,0 +1,93 @@
+package com.anujsamdariya07.nightshiftInventory.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+// --key=value options of a run. With --rate the run is an open model: requests arrive at that mean
+// rate (Poisson) whether or not earlier ones finished, and --concurrency only caps how many are in
+// flight, so queueing shows up in the latencies. Without --rate, --concurrency users each send
+// their next request as soon as the previous one returns.
+class LoadTestOptions {
+    // Requests per second, 0 for the closed model
+    double rate = 0;
+    int concurrency = 32;
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(60);
+
+    // Seeded tenants, each with its own admin login, items, customers and vendors
+    int orgs = 5;
+    int items = 200;
+    int customers = 50;
+    int vendors = 10;
+    int linesPerOrder = 3;
+
+    // Connection string of a local mongod to run against instead of the in-process stand-in
+    String mongoUri;
+
+    // Relative weights, e.g. --mix=login:1,item-list:50,order-create:20,order-edit:10,restock:15
+    final Map<Scenario, Integer> mix = new EnumMap<>(Scenario.class);
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            }
+            int split = arg.indexOf('=');
+            values.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions();
+        for (Scenario scenario : Scenario.values()) options.mix.put(scenario, scenario.getDefaultWeight());
+
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            switch (entry.getKey()) {
+                case "rate" -> options.rate = Double.parseDouble(value);
+                case "concurrency" -> options.concurrency = Integer.parseInt(value);
+                case "warmup" -> options.warmup = DurationStyle.detectAndParse(value);
+                case "duration" -> options.duration = DurationStyle.detectAndParse(value);
+                case "orgs" -> options.orgs = Integer.parseInt(value);
+                case "items" -> options.items = Integer.parseInt(value);
+                case "customers" -> options.customers = Integer.parseInt(value);
+                case "vendors" -> options.vendors = Integer.parseInt(value);
+                case "lines-per-order" -> options.linesPerOrder = Integer.parseInt(value);
+                case "mongo-uri" -> options.mongoUri = value;
+                case "mix" -> options.parseMix(value);
+                default -> throw new IllegalArgumentException("Unknown option --" + entry.getKey());
+            }
+        }
+
+        if (options.concurrency < 1) throw new IllegalArgumentException("--concurrency must be at least 1");
+        if (options.orgs < 1 || options.items < options.linesPerOrder || options.customers < 1 || options.vendors < 1) {
+            throw new IllegalArgumentException("Every org needs at least one customer and vendor and enough items for an order");
+        }
+        if (options.mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("--mix needs at least one positive weight");
+        }
+        return options;
+    }
+
+    // Scenarios left out of --mix don't run
+    private void parseMix(String value) {
+        mix.replaceAll((scenario, weight) -> 0);
+        for (String part : value.split(",")) {
+            String[] pair = part.split(":");
+            if (pair.length != 2) throw new IllegalArgumentException("Expected scenario:weight in --mix, got " + part);
+            mix.put(Scenario.byName(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+    }
+
+    String describe() {
+        String model = rate > 0
+                ? String.format("open model, %.1f req/s, at most %d in flight", rate, concurrency)
+                : String.format("closed model, %d concurrent users", concurrency);
+        return String.format("%s; %d orgs x (%d items, %d customers, %d vendors); warmup %ss, measured %ss; mix %s; mongo %s",
+                model, orgs, items, customers, vendors, warmup.toSeconds(), duration.toSeconds(), mix,
+                mongoUri != null ? mongoUri : "in-process stand-in");
+    }
+}
@@ -0,0 +1,51 @@
+package com.anujsamdariya07.nightshiftInventory.loadtest;
+
+import com.anujsamdariya07.nightshiftInventory.config.CorrelationIdFilter;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts the Mongo commands the server runs, per scenario and command name. The driver calls the
+// listener on the thread running the command, which for a request is the request thread, so the
+// request id CorrelationIdFilter put in the MDC tells which scenario the command belongs to.
+// Commands run outside a request (coalesced stock writes, the change feed, scheduled jobs) are
+// counted as background while the measurement is on.
+class MongoOps implements CommandListener {
+    static final String BACKGROUND = "background";
+
+    private final Map<String, Map<String, LongAdder>> counts = new ConcurrentHashMap<>();
+    private volatile boolean measuring;
+
+    void setMeasuring(boolean measuring) {
+        this.measuring = measuring;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String source = source(MDC.get(CorrelationIdFilter.MDC_KEY));
+        if (source == null) return;
+        counts.computeIfAbsent(source, s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(event.getCommandName(), c -> new LongAdder())
+                .increment();
+    }
+
+    // Command name to count for a scenario name or BACKGROUND
+    Map<String, Long> snapshot(String source) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.getOrDefault(source, Map.of()).forEach((command, count) -> snapshot.put(command, count.sum()));
+        return snapshot;
+    }
+
+    private String source(String requestId) {
+        if (requestId == null) return measuring ? BACKGROUND : null;
+        // Driver.requestId: "m.<scenario>-<n>" during the measurement, "w.<scenario>-<n>" in warmup
+        if (!requestId.startsWith(Driver.MEASURED_PREFIX)) return null;
+        int end = requestId.lastIndexOf('-');
+        return end > Driver.MEASURED_PREFIX.length() ? requestId.substring(Driver.MEASURED_PREFIX.length(), end) : null;
+    }
+}
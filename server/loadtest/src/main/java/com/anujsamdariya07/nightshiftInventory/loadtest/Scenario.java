@@ -0,0 +1,39 @@
+package com.anujsamdariya07.nightshiftInventory.loadtest;
+
+enum Scenario {
+    LOGIN("login", 2),
+    ITEM_LIST("item-list", 50),
+    ORDER_CREATE("order-create", 20),
+    ORDER_EDIT("order-edit", 10),
+    RESTOCK("restock", 15);
+
+    // Also the prefix of the X-Request-Id of every request the scenario sends, which is how the
+    // Mongo commands a request runs are attributed back to it
+    private final String name;
+    private final int defaultWeight;
+
+    Scenario(String name, int defaultWeight) {
+        this.name = name;
+        this.defaultWeight = defaultWeight;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    static Scenario byName(String name) {
+        for (Scenario scenario : values()) {
+            if (scenario.name.equals(name)) return scenario;
+        }
+        throw new IllegalArgumentException("Unknown scenario " + name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
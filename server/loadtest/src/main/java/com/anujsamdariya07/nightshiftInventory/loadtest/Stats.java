@@ -0,0 +1,52 @@
+package com.anujsamdariya07.nightshiftInventory.loadtest;
+
+import java.util.Arrays;
+
+// Latencies of one scenario's measured requests. Kept raw and sorted at the end, a run of a few
+// minutes is a few hundred thousand longs at most.
+class Stats {
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    synchronized void record(long latencyNanos, boolean ok) {
+        if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+        latencies[count++] = latencyNanos;
+        if (!ok) errors++;
+    }
+
+    synchronized Summary summarize() {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return new Summary(count, errors, sorted);
+    }
+
+    record Summary(int count, long errors, long[] sorted) {
+        double percentileMillis(double percentile) {
+            if (sorted.length == 0) return 0;
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+        }
+
+        double maxMillis() {
+            return sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1_000_000.0;
+        }
+
+        static Summary merge(Iterable<Summary> summaries) {
+            int count = 0;
+            long errors = 0;
+            for (Summary summary : summaries) {
+                count += summary.count;
+                errors += summary.errors;
+            }
+            long[] merged = new long[count];
+            int at = 0;
+            for (Summary summary : summaries) {
+                System.arraycopy(summary.sorted, 0, merged, at, summary.sorted.length);
+                at += summary.sorted.length;
+            }
+            Arrays.sort(merged);
+            return new Summary(count, errors, merged);
+        }
+    }
+}
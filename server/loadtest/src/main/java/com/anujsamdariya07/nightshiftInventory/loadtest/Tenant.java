@@ -0,0 +1,59 @@
+package com.anujsamdariya07.nightshiftInventory.loadtest;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// One seeded organization as the driver sees it: its admin's login and session cookie, and the
+// ids of what it owns so requests can refer to them.
+class Tenant {
+    // Orders kept around for editing, older ones are forgotten
+    static final int RECENT_ORDERS = 200;
+
+    final String email;
+    final String password;
+    volatile String cookie;
+    // ETag of the last item list this tenant's browser got, sent back as If-None-Match
+    volatile String itemListEtag;
+
+    final List<ItemRef> items;
+    final List<String> customerIds;
+    final List<VendorRef> vendors;
+    final ConcurrentLinkedDeque<OrderRef> orders = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger orderCount = new AtomicInteger();
+
+    Tenant(String email, String password, String cookie, List<ItemRef> items, List<String> customerIds, List<VendorRef> vendors) {
+        this.email = email;
+        this.password = password;
+        this.cookie = cookie;
+        this.items = items;
+        this.customerIds = customerIds;
+        this.vendors = vendors;
+    }
+
+    void remember(OrderRef order) {
+        orders.addLast(order);
+        if (orderCount.incrementAndGet() > RECENT_ORDERS && orders.pollFirst() != null) {
+            orderCount.decrementAndGet();
+        }
+    }
+
+    // Takes an order out for editing so two requests never edit the same one at once
+    OrderRef borrow() {
+        OrderRef order = orders.pollFirst();
+        if (order != null) orderCount.decrementAndGet();
+        return order;
+    }
+
+    record ItemRef(String id, String itemId, String name, double price) {
+    }
+
+    record VendorRef(String vendorId, String name) {
+    }
+
+    record OrderRef(String id, String customerId, List<Line> lines) {
+    }
+
+    record Line(ItemRef item, int quantity) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.anujsamdariya07.nightshiftInventory.config;
+
+import com.anujsamdariya07.nightshiftInventory.services.DataGeneratorService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// Runs the synthetic data generator instead of the server and exits, e.g.
+//   java -jar app.jar --spring.profiles.active=generate --nightshift.generator.orgs=2 --nightshift.generator.orders=5000000
+// The nightshift.generator.* options are listed in DataGeneratorService, application-generate.properties
+// switches the web server and the data migrations off for the run.
+@Slf4j
+@Configuration
+@Profile("generate")
+public class DataGeneratorConfig implements CommandLineRunner {
+    @Autowired
+    private DataGeneratorService dataGeneratorService;
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void run(String... args) {
+        int exitCode = 0;
+        try {
+            dataGeneratorService.generate();
+        } catch (RuntimeException e) {
+            log.error("Data generation failed", e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+}
@@ -0,0 +1,39 @@
+package com.anujsamdariya07.nightshiftInventory.config;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+// Most metrics come from the actuator auto-configuration: http.server.requests for every endpoint,
+// mongodb.driver.commands (tagged with collection and command) and mongodb.driver.pool.* from the
+// driver listeners, and the jvm.* / process.* binders. Percentiles and the Prometheus endpoint are set
+// up in application.properties.
+@Configuration
+public class MetricsConfig {
+
+    // Adds the handling controller method to http.server.requests, so latency can be broken down by
+    // controller as well as by URI pattern
+    @Bean
+    public ServerRequestObservationConvention serverRequestObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                return super.getLowCardinalityKeyValues(context).and(controller(context));
+            }
+        };
+    }
+
+    private static KeyValue controller(ServerRequestObservationContext context) {
+        Object handler = context.getCarrier().getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod method) {
+            return KeyValue.of("controller", method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+        }
+        return KeyValue.of("controller", "none");
+    }
+}
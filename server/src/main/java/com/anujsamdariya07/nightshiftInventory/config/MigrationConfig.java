@@ -0,0 +1,73 @@
+package com.anujsamdariya07.nightshiftInventory.config;
+
+import com.anujsamdariya07.nightshiftInventory.services.CustomerService;
+import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
+import com.anujsamdariya07.nightshiftInventory.services.LowStockService;
+import com.anujsamdariya07.nightshiftInventory.services.OrganizationService;
+import com.anujsamdariya07.nightshiftInventory.services.StockLedgerService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
+@Configuration
+public class MigrationConfig {
+    @Autowired
+    private StockLedgerService stockLedgerService;
+    @Autowired
+    private OrganizationService organizationService;
+    @Autowired
+    private CustomerService customerService;
+    @Autowired
+    private LowStockService lowStockService;
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Value("${nightshift.migrations.enabled:true}")
+    private boolean enabled;
+
+    // Data migrations are written to be re-runnable and are a no-op once the data is in shape, so
+    // they simply run in the background on every startup.
+    @EventListener(ApplicationReadyEvent.class)
+    public void runMigrations() {
+        if (!enabled) return;
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                int items = stockLedgerService.migrateEmbeddedHistory();
+                if (items > 0) log.info("Moved the embedded update history of {} items to the stock ledger", items);
+            } catch (RuntimeException e) {
+                log.warn("Stock ledger migration failed", e);
+            }
+            try {
+                int organizations = organizationService.migrateReferenceArrays();
+                if (organizations > 0) log.info("Replaced the reference arrays of {} organizations with counters", organizations);
+            } catch (RuntimeException e) {
+                log.warn("Organization counter migration failed", e);
+            }
+            try {
+                int customers = customerService.migrateOrderMetrics();
+                if (customers > 0) log.info("Filled in the order totals of {} customers", customers);
+            } catch (RuntimeException e) {
+                log.warn("Customer order metrics migration failed", e);
+            }
+            try {
+                int items = lowStockService.migrateLowStockFlags();
+                if (items > 0) log.info("Set the low stock flag of {} items", items);
+            } catch (RuntimeException e) {
+                log.warn("Low stock flag migration failed", e);
+            }
+            try {
+                int employees = employeeService.migrateReviewReferences();
+                if (employees > 0) log.info("Replaced the review and message references of {} employees with review summaries", employees);
+            } catch (RuntimeException e) {
+                log.warn("Employee review summary migration failed", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,199 @@
+package com.anujsamdariya07.nightshiftInventory.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+@Slf4j
+@Configuration
+public class MongoIndexConfig implements SmartInitializingSingleton {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private MongoMappingContext mongoMappingContext;
+
+    // Off only where there is no database at all, such as the context smoke test
+    @Value("${nightshift.indexes.require-unique:true}")
+    private boolean requireUnique;
+
+    // Dropping an index is a schema migration, not something a routine restart should do on its own.
+    // Set for the one deployment that moves to a new unique index, then removed again.
+    @Value("${nightshift.indexes.replace-superseded:false}")
+    private boolean replaceSuperseded;
+
+    // The unique indexes are part of what the writes rely on: a short stock line has to collide with
+    // org_item_id instead of upserting a second item, and duplicate contacts are only caught by theirs.
+    // So they are built before the web server starts taking requests, and startup fails without them.
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!requireUnique) return;
+        List<String> missing = ensure(MongoIndexConfig::isUnique);
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Unique indexes missing, refusing to start: " + missing);
+        }
+        log.info("All unique indexes are in place");
+    }
+
+    // Creates the rest of the declared indexes once the app is up. Runs off the main thread so a slow
+    // build doesn't hold up startup; ensureIndex is a no-op for existing indexes.
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        CompletableFuture.runAsync(this::createIndexes);
+    }
+
+    public void createIndexes() {
+        List<String> missing = ensure(definition -> true);
+        if (!missing.isEmpty()) {
+            log.warn("{} declared indexes are missing, tenant queries on those collections will scan", missing.size());
+        } else {
+            log.info("All declared indexes are in place");
+        }
+    }
+
+    private static boolean isUnique(IndexDefinition definition) {
+        return definition.getIndexOptions().getBoolean("unique", false);
+    }
+
+    // Ensures the declared indexes the filter selects and returns the ones that still aren't there,
+    // as collection.name
+    private List<String> ensure(Predicate<IndexDefinition> filter) {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        List<String> missing = new ArrayList<>();
+        for (MongoPersistentEntity<?> entity : mongoMappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) continue;
+            List<IndexDefinition> declared = new ArrayList<>();
+            resolver.resolveIndexFor(entity.getType()).forEach(definition -> {
+                if (filter.test(definition)) declared.add(definition);
+            });
+            if (declared.isEmpty()) continue;
+            try {
+                IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+                for (IndexDefinition definition : declared) {
+                    try {
+                        indexOps.ensureIndex(definition);
+                    } catch (RuntimeException e) {
+                        if (isUnique(definition) && replace(entity.getCollection(), indexOps, definition)) continue;
+                        // Usually an index created by hand under another name or with other options
+                        log.warn("Could not ensure index {} on {}: {}", definition.getIndexOptions().get("name"), entity.getCollection(), e.getMessage());
+                    }
+                }
+                missing.addAll(verify(entity.getCollection(), declared));
+            } catch (RuntimeException e) {
+                log.warn("Could not ensure indexes for {}: {}", entity.getCollection(), e.getMessage());
+                declared.forEach(definition -> missing.add(entity.getCollection() + "." + definition.getIndexOptions().get("name")));
+            }
+        }
+        return missing;
+    }
+
+    // A unique index can't be built over an older one with the same keys, such as the plain email index
+    // employees had before email_unique. When no documents collide and nightshift.indexes.replace-superseded
+    // is set, the older index is dropped and the declared one built in its place; without it the app
+    // names the indexes in the way and refuses to start. Colliding values are logged either way, they
+    // have to be cleaned up by hand first.
+    private boolean replace(String collection, IndexOperations indexOps, IndexDefinition definition) {
+        Object name = definition.getIndexOptions().get("name");
+        List<String> duplicates = duplicates(collection, definition);
+        if (!duplicates.isEmpty()) {
+            log.error("Index {} on {} can't be built, these values are used more than once: {}", name, collection, duplicates);
+            return false;
+        }
+        List<org.bson.Document> superseded = mongoTemplate.getCollection(collection).listIndexes().into(new ArrayList<>()).stream()
+                .filter(index -> sameKeys(definition.getIndexKeys(), index.get("key", org.bson.Document.class)))
+                .filter(index -> !matches(definition, index))
+                .toList();
+        if (superseded.isEmpty()) return false;
+        if (!replaceSuperseded) {
+            log.error("Index {} on {} is blocked by {}, start once with nightshift.indexes.replace-superseded=true to drop and replace them",
+                    name, collection, superseded.stream().map(index -> index.getString("name")).toList());
+            return false;
+        }
+        try {
+            for (org.bson.Document index : superseded) {
+                log.info("Replacing index {} on {} with {}", index.getString("name"), collection, name);
+                indexOps.dropIndex(index.getString("name"));
+            }
+            indexOps.ensureIndex(definition);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Could not replace index {} on {}: {}", name, collection, e.getMessage());
+            return false;
+        }
+    }
+
+    // Up to ten key values held by more than one document the index covers
+    private List<String> duplicates(String collection, IndexDefinition definition) {
+        org.bson.Document group = new org.bson.Document();
+        for (String key : definition.getIndexKeys().keySet()) group.append(key, "$" + key);
+        List<org.bson.Document> pipeline = new ArrayList<>();
+        Object partialFilter = definition.getIndexOptions().get("partialFilterExpression");
+        if (partialFilter != null) pipeline.add(new org.bson.Document("$match", partialFilter));
+        pipeline.add(new org.bson.Document("$group", new org.bson.Document("_id", group).append("count", new org.bson.Document("$sum", 1))));
+        pipeline.add(new org.bson.Document("$match", new org.bson.Document("count", new org.bson.Document("$gt", 1))));
+        pipeline.add(new org.bson.Document("$limit", 10));
+        List<String> duplicates = new ArrayList<>();
+        for (org.bson.Document duplicate : mongoTemplate.getCollection(collection).aggregate(pipeline).allowDiskUse(true)) {
+            duplicates.add(duplicate.get("_id", org.bson.Document.class).toJson() + " x" + duplicate.get("count"));
+        }
+        return duplicates;
+    }
+
+    // Checks every declared index against what the collection actually has. An index counts as present
+    // when one with the same keys, uniqueness, partial filter and expiry exists, whatever its name.
+    private List<String> verify(String collection, List<IndexDefinition> declared) {
+        List<org.bson.Document> existing = mongoTemplate.getCollection(collection).listIndexes().into(new ArrayList<>());
+        List<String> missing = new ArrayList<>();
+        for (IndexDefinition definition : declared) {
+            if (existing.stream().noneMatch(index -> matches(definition, index))) {
+                log.warn("Index {} {} is missing on {}", definition.getIndexOptions().get("name"), definition.getIndexKeys().toJson(), collection);
+                missing.add(collection + "." + definition.getIndexOptions().get("name"));
+            }
+        }
+        return missing;
+    }
+
+    private boolean matches(IndexDefinition definition, org.bson.Document index) {
+        org.bson.Document options = definition.getIndexOptions();
+        return sameKeys(definition.getIndexKeys(), index.get("key", org.bson.Document.class))
+                && options.getBoolean("unique", false) == index.getBoolean("unique", false)
+                && Objects.equals(options.get("partialFilterExpression"), index.get("partialFilterExpression"))
+                && Objects.equals(seconds(options.get("expireAfterSeconds")), seconds(index.get("expireAfterSeconds")));
+    }
+
+    // Key order matters, but an index made from the shell may carry 1.0 where ours has 1
+    private boolean sameKeys(org.bson.Document declared, org.bson.Document actual) {
+        if (actual == null || !new ArrayList<>(declared.keySet()).equals(new ArrayList<>(actual.keySet()))) return false;
+        for (String key : declared.keySet()) {
+            Object expected = declared.get(key);
+            Object found = actual.get(key);
+            if (expected instanceof Number && found instanceof Number) {
+                if (((Number) expected).intValue() != ((Number) found).intValue()) return false;
+            } else if (!Objects.equals(expected, found)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Long seconds(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+}
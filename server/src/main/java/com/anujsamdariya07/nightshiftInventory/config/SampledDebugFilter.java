@@ -0,0 +1,47 @@
+package com.anujsamdariya07.nightshiftInventory.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caps debug and trace output at maxPerSecond lines per logger, so turning a hot package up to DEBUG
+// in production samples its output instead of flooding the appender. INFO and above always pass.
+// Registered as a turbo filter in logback-spring.xml, which runs it before the event is even built.
+public class SampledDebugFilter extends TurboFilter {
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private int maxPerSecond = 20;
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isDebugEnabled() checks come through with a null format and shouldn't use up the budget
+        if (level == null || format == null || level.isGreaterOrEqual(Level.INFO) || maxPerSecond <= 0) {
+            return FilterReply.NEUTRAL;
+        }
+        // Leave disabled levels to the normal level check. Calling logger.isEnabledFor here would
+        // re-enter this filter.
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) return FilterReply.NEUTRAL;
+
+        Window window = windows.computeIfAbsent(logger.getName(), name -> new Window());
+        return window.tryAcquire(System.currentTimeMillis() / 1000, maxPerSecond) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private static class Window {
+        private final AtomicLong second = new AtomicLong();
+        private final AtomicLong count = new AtomicLong();
+
+        private boolean tryAcquire(long now, int limit) {
+            long current = second.get();
+            if (current != now && second.compareAndSet(current, now)) count.set(0);
+            return count.incrementAndGet() <= limit;
+        }
+    }
+}
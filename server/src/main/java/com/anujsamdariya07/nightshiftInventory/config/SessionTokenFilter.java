@@ -0,0 +1,30 @@
+package com.anujsamdariya07.nightshiftInventory.config;
+
+import com.anujsamdariya07.nightshiftInventory.controllers.CookieUtil;
+import com.anujsamdariya07.nightshiftInventory.services.SessionTokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Verifies the session cookie once per request and leaves the caller on the request for
+// EmployeeService.getCurrentUser, so resolving the tenant never needs a database read.
+@Component
+public class SessionTokenFilter extends OncePerRequestFilter {
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = CookieUtil.getCookieValue(request, CookieUtil.SESSION_COOKIE);
+        sessionTokenService.verify(token)
+                .ifPresent(session -> request.setAttribute(SessionTokenService.REQUEST_ATTRIBUTE, session));
+        filterChain.doFilter(request, response);
+    }
+}
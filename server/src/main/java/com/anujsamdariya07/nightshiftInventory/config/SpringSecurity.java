@@ -1,23 +1,41 @@
 package com.anujsamdariya07.nightshiftInventory.config;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class SpringSecurity {
+    private static final RequestMatcher ACTUATOR = new OrRequestMatcher(
+            new AntPathRequestMatcher("/actuator/health/**"), new AntPathRequestMatcher("/actuator/prometheus"));
 
+    @Autowired
+    private Environment environment;
+
+    // Not needed when the app runs without a web server, as the data generator does
     @Bean
+    @ConditionalOnWebApplication
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/**").permitAll()
+                        // Scraped by the monitoring stack on the management port, which stays off the public
+                        // network. On the public port they need a login like everything else.
+                        .requestMatchers(this::monitoring).permitAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
@@ -30,8 +48,15 @@ public class SpringSecurity {
         return http.build();
     }
 
+    private boolean monitoring(HttpServletRequest request) {
+        // Only set when management.server.port gives the actuator a server of its own
+        Integer managementPort = environment.getProperty("local.management.port", Integer.class);
+        return managementPort != null && request.getLocalPort() == managementPort && ACTUATOR.matches(request);
+    }
+
+    // Hashes and checks go through PasswordHasher, which keeps them off the request threads
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${nightshift.passwords.cost:10}") int cost) {
+        return new BCryptPasswordEncoder(cost);
     }
 }
@@ -4,11 +4,14 @@ import com.anujsamdariya07.nightshiftInventory.dto.*;
 import com.anujsamdariya07.nightshiftInventory.entity.Employee;
 import com.anujsamdariya07.nightshiftInventory.entity.Organization;
 import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
+import com.anujsamdariya07.nightshiftInventory.services.LoginThrottle;
 import com.anujsamdariya07.nightshiftInventory.services.OrganizationService;
+import com.anujsamdariya07.nightshiftInventory.services.SessionTokenService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.bson.types.ObjectId;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
@@ -18,11 +21,14 @@ import org.springframework.web.bind.annotation.*;
 import java.math.BigDecimal;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
+@Slf4j
 @CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
 @RestController
 @RequestMapping("/api/auth")
@@ -32,6 +38,10 @@ public class AuthController {
 
     @Autowired
     private EmployeeService employeeService;
+    @Autowired
+    private SessionTokenService sessionTokenService;
+    @Autowired
+    private LoginThrottle loginThrottle;
 
 //    @GetMapping("/current")
 //    public ResponseEntity<?> getCurrentUser(HttpServletRequest request) {
@@ -43,9 +53,9 @@ public class AuthController {
 
     @GetMapping("/current")
     public ResponseEntity<?> getCurrentUser(HttpServletRequest request) {
-        String userId = CookieUtil.getCookieValue(request, "loggedInUser");
-        if (userId != null) {
-            Employee currentUser = employeeService.getEmployeeById(new ObjectId(userId));
+        Optional<SessionTokenService.Session> session = sessionTokenService.fromRequest(request);
+        if (session.isPresent()) {
+            Employee currentUser = employeeService.getEmployeeById(session.get().employee().getId());
             return ResponseEntity.ok(new GetCurrentUserResponse(currentUser, "User found!"));
         }
         return ResponseEntity.status(HttpStatus.OK).body(new GetCurrentUserResponse(null, "Not logged in"));
@@ -76,40 +86,41 @@ public class AuthController {
                     .build();
             organizationService.saveOrganization(organization);
 
-            Employee admin = employeeService.saveNewAdminEmployee(
-                    Employee.builder()
-                            .orgId(organization.getId())
-                            .employeeId("ADMIN-" + System.currentTimeMillis())
-                            .name(request.getOrgName() + " Admin")
-                            .orgName(request.getOrgName())
-                            .email(request.getOrgEmail())
-                            .password(request.getAdminPassword())
-                            .mustChangePassword(true)
-                            .role(Employee.Role.ADMIN)
-                            .department("Administration")
-                            .phone(request.getOrgMobileNo())
-                            .location(request.getOrgAddress())
-                            .status(Employee.EmployeeStatus.ACTIVE)
-                            .attendance(0)
-                            .hireDate(new Date())
-                            .experience(0)
-                            .salary(new BigDecimal("0.00"))
-                            .skills(new ArrayList<>())
-                            .performance(new ArrayList<>())
-                            .messages(new ArrayList<>())
-                            .build()
-            );
+            Employee admin;
+            try {
+                admin = employeeService.saveNewAdminEmployee(
+                        Employee.builder()
+                                .orgId(organization.getId())
+                                .employeeId("ADMIN-" + System.currentTimeMillis())
+                                .name(request.getOrgName() + " Admin")
+                                .orgName(request.getOrgName())
+                                .email(request.getOrgEmail())
+                                .password(request.getAdminPassword())
+                                .mustChangePassword(true)
+                                .role(Employee.Role.ADMIN)
+                                .department("Administration")
+                                .phone(request.getOrgMobileNo())
+                                .location(request.getOrgAddress())
+                                .status(Employee.EmployeeStatus.ACTIVE)
+                                .attendance(0)
+                                .hireDate(new Date())
+                                .experience(0)
+                                .salary(new BigDecimal("0.00"))
+                                .skills(new ArrayList<>())
+                                .build()
+                );
+            } catch (DuplicateKeyException e) {
+                // The admin signs in with the org's email, and an employee elsewhere already has it
+                organizationService.deleteOrgById(organization.getId());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+            } catch (RejectedExecutionException e) {
+                organizationService.deleteOrgById(organization.getId());
+                return busy(e.getMessage());
+            }
 
-            organization.getEmployeeDetails().add(admin);
-            organizationService.saveOrganization(organization);
+            organization.setEmployeeCount(1);
 
-            ResponseCookie userCookie = ResponseCookie.from("loggedInUser", admin.getId().toHexString())
-                    .httpOnly(true)
-                    .secure(true)
-                    .sameSite("None")
-                    .path("/")
-                    .maxAge(24 * 60 * 60)
-                    .build();
+            ResponseCookie userCookie = CookieUtil.sessionCookie(sessionTokenService.issue(admin), sessionTokenService.getTtl());
 
             response.addHeader(HttpHeaders.SET_COOKIE, userCookie.toString());
 
@@ -124,36 +135,39 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletResponse response, HttpServletRequest request) {
-        System.out.println("Starting login process!");
-        System.out.println("Getting email and password!");
         String email = loginRequest.getEmail();
         String password = loginRequest.getPassword();
 
         if (email == null || password == null) {
-            System.out.println("Either of email or password is null!");
             return new ResponseEntity<>("Email or password not provided!", HttpStatus.NO_CONTENT);
         }
 
-        System.out.println("Calling Service Function!");
-        Optional<Employee> employee = employeeService.loginEmployee(
-                email,
-                password
-        );
+        // Checked before the lookup and the password check, so a throttled attempt costs nothing
+        String address = request.getRemoteAddr();
+        Duration retryAfter = loginThrottle.retryAfter(email, address);
+        if (!retryAfter.isZero()) {
+            log.info("Login for {} from {} throttled", email, address);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfter.toMillis() + 999) / 1000))
+                    .body(new LoginResponse(null, null, "Too many failed logins, please try again later!"));
+        }
+
+        Optional<Employee> employee;
+        try {
+            employee = employeeService.loginEmployee(
+                    email,
+                    password
+            );
+        } catch (RejectedExecutionException e) {
+            return busy(new LoginResponse(null, null, e.getMessage()));
+        }
 
         if (employee.isPresent()) {
-            System.out.println("Employee is present!");
             Employee e = employee.get();
+            loginThrottle.succeeded(email, address);
 
-            System.out.println("Generating response cookie!");
-            ResponseCookie userCookie = ResponseCookie.from("loggedInUser", e.getId().toHexString())
-                    .httpOnly(true)
-                    .secure(true) // true in production with https
-                    .sameSite("None") // VERY IMPORTANT for cross-origin
-                    .path("/")
-                    .maxAge(24 * 60 * 60)
-                    .build();
+            ResponseCookie userCookie = CookieUtil.sessionCookie(sessionTokenService.issue(e), sessionTokenService.getTtl());
 
-            System.out.println("Adding response cookie to header!");
             response.addHeader(HttpHeaders.SET_COOKIE, userCookie.toString());
 
             // Sanitize the response (don't return password)
@@ -170,31 +184,43 @@ public class AuthController {
             LoginResponse loginResponse = new LoginResponse(organization.get(), employee.get(), "Logged in successfully!");
             return ResponseEntity.status(HttpStatus.OK).body(loginResponse);
         } else {
-            System.out.println("User not found!");
+            log.info("Failed login for {}", email);
+            loginThrottle.failed(email, address);
             LoginResponse loginResponse = new LoginResponse(null, null, "Invalid username or password!");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(loginResponse);
         }
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpServletResponse response) {
-        ResponseCookie deleteCookie = ResponseCookie.from("loggedInUser", "")
-                .httpOnly(true)
-                .secure(false)
-                .sameSite("LAX")
-                .path("/")
-                .maxAge(0) // expire immediately
-                .build();
+    public ResponseEntity<?> logout(HttpServletRequest request, HttpServletResponse response) {
+        sessionTokenService.fromRequest(request).ifPresent(sessionTokenService::revokeToken);
+
+        ResponseCookie deleteCookie = CookieUtil.sessionCookie("", Duration.ZERO); // expire immediately
 
         response.addHeader("Set-Cookie", deleteCookie.toString());
         return ResponseEntity.ok(Map.of("message", "Logged out successfully."));
     }
 
     @PostMapping("/change-password")
-    public ResponseEntity<?> changePassword(@RequestBody ChangePasswordRequest changePasswordRequest, HttpServletRequest request) {
-        System.out.println("Inside auth controller, password: " + changePasswordRequest.getPassword());
+    public ResponseEntity<?> changePassword(@RequestBody ChangePasswordRequest changePasswordRequest, HttpServletRequest request, HttpServletResponse response) {
         String decodedPassword = URLDecoder.decode(changePasswordRequest.getPassword(), StandardCharsets.UTF_8);
-        employeeService.changePassword(request, decodedPassword);
+        Employee employee;
+        try {
+            employee = employeeService.changePassword(request, decodedPassword);
+        } catch (RejectedExecutionException e) {
+            return busy(e.getMessage());
+        }
+
+        // Changing the password revokes every earlier session, including this one
+        ResponseCookie userCookie = CookieUtil.sessionCookie(sessionTokenService.issue(employee), sessionTokenService.getTtl());
+        response.addHeader(HttpHeaders.SET_COOKIE, userCookie.toString());
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
+
+    // Password hashing is saturated, the client should retry in a moment
+    static ResponseEntity<?> busy(Object body) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
 }
@@ -0,0 +1,30 @@
+package com.anujsamdariya07.nightshiftInventory.controllers;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Employee;
+import com.anujsamdariya07.nightshiftInventory.services.ChangeFeedService;
+import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeController {
+    @Autowired
+    private ChangeFeedService changeFeedService;
+    @Autowired
+    private EmployeeService employeeService;
+
+    // "change" events for the items, orders and customers of the current org. EventSource sends
+    // Last-Event-ID on reconnect, the lastEventId parameter is for clients opening a fresh stream.
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(HttpServletRequest request,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                    @RequestParam(required = false) String lastEventId) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        return changeFeedService.subscribe(currentUser.getOrgId(), lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    }
+}
@@ -2,8 +2,12 @@ package com.anujsamdariya07.nightshiftInventory.controllers;
 
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseCookie;
+
+import java.time.Duration;
 
 public class CookieUtil {
+    public static final String SESSION_COOKIE = "loggedInUser";
 
     public static String getCookieValue(HttpServletRequest request, String cookieName) {
         if (request.getCookies() == null) return null;
@@ -16,4 +20,14 @@ public class CookieUtil {
 
         return null;
     }
+
+    public static ResponseCookie sessionCookie(String token, Duration maxAge) {
+        return ResponseCookie.from(SESSION_COOKIE, token)
+                .httpOnly(true)
+                .secure(true) // true in production with https
+                .sameSite("None") // VERY IMPORTANT for cross-origin
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+    }
 }
@@ -3,19 +3,19 @@ package com.anujsamdariya07.nightshiftInventory.controllers;
 import com.anujsamdariya07.nightshiftInventory.entity.Customer;
 import com.anujsamdariya07.nightshiftInventory.entity.CustomerDTO;
 import com.anujsamdariya07.nightshiftInventory.entity.Employee;
-import com.anujsamdariya07.nightshiftInventory.entity.Organization;
 import com.anujsamdariya07.nightshiftInventory.services.CustomerService;
 import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
-import com.anujsamdariya07.nightshiftInventory.services.OrganizationService;
+import com.anujsamdariya07.nightshiftInventory.services.ListCacheService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 
 @CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
 @RestController
@@ -27,14 +27,16 @@ public class CustomerController {
     @Autowired
     private EmployeeService employeeService;
     @Autowired
-    private OrganizationService organizationService;
+    private ListCacheService listCacheService;
 
     @GetMapping
     public ResponseEntity<?> getAllCustomersForCurrentOrg(HttpServletRequest request) {
         try {
             Employee currentUser = employeeService.getCurrentUser(request);
             ObjectId orgId = currentUser.getOrgId();
-            return ResponseEntity.ok(customerService.getAllCustomersByOrgId(orgId));
+            // The recent orders and order frequency depend on today's date as well
+            return listCacheService.respond(request, orgId, Customer.class, LocalDate.now().toString(),
+                    () -> customerService.getAllCustomersByOrgId(orgId));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
@@ -60,17 +62,14 @@ public class CustomerController {
             Employee currentUser = employeeService.getCurrentUser(request);
             ObjectId orgId = currentUser.getOrgId();
 
-            System.out.println(currentUser);
-
             customer.setId(null);
             customer.setOrgId(orgId);
 
             Customer savedCustomer = customerService.createCustomer(customer);
-            Optional<Organization> organization = organizationService.findOrgById(orgId);
-            organization.ifPresent(value -> value.getCustomers().add(savedCustomer));
-            organizationService.saveOrganization(organization.get());
             return ResponseEntity.status(HttpStatus.CREATED).body(savedCustomer);
 
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Not logged in or invalid org.");
         }
@@ -86,6 +85,8 @@ public class CustomerController {
 
             Customer updatedCustomer = customerService.updateCustomerForOrg(orgId, new ObjectId(id), customer);
             return ResponseEntity.ok(updatedCustomer);
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
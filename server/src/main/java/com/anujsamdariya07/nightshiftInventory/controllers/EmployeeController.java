@@ -1,17 +1,17 @@
 package com.anujsamdariya07.nightshiftInventory.controllers;
 
 import com.anujsamdariya07.nightshiftInventory.entity.Employee;
-import com.anujsamdariya07.nightshiftInventory.entity.Organization;
 import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
-import com.anujsamdariya07.nightshiftInventory.services.OrganizationService;
+import com.anujsamdariya07.nightshiftInventory.services.ListCacheService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
 @RestController
@@ -20,21 +20,17 @@ public class EmployeeController {
     @Autowired
     private EmployeeService employeeService;
     @Autowired
-    private OrganizationService organizationService;
+    private ListCacheService listCacheService;
 
     @GetMapping
     public ResponseEntity<?> getEmployeesByOrgId(HttpServletRequest request) {
         Employee currentUser = employeeService.getCurrentUser(request);
         ObjectId orgId = currentUser.getOrgId();
-
-        System.out.println("HERE");
-
-        return ResponseEntity.status(HttpStatus.OK).body(employeeService.getEmployeesByOrgId(orgId));
+        return listCacheService.respond(request, orgId, Employee.class, () -> employeeService.getEmployeesByOrgId(orgId));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<?> getEmployeeById(@PathVariable String id) {
-        System.out.println("HERE");
         return ResponseEntity.status(HttpStatus.OK).body(employeeService.getEmployeeById(new ObjectId(id)));
     }
 
@@ -46,21 +42,26 @@ public class EmployeeController {
         employee.setId(null);
         employee.setOrgId(orgId);
         employee.setOrgName(orgName);
-        Employee savedNewEmployee = employeeService.saveNewEmployee(employee);
-        Optional<Organization> organization = organizationService.findOrgById(orgId);
-        Employee finalSavedNewEmployee = savedNewEmployee;
-        organization.ifPresent(value -> value.getEmployeeDetails().add(finalSavedNewEmployee));
-        organizationService.saveOrganization(organization.get());
-        savedNewEmployee.setOrgName(organization.get().getName());
-        savedNewEmployee = employeeService.saveNewEmployee(savedNewEmployee);
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedNewEmployee);
+        try {
+            Employee savedNewEmployee = employeeService.saveNewEmployee(employee);
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedNewEmployee);
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return AuthController.busy(e.getMessage());
+        }
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<?> updateEmployee(@RequestBody Employee employee, @PathVariable String id) {
-        Employee updatedEmployee = employeeService.updateEmployee(new ObjectId(id), employee);
-        return ResponseEntity.status(HttpStatus.OK).body(updatedEmployee);
+        try {
+            Employee updatedEmployee = employeeService.updateEmployee(new ObjectId(id), employee);
+            return ResponseEntity.status(HttpStatus.OK).body(updatedEmployee);
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return AuthController.busy(e.getMessage());
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -3,19 +3,19 @@ package com.anujsamdariya07.nightshiftInventory.controllers;
 import com.anujsamdariya07.nightshiftInventory.dto.ItemRequest;
 import com.anujsamdariya07.nightshiftInventory.entity.Employee;
 import com.anujsamdariya07.nightshiftInventory.entity.Item;
-import com.anujsamdariya07.nightshiftInventory.entity.Organization;
 import com.anujsamdariya07.nightshiftInventory.entity.UpdateHistory;
 import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
 import com.anujsamdariya07.nightshiftInventory.services.ItemService;
-import com.anujsamdariya07.nightshiftInventory.services.OrganizationService;
+import com.anujsamdariya07.nightshiftInventory.services.ListCacheService;
+import com.anujsamdariya07.nightshiftInventory.services.LowStockService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.Optional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
 @RestController
@@ -26,15 +26,29 @@ public class ItemController {
     @Autowired
     private EmployeeService employeeService;
     @Autowired
-    private OrganizationService organizationService;
+    private LowStockService lowStockService;
+    @Autowired
+    private ListCacheService listCacheService;
 
     @GetMapping
     public ResponseEntity<?> getItemsByOrgId(HttpServletRequest request) {
-        System.out.println("Get Items By OrgId");
         Employee currentUser = employeeService.getCurrentUser(request);
-        System.out.println("Current User ID: " + currentUser.getEmployeeId());
         ObjectId orgId = currentUser.getOrgId();
-        return ResponseEntity.status(HttpStatus.OK).body(itemService.getItemsByOrgId(orgId));
+        return listCacheService.respond(request, orgId, Item.class, () -> itemService.getItemsByOrgId(orgId));
+    }
+
+    @GetMapping("/low-stock")
+    public ResponseEntity<?> getLowStockItems(HttpServletRequest request) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        return ResponseEntity.status(HttpStatus.OK).body(itemService.getLowStockItems(currentUser.getOrgId()));
+    }
+
+    // Server-sent "low-stock" events whenever an item of the org drops to its threshold or is
+    // restocked above it
+    @GetMapping(path = "/low-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLowStock(HttpServletRequest request) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        return lowStockService.subscribe(currentUser.getOrgId());
     }
 
     @GetMapping("/{id}")
@@ -42,6 +56,18 @@ public class ItemController {
         return ResponseEntity.status(HttpStatus.OK).body(itemService.getItemById(new ObjectId(id)));
     }
 
+    @GetMapping("/{id}/history")
+    public ResponseEntity<?> getItemHistory(HttpServletRequest request, @PathVariable String id,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        Item item = itemService.getItemById(new ObjectId(id));
+        if (item == null || !item.getOrgId().equals(currentUser.getOrgId())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Item not found!");
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(itemService.getItemHistory(item, page, size));
+    }
+
     @PostMapping
     public ResponseEntity<?> createItem(HttpServletRequest request, @RequestBody ItemRequest itemRequest) {
         Employee currentUser = employeeService.getCurrentUser(request);
@@ -54,9 +80,6 @@ public class ItemController {
         itemRequest.setOrgId(orgId);
 
         Item savedItem = itemService.createItem(itemRequest);
-        Optional<Organization> organization = organizationService.findOrgById(orgId);
-        organization.ifPresent(value -> value.getItems().add(savedItem));
-        organizationService.saveOrganization(organization.get());
         return ResponseEntity.status(HttpStatus.CREATED).body(savedItem);
     }
 
@@ -0,0 +1,89 @@
+package com.anujsamdariya07.nightshiftInventory.controllers;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Employee;
+import com.anujsamdariya07.nightshiftInventory.entity.Message;
+import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
+import com.anujsamdariya07.nightshiftInventory.services.MessageDeliveryService;
+import com.anujsamdariya07.nightshiftInventory.services.MessageService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+@CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
+@RestController
+@RequestMapping("/api/messages")
+public class MessageController {
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private MessageDeliveryService messageDeliveryService;
+    @Autowired
+    private EmployeeService employeeService;
+
+    @PostMapping
+    public ResponseEntity<?> sendMessage(HttpServletRequest request, @RequestBody Message messageData) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        try {
+            Message message = messageService.send(currentUser, messageData.getReceiverId(), messageData.getContent());
+            return ResponseEntity.status(HttpStatus.CREATED).body(message);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    // The current user's messages as { messages, nextCursor, unread }, newest first
+    @GetMapping("/inbox")
+    public ResponseEntity<?> getInbox(HttpServletRequest request,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer limit) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        try {
+            return ResponseEntity.status(HttpStatus.OK).body(messageService.getInbox(
+                    currentUser.getOrgId(), currentUser.getEmployeeId(), cursor, limit != null ? limit : 50));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/unread")
+    public ResponseEntity<?> getUnreadCount(HttpServletRequest request) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        long unread = messageService.getUnreadCount(currentUser.getOrgId(), currentUser.getEmployeeId());
+        return ResponseEntity.status(HttpStatus.OK).body(Map.of("unread", unread));
+    }
+
+    @PutMapping("/{id}/read")
+    public ResponseEntity<?> markRead(HttpServletRequest request, @PathVariable String id) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        if (!ObjectId.isValid(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Message not found!");
+        }
+        Message message = messageService.markRead(currentUser.getOrgId(), currentUser.getEmployeeId(), new ObjectId(id));
+        if (message == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Message not found!");
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(message);
+    }
+
+    @PutMapping("/read")
+    public ResponseEntity<?> markAllRead(HttpServletRequest request) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        long updated = messageService.markAllRead(currentUser.getOrgId(), currentUser.getEmployeeId());
+        return ResponseEntity.status(HttpStatus.OK).body(Map.of("updated", updated));
+    }
+
+    // "message" events for messages received while connected and "unread" events with the new
+    // count. Missed events aren't replayed, a reconnecting client reloads the first inbox page.
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessages(HttpServletRequest request) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        return messageDeliveryService.subscribe(currentUser.getOrgId(), currentUser.getEmployeeId());
+    }
+}
@@ -1,19 +1,21 @@
 package com.anujsamdariya07.nightshiftInventory.controllers;
 
+import com.anujsamdariya07.nightshiftInventory.dto.OrderFilter;
 import com.anujsamdariya07.nightshiftInventory.entity.Employee;
 import com.anujsamdariya07.nightshiftInventory.entity.Order;
-import com.anujsamdariya07.nightshiftInventory.entity.Organization;
 import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
+import com.anujsamdariya07.nightshiftInventory.services.ListCacheService;
 import com.anujsamdariya07.nightshiftInventory.services.OrderService;
-import com.anujsamdariya07.nightshiftInventory.services.OrganizationService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Optional;
+import java.util.Date;
 
 @CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
 @RestController
@@ -24,13 +26,45 @@ public class OrderController {
     @Autowired
     private EmployeeService employeeService;
     @Autowired
-    private OrganizationService organizationService;
+    private ListCacheService listCacheService;
 
+    // Without any paging or filter parameter this still returns the whole list, as existing clients
+    // expect. Any of them switches to a page of { orders, nextCursor }.
     @GetMapping
-    public ResponseEntity<?> getOrdersByOrgId(HttpServletRequest request) {
+    public ResponseEntity<?> getOrdersByOrgId(HttpServletRequest request,
+                                              @RequestParam(required = false) Order.OrderStatus status,
+                                              @RequestParam(required = false) String customerId,
+                                              @RequestParam(required = false) String employeeId,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit) {
         Employee currentUser = employeeService.getCurrentUser(request);
         ObjectId orgId = currentUser.getOrgId();
-        return ResponseEntity.status(HttpStatus.OK).body(orderService.getOrdersByOrgId(orgId));
+
+        OrderFilter filter = OrderFilter.builder()
+                .status(status)
+                .customerId(customerId)
+                .employeeId(employeeId)
+                .from(from)
+                .to(to)
+                .cursor(cursor)
+                .build();
+        if (limit == null && status == null && customerId == null && employeeId == null
+                && from == null && to == null && cursor == null) {
+            return listCacheService.respond(request, orgId, Order.class, () -> orderService.getOrdersByOrgId(orgId));
+        }
+
+        // Identical page requests share one query and one serialized body, see ListCacheService
+        int pageSize = limit != null ? limit : 50;
+        String variant = String.join("|", String.valueOf(status), String.valueOf(customerId), String.valueOf(employeeId),
+                String.valueOf(from != null ? from.getTime() : null), String.valueOf(to != null ? to.getTime() : null),
+                String.valueOf(cursor), String.valueOf(pageSize));
+        try {
+            return listCacheService.respond(request, orgId, Order.class, variant, () -> orderService.getOrdersPage(orgId, filter, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     @GetMapping("/{id}")
@@ -51,18 +85,24 @@ public class OrderController {
         order.setOrgId(orgId);
         order.setEmployeeId(employeeId);
         order.setEmployeeName(employeeName);
-        Order savedOrder = orderService.createOrder(request, order);
-        Optional<Organization> organization = organizationService.findOrgById(orgId);
-        organization.ifPresent(value -> {
-            value.getOrders().add(savedOrder);
-        });
-        organizationService.saveOrganization(organization.get());
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedOrder);
+        try {
+            Order savedOrder = orderService.createOrder(request, order);
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedOrder);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<?> updateOrder(@PathVariable String id, @RequestBody Order order) {
-        Order savedOrder = orderService.updateOrder(new ObjectId(id), order);
+        Order savedOrder;
+        try {
+            savedOrder = orderService.updateOrder(new ObjectId(id), order);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
         if (savedOrder == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found!");
         }
@@ -71,16 +111,9 @@ public class OrderController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteOrder(@PathVariable String id) {
-        System.out.println("Delete Order 1");
-        Order orderById = orderService.getOrderById(new ObjectId(id));
-        System.out.println("Delete Order 2");
-        if (orderById == null) {
-            System.out.println("Delete Order 3");
+        if (!orderService.deleteOrder(new ObjectId(id))) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found!");
         }
-        System.out.println("Delete Order 4");
-        orderService.deleteOrder(new ObjectId(id));
-        System.out.println("Delete Order 5");
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
 }
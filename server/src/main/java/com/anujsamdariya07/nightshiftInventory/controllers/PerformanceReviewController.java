@@ -4,8 +4,10 @@ import com.anujsamdariya07.nightshiftInventory.dto.ReviewResponse;
 import com.anujsamdariya07.nightshiftInventory.entity.Employee;
 import com.anujsamdariya07.nightshiftInventory.entity.PerformanceReview;
 import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
+import com.anujsamdariya07.nightshiftInventory.services.ListCacheService;
 import com.anujsamdariya07.nightshiftInventory.services.PerformanceReviewService;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -14,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.Iterator;
 
+@Slf4j
 @CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
 @RestController
 @RequestMapping("/api/reviews")
@@ -22,69 +25,71 @@ public class PerformanceReviewController {
     private PerformanceReviewService performanceReviewService;
     @Autowired
     private EmployeeService employeeService;
+    @Autowired
+    private ListCacheService listCacheService;
 
     @PostMapping
     public ResponseEntity<?> addReview(HttpServletRequest request, @RequestBody PerformanceReview performanceReviewData) {
-        System.out.println("Adding Review");
-
-        System.out.println("Getting the reviewer and reviewee");
         Employee currentUser = employeeService.getCurrentUser(request);
         Employee employee = employeeService.getEmployeeByEmployeeId(currentUser.getOrgId(), performanceReviewData.getEmployeeId());
 
         if (!currentUser.getEmployeeId().equals(employee.getManagerId()) && !currentUser.getRole().equals(Employee.Role.ADMIN)) {
-            System.out.println("Access Denied!");
+            log.info("Review change on {} refused for {}", employee.getEmployeeId(), currentUser.getEmployeeId());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new ReviewResponse("Access Denied!", null));
         }
 
+        performanceReviewData.setOrgId(currentUser.getOrgId());
         performanceReviewData.setReviewerId(currentUser.getEmployeeId());
 
         PerformanceReview savedPerformance = performanceReviewService.addReview(performanceReviewData);
 
-        employee.getPerformance().add(savedPerformance);
-
-        employeeService.updateEmployee(employee.getId(), employee);
-
-        System.out.println("Done!");
+        employeeService.recordReview(employee.getId(), savedPerformance);
+        // Employees are listed with their review summary
+        listCacheService.invalidate(currentUser.getOrgId(), Employee.class);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(new ReviewResponse("Review Created!", savedPerformance));
     }
 
     //    TODO: Make a generalized output format for returning reviews with a string message
+    // Employee ids are only unique within an org, so both lists are read in the caller's org
     @GetMapping("/received/{employeeId}")
-    public ResponseEntity<?> getReviewsReceived(@PathVariable String employeeId) {
-        return ResponseEntity.status(HttpStatus.OK).body(performanceReviewService.getReviewsReceived(employeeId));
+    public ResponseEntity<?> getReviewsReceived(HttpServletRequest request, @PathVariable String employeeId) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        return ResponseEntity.status(HttpStatus.OK).body(performanceReviewService.getReviewsReceived(currentUser.getOrgId(), employeeId));
     }
 
     @GetMapping("/given/{reviewerId}")
-    public ResponseEntity<?> getReviewsGiven(@PathVariable String reviewerId) {
-        return ResponseEntity.status(HttpStatus.OK).body(performanceReviewService.getReviewsGiven(reviewerId));
+    public ResponseEntity<?> getReviewsGiven(HttpServletRequest request, @PathVariable String reviewerId) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        return ResponseEntity.status(HttpStatus.OK).body(performanceReviewService.getReviewsGiven(currentUser.getOrgId(), reviewerId));
     }
 
     @PutMapping("/{reviewId}")
     public ResponseEntity<?> updateReview(HttpServletRequest request, @PathVariable String reviewId, @RequestBody PerformanceReview performanceReviewData) {
-        System.out.println("Updating Review...");
-
-        System.out.println("Getting current user!");
         Employee currentUser = employeeService.getCurrentUser(request);
-        System.out.println("Getting employee by ID: " + performanceReviewData.getEmployeeId());
-        Employee employee = employeeService.getEmployeeByEmployeeId(currentUser.getOrgId(), performanceReviewData.getEmployeeId());
+        // Authorized against the employee the review is about, never the one named in the body
+        PerformanceReview review = performanceReviewService.getReviewById(new ObjectId(reviewId));
+        if (!currentUser.getOrgId().equals(review.getOrgId())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ReviewResponse("Review Not Found!", null));
+        }
+        if (performanceReviewData.getEmployeeId() != null && !performanceReviewData.getEmployeeId().equals(review.getEmployeeId())) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ReviewResponse("A review can't be moved to another employee!", null));
+        }
+        Employee employee = employeeService.getEmployeeByEmployeeId(currentUser.getOrgId(), review.getEmployeeId());
 
         if (!currentUser.getEmployeeId().equals(employee.getManagerId()) && !currentUser.getRole().equals(Employee.Role.ADMIN)) {
-            System.out.println("Access Denied!");
+            log.info("Review change on {} refused for {}", employee.getEmployeeId(), currentUser.getEmployeeId());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new ReviewResponse("Access denied!", null));
         }
 
-        System.out.println("Updating Review Service...");
-        PerformanceReview updatedReview = performanceReviewService.updateReview(new ObjectId(reviewId), performanceReviewData);
-
-        System.out.println("Removing the old performance from employee!");
-        employee.getPerformance().removeIf(review -> review.getId().equals(new ObjectId(reviewId)));
-
-        System.out.println("Adding new performance to employee!");
-        employee.getPerformance().add(updatedReview);
+        int previousScore = review.getRating().score();
+        PerformanceReview updatedReview = performanceReviewService.updateReview(review, performanceReviewData);
+        if (updatedReview == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ReviewResponse("The review was changed by someone else, please reload it!", null));
+        }
 
-        System.out.println("Finally updating employee!");
-        employeeService.updateEmployee(employee.getId(), employee);
+        employeeService.reviseReview(employee.getId(), previousScore, updatedReview);
+        listCacheService.invalidate(currentUser.getOrgId(), Employee.class);
 
         return ResponseEntity.status(HttpStatus.OK).body(new ReviewResponse("Review updated successfully!", updatedReview));
     }
@@ -93,17 +98,21 @@ public class PerformanceReviewController {
     public ResponseEntity<?> deleteReview(HttpServletRequest request, @PathVariable String id) {
         Employee currentUser = employeeService.getCurrentUser(request);
         PerformanceReview performanceReview = performanceReviewService.getReviewById(new ObjectId(id));
+        if (!currentUser.getOrgId().equals(performanceReview.getOrgId())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ReviewResponse("Review Not Found!", null));
+        }
         Employee employee = employeeService.getEmployeeByEmployeeId(currentUser.getOrgId(), performanceReview.getEmployeeId());
 
         if (!currentUser.getEmployeeId().equals(employee.getManagerId()) && !currentUser.getRole().equals(Employee.Role.ADMIN)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new ReviewResponse("Access denied!", null));
         }
 
-        employee.getPerformance().removeIf(review -> review.getId().equals(new ObjectId(id)));
-
-        employeeService.updateEmployee(employee.getId(), employee);
-
-        performanceReviewService.deleteReview(new ObjectId(id));
+        // Only the delete that removed the review takes it out of the summary, with the rating it had then
+        PerformanceReview deletedReview = performanceReviewService.deleteReview(new ObjectId(id));
+        if (deletedReview != null) {
+            employeeService.forgetReview(employee, deletedReview);
+            listCacheService.invalidate(currentUser.getOrgId(), Employee.class);
+        }
 
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
@@ -0,0 +1,28 @@
+package com.anujsamdariya07.nightshiftInventory.controllers;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Employee;
+import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
+import com.anujsamdariya07.nightshiftInventory.services.SyncService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+    @Autowired
+    private SyncService syncService;
+    @Autowired
+    private EmployeeService employeeService;
+
+    // The items, orders, customers and vendors changed after version since plus the ids deleted
+    // since then. since=0 (or a reset in the response) means a full load.
+    @GetMapping
+    public ResponseEntity<?> sync(HttpServletRequest request, @RequestParam(defaultValue = "0") long since) {
+        Employee currentUser = employeeService.getCurrentUser(request);
+        return ResponseEntity.status(HttpStatus.OK).body(syncService.changesSince(currentUser.getOrgId(), since));
+    }
+}
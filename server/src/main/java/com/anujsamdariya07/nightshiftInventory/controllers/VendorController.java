@@ -1,20 +1,19 @@
 package com.anujsamdariya07.nightshiftInventory.controllers;
 
 import com.anujsamdariya07.nightshiftInventory.entity.Employee;
-import com.anujsamdariya07.nightshiftInventory.entity.Organization;
 import com.anujsamdariya07.nightshiftInventory.entity.Vendor;
 import com.anujsamdariya07.nightshiftInventory.services.EmployeeService;
-import com.anujsamdariya07.nightshiftInventory.services.OrganizationService;
+import com.anujsamdariya07.nightshiftInventory.services.ListCacheService;
 import com.anujsamdariya07.nightshiftInventory.services.VendorService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Optional;
 
 @CrossOrigin(origins = {"http://localhost:3000", "https://nightshift-inventory-client.onrender.com"}, allowCredentials = "true")
 @RestController
@@ -25,13 +24,13 @@ public class VendorController {
     @Autowired
     private EmployeeService employeeService;
     @Autowired
-    private OrganizationService organizationService;
+    private ListCacheService listCacheService;
 
     @GetMapping
     public ResponseEntity<?> getAllVendorsByOrgId(HttpServletRequest request) {
         Employee currentUser = employeeService.getCurrentUser(request);
         ObjectId orgId = currentUser.getOrgId();
-        return ResponseEntity.status(HttpStatus.OK).body(vendorService.getAllVendorsByOrgId(orgId));
+        return listCacheService.respond(request, orgId, Vendor.class, () -> vendorService.getAllVendorsByOrgId(orgId));
     }
 
     @GetMapping("/{id}")
@@ -47,17 +46,22 @@ public class VendorController {
         vendor.setId(null);
         vendor.setOrgId(orgId);
 
-        Vendor savedVendor = vendorService.createVendor(vendor);
-        Optional<Organization> organization = organizationService.findOrgById(orgId);
-        organization.ifPresent(value -> value.getVendors().add(savedVendor));
-        organizationService.saveOrganization(organization.get());
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedVendor);
+        try {
+            Vendor savedVendor = vendorService.createVendor(vendor);
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedVendor);
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<?> updateVendor(@PathVariable String id, @RequestBody Vendor vendor) {
-        Vendor updatedVendor = vendorService.updateVendor(new ObjectId(id), vendor);
-        return ResponseEntity.status(HttpStatus.OK).body(updatedVendor);
+        try {
+            Vendor updatedVendor = vendorService.updateVendor(new ObjectId(id), vendor);
+            return ResponseEntity.status(HttpStatus.OK).body(updatedVendor);
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -0,0 +1,28 @@
+package com.anujsamdariya07.nightshiftInventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+public class ChangeEvent {
+    public enum Entity {
+        ITEM, ORDER, CUSTOMER, VENDOR
+    }
+
+    public enum Action {
+        CREATED, UPDATED, DELETED, QUANTITY
+    }
+
+    private String id;
+    private Entity entity;
+    private Action action;
+    // _id of the changed document
+    private String entityId;
+    // Org change version of the write. Clients fetch the changed documents from /api/sync with it, so
+    // the event itself stays a few bytes however large the document is.
+    private long version;
+    private Date date;
+}
@@ -0,0 +1,19 @@
+package com.anujsamdariya07.nightshiftInventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+public class LowStockEvent {
+    private String id;
+    private String itemId;
+    private String name;
+    private int quantity;
+    private int threshold;
+    // true when the item dropped to its threshold or below, false when it was restocked above it
+    private boolean lowStock;
+    private Date date;
+}
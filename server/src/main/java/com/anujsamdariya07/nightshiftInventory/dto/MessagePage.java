@@ -0,0 +1,16 @@
+package com.anujsamdariya07.nightshiftInventory.dto;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Message;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class MessagePage {
+    private List<Message> messages;
+    // Null on the last page
+    private String nextCursor;
+    private long unread;
+}
@@ -0,0 +1,26 @@
+package com.anujsamdariya07.nightshiftInventory.dto;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderFilter {
+    private Order.OrderStatus status;
+    private String customerId;
+    private String employeeId;
+    // Inclusive lower and exclusive upper bound on the order date
+    private Date from;
+    private Date to;
+    // Opaque position returned as nextCursor by the previous page
+    private String cursor;
+}
@@ -0,0 +1,15 @@
+package com.anujsamdariya07.nightshiftInventory.dto;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Order;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class OrderPage {
+    private List<Order> orders;
+    // Null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,24 @@
+package com.anujsamdariya07.nightshiftInventory.dto;
+
+import com.anujsamdariya07.nightshiftInventory.entity.CustomerDTO;
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.Order;
+import com.anujsamdariya07.nightshiftInventory.entity.Tombstone;
+import com.anujsamdariya07.nightshiftInventory.entity.Vendor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class SyncResponse {
+    // Pass this as since on the next sync
+    private long version;
+    // The client is too far behind for a delta (its deletes were purged), it has to reload everything
+    private boolean reset;
+    private List<Item> items = new ArrayList<>();
+    private List<Order> orders = new ArrayList<>();
+    private List<CustomerDTO> customers = new ArrayList<>();
+    private List<Vendor> vendors = new ArrayList<>();
+    private List<Tombstone> deleted = new ArrayList<>();
+}
@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
@@ -16,6 +17,12 @@ import java.util.Date;
 import java.util.List;
 
 @Document(collection = "customers")
+@CompoundIndex(name = "org_customer_id", def = "{'orgId': 1, 'customerId': 1}")
+@CompoundIndex(name = "org_change_version", def = "{'orgId': 1, 'changeVersion': 1}")
+// Contact details are unique within an org. Blank and missing values are left out of the indexes.
+@CompoundIndex(name = "org_email", def = "{'orgId': 1, 'email': 1}", unique = true, partialFilter = "{'email': {'$gt': ''}}")
+@CompoundIndex(name = "org_phone", def = "{'orgId': 1, 'phone': 1}", unique = true, partialFilter = "{'phone': {'$gt': ''}}")
+@CompoundIndex(name = "org_gst_no", def = "{'orgId': 1, 'gstNo': 1}", unique = true, partialFilter = "{'gstNo': {'$gt': ''}}")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -43,12 +50,17 @@ public class Customer {
     @Builder.Default
     private String status = "active";
 
+    // The latest orders only (nightshift.customers.recent-orders), in order date order so the most
+    // recent are at the end. The full history is in the orders collection.
     @Builder.Default
     private ArrayList<CustomerOrder> orders = new ArrayList<>();
 
-//    Worth of the above orders to be displayed in the client side
+    // Maintained together with orders whenever an order is created, updated or deleted
+    private long orderCount;
 
-//    Last date of order also to be displayed
+    private double totalOrderValue;
+
+    private Date lastOrderDate;
 
     @Builder.Default
     private ArrayList<Integer> satisfactionLevel = new ArrayList<>();
@@ -56,11 +68,10 @@ public class Customer {
     @Builder.Default
     private ArrayList<String> preferredCategories = new ArrayList<>();
 
-//    Also display the orders done in the last 5 months
-
-//    Also display order frequency
-
     private String gstNo;
 
     private Date dateOfJoining = new Date();
+
+    // Org change sequence value of the last write, see ChangeVersionService
+    private long changeVersion;
 }
@@ -20,6 +20,8 @@ public class CustomerDTO {
     private String email;
     private String address;
     private String status;
+    // Only on a single customer, read from the orders collection. Lists carry the counts and the
+    // recent orders instead
     private ArrayList<CustomerOrder> orders;
     private ArrayList<Integer> satisfactionLevel;
     private ArrayList<String> preferredCategories;
@@ -27,6 +29,7 @@ public class CustomerDTO {
     private Date dateOfJoining;
 
     // Derived fields
+    private long orderCount;
     private double totalOrderValue;
     private Date lastOrderDate;
     @Builder.Default
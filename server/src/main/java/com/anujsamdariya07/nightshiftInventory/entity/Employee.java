@@ -10,8 +10,9 @@ import lombok.AllArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -21,6 +22,8 @@ import java.util.ArrayList;
 import java.util.Date;
 
 @Document(collection = "employees")
+@CompoundIndex(name = "org_employee_id", def = "{'orgId': 1, 'employeeId': 1}")
+@CompoundIndex(name = "org_phone", def = "{'orgId': 1, 'phone': 1}", unique = true, partialFilter = "{'phone': {'$gt': ''}}")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -43,6 +46,8 @@ public class Employee {
 
     private String name;
 
+    // Login looks employees up by email alone, so it is unique across orgs
+    @Indexed(name = "email_unique", unique = true, partialFilter = "{'email': {'$gt': ''}}")
     private String email;
 
     private String password;
@@ -59,9 +64,9 @@ public class Employee {
 
     private String location;
 
-    @DBRef
+    // Kept up to date as reviews change, the reviews themselves are fetched per employee when shown
     @Builder.Default
-    private ArrayList<PerformanceReview> performance = new ArrayList<>();
+    private ReviewSummary reviewSummary = new ReviewSummary();
 
     private Integer experience;
 
@@ -89,7 +94,4 @@ public class Employee {
     private String managerId;
 
     private ArrayList<String> skills;
-
-    @DBRef
-    private ArrayList<Message> messages;
 }
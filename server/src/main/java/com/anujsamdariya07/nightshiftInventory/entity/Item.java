@@ -9,13 +9,19 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 @Document(collection = "items")
+@CompoundIndex(name = "org_item_id", def = "{'orgId': 1, 'itemId': 1}", unique = true)
+// Only holds the items at or below their threshold, so listing them costs the size of that set. lowStock
+// is in the key so it can't be mistaken for org_item_id, which servers before 5.0 reject outright.
+@CompoundIndex(name = "org_low_stock_item", def = "{'orgId': 1, 'lowStock': 1, 'itemId': 1}", partialFilter = "{'lowStock': true}")
+@CompoundIndex(name = "org_change_version", def = "{'orgId': 1, 'changeVersion': 1}")
+@CompoundIndex(name = "org_name", def = "{'orgId': 1, 'name': 1}")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,6 +36,7 @@ public class Item {
     @JsonSerialize(using = ToStringSerializer.class)
     private ObjectId orgId;
 
+    @Indexed
     private String name;
 
     private int quantity;
@@ -39,12 +46,15 @@ public class Item {
     @Builder.Default
     private int threshold = 10;
 
+    // quantity <= threshold, kept in step by LowStockService after every quantity or threshold change
+    private boolean lowStock;
+
     @Builder.Default
     private Date lastDateOfUpdate = new Date();
 
     @Builder.Default
     private String image = "https://encrypted-tbn0.gstatic.com/images?q=tbn:ANd9GcRo6ZeL1Ntu-zwEcgRli39ynixVj9yeQtfjAw&s";
 
-    @Builder.Default
-    private ArrayList<UpdateHistory> updateHistory = new ArrayList<>();
+    // Org change sequence value of the last write, see ChangeVersionService
+    private long changeVersion;
 }
@@ -9,12 +9,14 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 
-import java.time.LocalDateTime;
+import java.util.Date;
 
+// Inbox pages are read newest first by (createdAt, _id), which the index covers including the tie-break
 @Document(collection = "messages")
+@CompoundIndex(name = "org_receiver_created", def = "{'orgId': 1, 'receiverId': 1, 'createdAt': -1, '_id': -1}")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -26,6 +28,9 @@ public class Message {
     @JsonSerialize(using = ToStringSerializer.class)
     private ObjectId id;
 
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId orgId;
+
     private String senderId;
 
     private String receiverId;
@@ -35,6 +40,6 @@ public class Message {
     @Builder.Default
     private boolean isRead = false;
 
-    private LocalDateTime createdAt;
-    private LocalDateTime updatedAt;
+    private Date createdAt;
+    private Date updatedAt;
 }
@@ -9,12 +9,19 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
 import java.util.Date;
 
 @Document(collection = "orders")
+// Newest first listing, unfiltered and with each of the equality filters in front of the sort keys
+@CompoundIndex(name = "org_date_id", def = "{'orgId': 1, 'orderDate': -1, '_id': -1}")
+@CompoundIndex(name = "org_status_date_id", def = "{'orgId': 1, 'status': 1, 'orderDate': -1, '_id': -1}")
+@CompoundIndex(name = "org_customer_date_id", def = "{'orgId': 1, 'customerId': 1, 'orderDate': -1, '_id': -1}")
+@CompoundIndex(name = "org_employee_date_id", def = "{'orgId': 1, 'employeeId': 1, 'orderDate': -1, '_id': -1}")
+@CompoundIndex(name = "org_change_version", def = "{'orgId': 1, 'changeVersion': 1}")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -55,4 +62,10 @@ public class Order {
     private Date deadline;
 
     private String notes;
+
+    // Org change sequence value of the last write, see ChangeVersionService
+    private long changeVersion;
+
+    // Bumped by every update, which only goes through against the revision it read, see OrderService.updateOrder
+    private long revision;
 }
@@ -9,11 +9,12 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 
-import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Document(collection = "organizations")
 @Getter
@@ -22,6 +23,29 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 public class Organization {
+    public enum Counter {
+        EMPLOYEES("employeeCount", Employee.class),
+        ORDERS("orderCount", Order.class),
+        CUSTOMERS("customerCount", Customer.class),
+        ITEMS("itemCount", Item.class),
+        VENDORS("vendorCount", Vendor.class);
+
+        private final String field;
+        private final Class<?> entityClass;
+
+        Counter(String field, Class<?> entityClass) {
+            this.field = field;
+            this.entityClass = entityClass;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public Class<?> getEntityClass() {
+            return entityClass;
+        }
+    }
 
     @Id
     @JsonSerialize(using = ToStringSerializer.class)
@@ -29,33 +53,53 @@ public class Organization {
 
     private String name;
 
+    @Indexed
     private String mobileNo;
 
+    @Indexed
     private String email;
 
     private String password;
 
+    @Indexed
     private String gstNo;
 
     private String address;
 
-    @DBRef
-    @Builder.Default
-    private ArrayList<Employee> employeeDetails = new ArrayList<>();
+    // Maintained with $inc as documents are created and deleted, so reading an org never has to
+    // touch the tenant's collections
+    private long employeeCount;
+
+    private long orderCount;
+
+    private long customerCount;
+
+    private long itemCount;
+
+    private long vendorCount;
+
+    // Last value of the org's change sequence, every write to its items, orders, customers and
+    // vendors takes the next one
+    private long changeVersion;
+
+    // Tombstones up to this version have been purged, a sync from before it has to reload
+    private long purgedVersion;
 
-    @DBRef
-    @Builder.Default
-    private ArrayList<Order> orders = new ArrayList<>();
+    // Versions taken but not yet on every document they were taken for, see ChangeVersionService.
+    // A sync hands out no version at or above one of these.
+    private List<PendingStamp> pendingStamps;
 
-    @DBRef
-    @Builder.Default
-    private ArrayList<Customer> customers = new ArrayList<>();
+    // Per collection, bumped after every write to the org's documents in it. The list ETags are built
+    // from it, so every instance sees the same version.
+    private Map<String, Long> listVersions;
 
-    @DBRef
-    @Builder.Default
-    private ArrayList<Item> items = new ArrayList<>();
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PendingStamp {
+        private long version;
 
-    @DBRef
-    @Builder.Default
-    private ArrayList<Vendor> vendors = new ArrayList<>();
+        private Date startedAt;
+    }
 }
@@ -5,12 +5,14 @@ import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.*;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 
 import java.util.Date;
 
 @Document(collection = "performance_reviews")
+@CompoundIndex(name = "org_employee_date", def = "{'orgId': 1, 'employeeId': 1, 'reviewDate': -1}")
+@CompoundIndex(name = "org_reviewer_date", def = "{'orgId': 1, 'reviewerId': 1, 'reviewDate': -1}")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,13 +20,20 @@ import java.util.Date;
 @Builder
 public class PerformanceReview {
     public enum Rating {
-        I, II, III, IV, V
+        I, II, III, IV, V;
+
+        public int score() {
+            return ordinal() + 1;
+        }
     }
 
     @Id
     @JsonSerialize(using = ToStringSerializer.class)
     private ObjectId id;
 
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId orgId;
+
     private String employeeId;
 
     private String reviewerId;
@@ -0,0 +1,30 @@
+package com.anujsamdariya07.nightshiftInventory.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Transient;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReviewSummary {
+
+    private int count;
+
+    // Sum of the ratings on the 1 to 5 scale. Kept instead of the average so reviews can be folded in with $inc.
+    private long ratingTotal;
+
+    private Date lastReviewDate;
+
+    @Transient
+    public double getAverageRating() {
+        return count > 0 ? (double) ratingTotal / count : 0;
+    }
+}
@@ -0,0 +1,40 @@
+package com.anujsamdariya07.nightshiftInventory.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Either a single token (tokenId) or every token of an employee issued before revokedAt (employeeId)
+@Document(collection = "revoked_sessions")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedSession {
+
+    @Id
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId id;
+
+    private String tokenId;
+
+    private String employeeId;
+
+    @Indexed
+    private Date revokedAt;
+
+    // Past this point no token the entry could match is still valid, so Mongo can drop it
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+}
@@ -0,0 +1,72 @@
+package com.anujsamdariya07.nightshiftInventory.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document(collection = "sequences")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Sequence {
+    public enum Type {
+        ITEM("ITEM", Item.class, "itemId", 0),
+        ORDER("ORD", Order.class, "orderId", 0),
+        CUSTOMER("CUST", Customer.class, "customerId", 0),
+        VENDOR("VEND", Vendor.class, "vendorId", 0),
+        EMPLOYEE("EMP", Employee.class, "employeeId", 100);
+
+        private final String prefix;
+        private final Class<?> entityClass;
+        private final String idField;
+        // Value a brand-new org starts counting from, the first id handed out is floor + 1
+        private final long floor;
+
+        Type(String prefix, Class<?> entityClass, String idField, long floor) {
+            this.prefix = prefix;
+            this.entityClass = entityClass;
+            this.idField = idField;
+            this.floor = floor;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public Class<?> getEntityClass() {
+            return entityClass;
+        }
+
+        public String getIdField() {
+            return idField;
+        }
+
+        public long getFloor() {
+            return floor;
+        }
+
+        public String format(long value) {
+            return String.format("%s-%03d", prefix, value);
+        }
+    }
+
+    // <orgId>:<prefix>
+    @Id
+    private String id;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId orgId;
+
+    private String prefix;
+
+    private long value;
+}
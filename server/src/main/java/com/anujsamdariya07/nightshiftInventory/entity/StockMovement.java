@@ -0,0 +1,52 @@
+package com.anujsamdariya07.nightshiftInventory.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// One entry of an item's stock history, kept out of the item document so it can grow without bound
+@Document(collection = "stock_movements")
+@CompoundIndex(name = "org_item_date", def = "{'orgId': 1, 'itemId': 1, 'date': -1}")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovement {
+
+    @Id
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId id;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId orgId;
+
+    private String itemId;
+
+    private String vendorName;
+
+    private String vendorId;
+
+    private String orderName;
+
+    private String orderId;
+
+    private int quantityUpdated;
+
+    private double cost;
+
+    private UpdateHistory.UpdateTypes updateType;
+
+    @Builder.Default
+    private Date date = new Date();
+}
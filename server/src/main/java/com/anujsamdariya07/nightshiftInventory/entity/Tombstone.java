@@ -0,0 +1,46 @@
+package com.anujsamdariya07.nightshiftInventory.entity;
+
+import com.anujsamdariya07.nightshiftInventory.dto.ChangeEvent;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// A deleted item, order, customer or vendor, kept so delta syncs can tell clients to drop it
+@Document(collection = "tombstones")
+@CompoundIndex(name = "org_version", def = "{'orgId': 1, 'version': 1}")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Tombstone {
+
+    @Id
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId id;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId orgId;
+
+    private ChangeEvent.Entity entity;
+
+    // _id of the deleted document
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId entityId;
+
+    private long version;
+
+    @Indexed
+    private Date deletedAt;
+}
@@ -0,0 +1,33 @@
+package com.anujsamdariya07.nightshiftInventory.entity;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Unread message count of one employee, moved with $inc as messages arrive and get read so the
+// badge never has to count the inbox. Kept apart from the employee so chatter doesn't touch it.
+@Document(collection = "message_counters")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UnreadCounter {
+    // <orgId>:<employeeId>
+    @Id
+    private String id;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    private ObjectId orgId;
+
+    private String employeeId;
+
+    private long unread;
+}
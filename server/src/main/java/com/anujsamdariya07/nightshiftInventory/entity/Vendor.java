@@ -9,11 +9,18 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
 
 @Document(collection = "vendors")
+@CompoundIndex(name = "org_vendor_id", def = "{'orgId': 1, 'vendorId': 1}")
+@CompoundIndex(name = "org_change_version", def = "{'orgId': 1, 'changeVersion': 1}")
+// Contact details are unique within an org. Blank and missing values are left out of the indexes.
+@CompoundIndex(name = "org_email", def = "{'orgId': 1, 'email': 1}", unique = true, partialFilter = "{'email': {'$gt': ''}}")
+@CompoundIndex(name = "org_phone", def = "{'orgId': 1, 'phone': 1}", unique = true, partialFilter = "{'phone': {'$gt': ''}}")
+@CompoundIndex(name = "org_gst_no", def = "{'orgId': 1, 'gstNo': 1}", unique = true, partialFilter = "{'gstNo': {'$gt': ''}}")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -56,4 +63,7 @@ public class Vendor {
     private ArrayList<Integer> onTimeDelivery;
 
     private ArrayList<Integer> responseTime;
+
+    // Org change sequence value of the last write, see ChangeVersionService
+    private long changeVersion;
 }
@@ -17,13 +17,7 @@ public interface CustomerRepository extends MongoRepository<Customer, ObjectId>
 
     Optional<Customer> findByOrgIdAndCustomerId(ObjectId orgId, String customerId);
 
-    void deleteByOrgIdAndId(ObjectId orgId, ObjectId id);
-
-    boolean existsByPhone(String phone);
-
-    boolean existsByEmail(String email);
-
-    boolean existsByGstNo(String email);
+    long deleteByOrgIdAndId(ObjectId orgId, ObjectId id);
 
     boolean existsByOrgIdAndId(ObjectId orgId, ObjectId id);
 }
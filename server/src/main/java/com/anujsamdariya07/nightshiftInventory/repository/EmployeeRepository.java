@@ -17,9 +17,7 @@ public interface EmployeeRepository
 
     public boolean existsByEmailAndOrgId(String email, ObjectId orgId);
 
-    public boolean existsByPhone(String phone);
-
-    public boolean existsByEmail(String email);
-
     public Optional<Employee> findByEmail(String email);
+
+    public Employee deleteEmployeeById(ObjectId id);
 }
@@ -15,4 +15,6 @@ public interface ItemRepository
     Item findByOrgIdAndName(ObjectId orgId, String name);
     boolean existsByNameAndOrgId(String name, ObjectId orgId);
     boolean existsByName(String name);
+    Item deleteItemById(ObjectId id);
+    List<Item> findAllByOrgIdAndLowStockTrueOrderByItemIdAsc(ObjectId orgId);
 }
@@ -12,4 +12,5 @@ public interface OrderRepository
         extends MongoRepository<Order, ObjectId> {
     List<Order> findAllByOrgId(ObjectId orgId);
     List<Order> findAllByCustomerIdAndOrgId(String customerId, ObjectId orgId);
+    Order deleteOrderById(ObjectId id);
 }
@@ -7,7 +7,9 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.List;
 
 public interface PerformanceReviewRepository extends MongoRepository<PerformanceReview, ObjectId> {
-    List<PerformanceReview> findByEmployeeId(String employeeId);
+    List<PerformanceReview> findByOrgIdAndEmployeeId(ObjectId orgId, String employeeId);
 
-    List<PerformanceReview> findByReviewerId(String reviewerId);
+    List<PerformanceReview> findByOrgIdAndReviewerId(ObjectId orgId, String reviewerId);
+
+    PerformanceReview deleteReviewById(ObjectId id);
 }
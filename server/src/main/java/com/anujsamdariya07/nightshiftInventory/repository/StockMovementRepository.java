@@ -0,0 +1,14 @@
+package com.anujsamdariya07.nightshiftInventory.repository;
+
+import com.anujsamdariya07.nightshiftInventory.entity.StockMovement;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockMovementRepository
+        extends MongoRepository<StockMovement, ObjectId> {
+    Slice<StockMovement> findByOrgIdAndItemIdOrderByDateDesc(ObjectId orgId, String itemId, Pageable pageable);
+}
@@ -13,7 +13,5 @@ public interface VendorRepository
         extends MongoRepository<Vendor, ObjectId> {
     public List<Vendor> findAllByOrgId(ObjectId orgId);
     public Optional<Vendor> findVendorByOrgIdAndVendorId(ObjectId orgId, String vendorId);
-    public boolean existsByEmail(String email);
-    public boolean existsByPhone(String phone);
-    public boolean existsByGstNo(String gstNo);
+    public Vendor deleteVendorById(ObjectId id);
 }
@@ -0,0 +1,140 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.dto.ChangeEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Per-org stream of compact change events published by the services after each write: which
+// document changed, how, and at which change version, so open terminals fetch just those documents
+// from /api/sync instead of refetching whole lists. Each org keeps its last events
+// for clients resuming with Last-Event-ID; anything older, or from before a restart, gets a "reset"
+// event telling the client to reload. Every subscriber has a bounded buffer and one that falls that
+// far behind is disconnected, it resumes from its last event when it reconnects.
+//
+// Single instance only: the history and subscribers live in this process, so behind a load
+// balancer a write handled by one server never reaches the streams held open by another. Clients
+// landing on a different server after a reconnect just get a reset (the instance is part of the
+// event id), but live events would be lost, so the server is deployed as exactly one replica.
+// Running more would need the events fanned out through Mongo first, e.g. a change stream on the
+// written collections.
+@Service
+public class ChangeFeedService {
+    @Value("${nightshift.changes.history:1000}")
+    private int historySize;
+
+    @Value("${nightshift.changes.buffer:256}")
+    private int bufferSize;
+
+    @Value("${nightshift.changes.stream-timeout:30m}")
+    private Duration streamTimeout;
+
+    @Value("${nightshift.changes.threads:2}")
+    private int threads;
+
+    // Event ids are "<instance>-<sequence>", the sequence starts over with the process
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<ObjectId, Feed> feeds = new ConcurrentHashMap<>();
+
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    void init() {
+        dispatcher = Executors.newFixedThreadPool(threads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    public void publish(ObjectId orgId, ChangeEvent.Entity entity, ChangeEvent.Action action, ObjectId entityId, long version) {
+        if (orgId == null) return;
+        feed(orgId).publish(entity, action, entityId != null ? entityId.toHexString() : null, version);
+    }
+
+    public SseEmitter subscribe(ObjectId orgId, String lastEventId) {
+        // One slot over the buffer size so a full replay still has room for a reset
+        SseSubscriber subscriber = new SseSubscriber(streamTimeout, bufferSize + 1, dispatcher);
+        Feed feed = feed(orgId);
+        subscriber.onClose(() -> feed.subscribers.remove(subscriber));
+        feed.subscribe(subscriber, lastEventId);
+        return subscriber.emitter();
+    }
+
+    private Feed feed(ObjectId orgId) {
+        return feeds.computeIfAbsent(orgId, id -> new Feed());
+    }
+
+    private static SseEmitter.SseEventBuilder change(ChangeEvent event) {
+        return SseEmitter.event().id(event.getId()).name("change").data(event);
+    }
+
+    private class Feed {
+        private final Deque<ChangeEvent> history = new ArrayDeque<>();
+        // Written under the feed's lock, but the emitter callbacks remove from it on other threads
+        private final List<SseSubscriber> subscribers = new CopyOnWriteArrayList<>();
+        private long sequence;
+
+        private synchronized void publish(ChangeEvent.Entity entity, ChangeEvent.Action action, String entityId, long version) {
+            ChangeEvent event = new ChangeEvent(instance + "-" + (++sequence), entity, action, entityId, version, new Date());
+            history.addLast(event);
+            if (history.size() > historySize) history.removeFirst();
+            for (SseSubscriber subscriber : subscribers) {
+                if (!subscriber.offer(change(event))) {
+                    subscribers.remove(subscriber);
+                    subscriber.disconnect();
+                }
+            }
+        }
+
+        private synchronized void subscribe(SseSubscriber subscriber, String lastEventId) {
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                List<ChangeEvent> missed = missedSince(lastEventId);
+                if (missed == null || missed.size() > bufferSize) {
+                    subscriber.offer(SseEmitter.event().name("reset").data("reload"));
+                } else {
+                    missed.forEach(event -> subscriber.offer(change(event)));
+                }
+            }
+            subscribers.add(subscriber);
+        }
+
+        // The events after the given id, or null when they're no longer all in the history
+        private List<ChangeEvent> missedSince(String lastEventId) {
+            int separator = lastEventId.lastIndexOf('-');
+            if (separator < 0 || !lastEventId.substring(0, separator).equals(instance)) return null;
+            long last;
+            try {
+                last = Long.parseLong(lastEventId.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            long oldest = sequence - history.size() + 1;
+            if (last < oldest - 1 || last > sequence) return null;
+
+            List<ChangeEvent> missed = new ArrayList<>();
+            long current = oldest;
+            for (ChangeEvent event : history) {
+                if (current++ > last) missed.add(event);
+            }
+            return missed;
+        }
+    }
+}
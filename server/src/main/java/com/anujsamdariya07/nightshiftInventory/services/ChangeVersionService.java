@@ -0,0 +1,211 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.dto.ChangeEvent;
+import com.anujsamdariya07.nightshiftInventory.entity.Customer;
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.Order;
+import com.anujsamdariya07.nightshiftInventory.entity.Organization;
+import com.anujsamdariya07.nightshiftInventory.entity.Tombstone;
+import com.anujsamdariya07.nightshiftInventory.entity.Vendor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+// Stamps every write to an org's items, orders, customers and vendors with the next value of the
+// org's change sequence, and leaves a tombstone for every delete, so a client can ask for what
+// changed since the last version it saw.
+//
+// The version is taken after the write, never before, and written to the documents in a second step.
+// Taking it registers it as pending on the org in the same write, and it is released together with
+// the list version bump once the documents carry it. A sync reads the org's version and its pending
+// stamps in one read and hands out no version at or above one still pending, so the next sync from
+// there picks those documents up.
+//
+// Within batch, every stamp and deletion of the org shares one version, taken by the first of them
+// and released after the last, so a request that writes to several collections pays for one take
+// and one release on top of its document writes.
+@Slf4j
+@Service
+public class ChangeVersionService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ListCacheService listCacheService;
+
+    @Value("${nightshift.sync.tombstone-retention:30d}")
+    private Duration tombstoneRetention;
+
+    // A stamp pending for longer belongs to a writer that died, syncs stop waiting for it
+    @Value("${nightshift.sync.stamp-lease:1m}")
+    private Duration stampLease;
+
+    private final ThreadLocal<Batch> batches = new ThreadLocal<>();
+
+    public Organization organization(ObjectId orgId) {
+        Query query = Query.query(Criteria.where("_id").is(orgId));
+        query.fields().include("changeVersion", "purgedVersion", "pendingStamps");
+        return mongoTemplate.findOne(query, Organization.class);
+    }
+
+    // The version a sync that read the org can hand out: below every stamp still pending, whose
+    // documents may not carry their version yet, but never below since.
+    public long settledVersion(Organization organization, long since) {
+        long version = organization.getChangeVersion();
+        if (organization.getPendingStamps() == null) return version;
+        long leased = System.currentTimeMillis() - stampLease.toMillis();
+        for (Organization.PendingStamp pending : organization.getPendingStamps()) {
+            if (pending.getStartedAt() != null && pending.getStartedAt().getTime() > leased) {
+                version = Math.min(version, pending.getVersion() - 1);
+            }
+        }
+        return Math.max(since, version);
+    }
+
+    // Runs work with all of its stamps and deletions for the org under one version. A batch inside
+    // another joins it.
+    public <T> T batch(ObjectId orgId, Supplier<T> work) {
+        if (orgId == null || batches.get() != null) return work.get();
+        Batch batch = new Batch(orgId);
+        batches.set(batch);
+        try {
+            return work.get();
+        } finally {
+            batches.remove();
+            if (batch.version != null) release(orgId, batch.version, batch.written);
+        }
+    }
+
+    // Sets the next version on the documents matching the query. $max keeps a slower writer from
+    // moving a document back to an older version.
+    public long stamp(ObjectId orgId, Class<?> entityClass, Query query) {
+        if (orgId == null) return 0;
+        return stamped(orgId, entityClass,
+                version -> mongoTemplate.updateMulti(query, new Update().max("changeVersion", version), entityClass));
+    }
+
+    public long stamp(ObjectId orgId, Class<?> entityClass, ObjectId id) {
+        return stamp(orgId, entityClass, Query.query(Criteria.where("_id").is(id)));
+    }
+
+    // The tombstone's version
+    public long recordDeletion(ObjectId orgId, ChangeEvent.Entity entity, ObjectId entityId) {
+        if (orgId == null || entityId == null) return 0;
+        return stamped(orgId, entityClass(entity), version -> mongoTemplate.insert(Tombstone.builder()
+                .orgId(orgId)
+                .entity(entity)
+                .entityId(entityId)
+                .version(version)
+                .deletedAt(new Date())
+                .build()));
+    }
+
+    private long stamped(ObjectId orgId, Class<?> entityClass, LongConsumer write) {
+        Batch batch = batches.get();
+        if (batch != null && batch.orgId.equals(orgId)) {
+            if (batch.version == null) batch.version = take(orgId);
+            batch.written.add(entityClass);
+            write.accept(batch.version);
+            return batch.version;
+        }
+        long version = take(orgId);
+        try {
+            write.accept(version);
+            return version;
+        } finally {
+            release(orgId, version, Set.of(entityClass));
+        }
+    }
+
+    // Takes the next version and registers it as pending in one write, dropping the pending stamps
+    // past their lease on the way. 0 for an unknown org, which no $max moves anything to.
+    private long take(ObjectId orgId) {
+        Query query = Query.query(Criteria.where("_id").is(orgId));
+        query.fields().include("changeVersion");
+        Date now = new Date();
+        Date leased = new Date(now.getTime() - stampLease.toMillis());
+        Document live = new Document("$filter", new Document("input", new Document("$ifNull", List.of("$pendingStamps", List.of())))
+                .append("cond", new Document("$gt", List.of("$$this.startedAt", leased))));
+        AggregationUpdate update = AggregationUpdate.from(List.of(
+                set(new Document("changeVersion", new Document("$add", List.of(new Document("$ifNull", List.of("$changeVersion", 0L)), 1L)))
+                        .append("pendingStamps", live)),
+                set(new Document("pendingStamps", new Document("$concatArrays", List.of("$pendingStamps",
+                        List.of(new Document("version", "$changeVersion").append("startedAt", now))))))));
+        Organization organization = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Organization.class);
+        return organization != null ? organization.getChangeVersion() : 0;
+    }
+
+    // Drops the pending stamp and bumps the list versions of what was written, in one write
+    private void release(ObjectId orgId, long version, Set<Class<?>> written) {
+        if (version == 0) return;
+        Update update = new Update().pull("pendingStamps", new Document("version", version));
+        written.forEach(entityClass -> listCacheService.invalidate(update, entityClass));
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(orgId)), update, Organization.class);
+    }
+
+    private static AggregationOperation set(Document fields) {
+        return context -> new Document("$set", fields);
+    }
+
+    private static Class<?> entityClass(ChangeEvent.Entity entity) {
+        return switch (entity) {
+            case ITEM -> Item.class;
+            case ORDER -> Order.class;
+            case CUSTOMER -> Customer.class;
+            case VENDOR -> Vendor.class;
+        };
+    }
+
+    // Drops the tombstones older than the retention and remembers, per org, the highest version
+    // dropped. Clients syncing from before that version can't learn about those deletes anymore.
+    @Scheduled(cron = "${nightshift.sync.tombstone-purge-cron:0 30 3 * * *}")
+    public int purgeTombstones() {
+        Date cutoff = new Date(System.currentTimeMillis() - tombstoneRetention.toMillis());
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("deletedAt").lt(cutoff)),
+                Aggregation.group("orgId").max("version").as("version")
+        );
+        String collection = mongoTemplate.getCollectionName(Tombstone.class);
+        int purged = 0;
+        for (Document org : mongoTemplate.aggregate(aggregation, collection, Document.class)) {
+            ObjectId orgId = org.getObjectId("_id");
+            long version = ((Number) org.get("version")).longValue();
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(orgId)),
+                    new Update().max("purgedVersion", version), Organization.class);
+            purged += (int) mongoTemplate.remove(Query.query(Criteria.where("orgId").is(orgId).and("version").lte(version)),
+                    Tombstone.class).getDeletedCount();
+        }
+        if (purged > 0) log.info("Purged {} tombstones", purged);
+        return purged;
+    }
+
+    private static final class Batch {
+        private final ObjectId orgId;
+        private final Set<Class<?>> written = new LinkedHashSet<>();
+        private Long version;
+
+        private Batch(ObjectId orgId) {
+            this.orgId = orgId;
+        }
+    }
+}
@@ -1,117 +1,133 @@
 package com.anujsamdariya07.nightshiftInventory.services;
 
+import com.anujsamdariya07.nightshiftInventory.dto.ChangeEvent;
 import com.anujsamdariya07.nightshiftInventory.entity.Customer;
 import com.anujsamdariya07.nightshiftInventory.entity.CustomerDTO;
 import com.anujsamdariya07.nightshiftInventory.entity.CustomerOrder;
-import com.anujsamdariya07.nightshiftInventory.entity.Vendor;
+import com.anujsamdariya07.nightshiftInventory.entity.Order;
+import com.anujsamdariya07.nightshiftInventory.entity.Organization;
+import com.anujsamdariya07.nightshiftInventory.entity.Sequence;
 import com.anujsamdariya07.nightshiftInventory.repository.CustomerRepository;
+import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 public class CustomerService {
     @Autowired
     private CustomerRepository customerRepository;
+    @Autowired
+    private SequenceService sequenceService;
+    @Autowired
+    private OrganizationService organizationService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ChangeFeedService changeFeedService;
+    @Autowired
+    private ChangeVersionService changeVersionService;
+
+    // How many of its latest orders a customer document keeps. The full history is in the orders
+    // collection; the window only has to cover what the lists show as recent for a typical customer.
+    @Value("${nightshift.customers.recent-orders:100}")
+    private int recentOrders;
 
+    // The embedded orders are cut down to the recent ones on the server before they are read, so the
+    // list costs the same however long the customers' order histories are.
     public List<CustomerDTO> getAllCustomersByOrgId(ObjectId orgId) {
-        List<Customer> customers = customerRepository.findByOrgId(orgId);
+        Date recentSince = recentOrdersSince();
+        Document recentOrders = new Document("$filter", new Document("input", "$orders")
+                .append("as", "order")
+                .append("cond", new Document("$gte", List.of("$$order.orderDate", recentSince))));
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("orgId").is(orgId)),
+                context -> new Document("$set", new Document("orders", recentOrders)));
+        List<Customer> customers = mongoTemplate.aggregate(aggregation, Customer.class, Customer.class).getMappedResults();
+        return toDTOs(customers, recentSince);
+    }
 
-        LocalDate fiveMonthsAgo = LocalDate.now().minusMonths(5);
+    // For lists, which leave out the full order history
+    public List<CustomerDTO> toDTOs(List<Customer> customers) {
+        return toDTOs(customers, recentOrdersSince());
+    }
 
-        return customers.stream().map(customer -> {
-            double totalOrderValue = customer.getOrders().stream()
-                    .mapToDouble(CustomerOrder::getTotalAmount)
-                    .sum();
-
-            Date lastOrderDate = customer.getOrders().stream()
-                    .map(CustomerOrder::getOrderDate)
-                    .max(Date::compareTo)
-                    .orElse(null);
-
-            ArrayList<CustomerOrder> lastFiveMonthsOrders = customer.getOrders().stream()
-                    .filter(o -> o.getOrderDate().toInstant()
-                            .atZone(ZoneId.systemDefault())
-                            .toLocalDate()
-                            .isAfter(fiveMonthsAgo))
-                    .collect(Collectors.toCollection(ArrayList::new));
-
-            long monthsSinceJoining = ChronoUnit.MONTHS.between(
-                    customer.getDateOfJoining().toInstant()
-                            .atZone(ZoneId.systemDefault())
-                            .toLocalDate(),
-                    LocalDate.now()
-            );
-
-            double orderFrequency = monthsSinceJoining > 0
-                    ? (double) customer.getOrders().size() / monthsSinceJoining
-                    : customer.getOrders().size();
-
-            return CustomerDTO.builder()
-                    .id(customer.getId().toString())
-                    .orgId(customer.getOrgId().toString())
-                    .customerId(customer.getCustomerId())
-                    .name(customer.getName())
-                    .phone(customer.getPhone())
-                    .email(customer.getEmail())
-                    .address(customer.getAddress())
-                    .status(customer.getStatus())
-                    .orders(customer.getOrders())
-                    .satisfactionLevel(customer.getSatisfactionLevel())
-                    .preferredCategories(customer.getPreferredCategories())
-                    .gstNo(customer.getGstNo())
-                    .dateOfJoining(customer.getDateOfJoining())
-                    .totalOrderValue(totalOrderValue)
-                    .lastOrderDate(lastOrderDate)
-                    .lastFiveMonthsOrders(lastFiveMonthsOrders)
-                    .orderFrequency(orderFrequency)
-                    .build();
-        }).collect(Collectors.toList());
+    private List<CustomerDTO> toDTOs(List<Customer> customers, Date recentSince) {
+        LocalDate today = LocalDate.now();
+        return customers.stream()
+                .map(customer -> toDTO(customer, recentSince, today))
+                .collect(Collectors.toList());
     }
 
 
+    // The customer document only holds the latest orders, the full history is read from the orders
+    // collection off the (orgId, customerId, orderDate) index
     public CustomerDTO getCustomerByOrgAndId(ObjectId orgId, ObjectId id) {
         Customer customer = customerRepository.findByOrgIdAndId(orgId, id)
                 .orElseThrow(() -> new RuntimeException("Customer Not Found!"));
 
-        double totalOrderValue = customer.getOrders().stream()
-                .mapToDouble(CustomerOrder::getTotalAmount)
-                .sum();
-
-        Date lastOrderDate = customer.getOrders().stream()
-                .map(CustomerOrder::getOrderDate).
-                max(Date::compareTo).
-                orElse(null);
+        CustomerDTO customerDTO = toDTO(customer, recentOrdersSince(), LocalDate.now());
+        customerDTO.setOrders(orderHistory(orgId, customer.getCustomerId()));
+        return customerDTO;
+    }
 
-        LocalDate fiveMonthsAgo = LocalDate.now().minusMonths(5);
-        ArrayList<CustomerOrder> lastFiveMonthsOrders = customer.getOrders().stream()
-                .filter(o -> o.getOrderDate().toInstant()
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDate()
-                        .isAfter(fiveMonthsAgo))
+    private ArrayList<CustomerOrder> orderHistory(ObjectId orgId, String customerId) {
+        Query query = Query.query(Criteria.where("orgId").is(orgId).and("customerId").is(customerId))
+                .with(Sort.by("orderDate"));
+        query.fields().include("orderId", "orderDate", "status", "totalAmount");
+        return mongoTemplate.find(query, Order.class).stream()
+                .map(CustomerService::toCustomerOrder)
                 .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    // The order totals are stored on the customer, so building the DTO only walks back over the
+    // orders of the last five months instead of the whole order history.
+    private CustomerDTO toDTO(Customer customer, Date recentSince, LocalDate today) {
+        ArrayList<CustomerOrder> orders = customer.getOrders() != null ? customer.getOrders() : new ArrayList<>();
+        int first = orders.size();
+        while (first > 0 && !orders.get(first - 1).getOrderDate().before(recentSince)) {
+            first--;
+        }
+        ArrayList<CustomerOrder> lastFiveMonthsOrders = new ArrayList<>(orders.subList(first, orders.size()));
 
         long monthsSinceJoining = ChronoUnit.MONTHS.between(
                 customer.getDateOfJoining().toInstant()
                         .atZone(ZoneId.systemDefault())
                         .toLocalDate(),
-                LocalDate.now()
+                today
         );
 
         double orderFrequency = monthsSinceJoining > 0
-                ? (double) customer.getOrders().size() / monthsSinceJoining
-                : customer.getOrders().size();
+                ? (double) customer.getOrderCount() / monthsSinceJoining
+                : customer.getOrderCount();
 
-        return CustomerDTO.builder().id(customer.getId().toString())
+        return CustomerDTO.builder()
+                .id(customer.getId().toString())
                 .orgId(customer.getOrgId().toString())
                 .customerId(customer.getCustomerId())
                 .name(customer.getName())
@@ -119,97 +135,290 @@ public class CustomerService {
                 .email(customer.getEmail())
                 .address(customer.getAddress())
                 .status(customer.getStatus())
-                .orders(customer.getOrders())
+                .orderCount(customer.getOrderCount())
                 .satisfactionLevel(customer.getSatisfactionLevel())
                 .preferredCategories(customer.getPreferredCategories())
                 .gstNo(customer.getGstNo())
                 .dateOfJoining(customer.getDateOfJoining())
-                .totalOrderValue(totalOrderValue)
-                .lastOrderDate(lastOrderDate)
+                .totalOrderValue(customer.getTotalOrderValue())
+                .lastOrderDate(customer.getLastOrderDate())
                 .lastFiveMonthsOrders(lastFiveMonthsOrders)
-                .orderFrequency(orderFrequency).build();
+                .orderFrequency(orderFrequency)
+                .build();
     }
 
-    private String generateCustomerId(ObjectId orgId) {
-        List<Customer> customers = customerRepository.findByOrgId(orgId);
-
-        if (customers.isEmpty()) return "CUST-001";
-
-        int maxId = customers.stream()
-                .map(Customer::getCustomerId)
-                .filter(id -> id != null && id.startsWith("CUST-"))
-                .map(id -> id.substring(5)) // remove "CUST-"
-                .filter(num -> num.matches("\\d+")) // keep only numeric parts
-                .mapToInt(Integer::parseInt)
-                .max()
-                .orElse(0);
-        System.out.println(maxId);
-
-        int nextId = maxId + 1;
-
-        return String.format("CUST-%03d", nextId);
+    // Orders placed on a later calendar day than five months ago count as recent.
+    private Date recentOrdersSince() {
+        LocalDate fiveMonthsAgo = LocalDate.now().minusMonths(5);
+        return Date.from(fiveMonthsAgo.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
     }
 
     public Customer createCustomer(Customer customer) {
-        if (customer.getId() != null && customerRepository.existsById(customer.getId())) {
-            throw new RuntimeException("Customer with the same id already exists!");
-        }
+        customer.setCustomerId(sequenceService.nextId(customer.getOrgId(), Sequence.Type.CUSTOMER));
 
-        if (customer.getEmail() != null && customerRepository.existsByEmail(customer.getEmail())) {
-            throw new RuntimeException("Customer with the same email already exists!");
+        customer.setSatisfactionLevel(new ArrayList<>());
+        summarizeOrders(customer);
+        Customer savedCustomer;
+        try {
+            savedCustomer = customerRepository.insert(customer);
+        } catch (DuplicateKeyException e) {
+            throw conflict(e);
         }
+        organizationService.incrementCount(savedCustomer.getOrgId(), Organization.Counter.CUSTOMERS, 1);
+        savedCustomer.setChangeVersion(changeVersionService.stamp(savedCustomer.getOrgId(), Customer.class, savedCustomer.getId()));
+        changeFeedService.publish(savedCustomer.getOrgId(), ChangeEvent.Entity.CUSTOMER, ChangeEvent.Action.CREATED, savedCustomer.getId(), savedCustomer.getChangeVersion());
+        return savedCustomer;
+    }
 
-        if (customer.getPhone() != null && customerRepository.existsByPhone(customer.getPhone())) {
-            throw new RuntimeException("Customer with the same phone number already exists!");
+    public Customer updateCustomerForOrg(ObjectId orgId, ObjectId id, Customer customer) {
+        if (id == null) {
+            throw new RuntimeException("Customer ID must be provided for update!");
         }
 
-        if (customer.getGstNo() != null && customerRepository.existsByGstNo(customer.getGstNo())) {
-            throw new RuntimeException("Customer with the same GST number already exists!");
+        Update update = new Update();
+        if (customer.getName() != null) update.set("name", customer.getName());
+        if (customer.getPhone() != null) update.set("phone", customer.getPhone());
+        if (customer.getAddress() != null) update.set("address", customer.getAddress());
+        if (customer.getEmail() != null) update.set("email", customer.getEmail());
+        if (customer.getStatus() != null) update.set("status", customer.getStatus());
+        if (customer.getGstNo() != null) update.set("gstNo", customer.getGstNo());
+        // The orders are maintained by OrderService. A request body without orders deserializes to an
+        // empty list, so only an explicit list replaces them, together with the totals.
+        if (customer.getOrders() != null && !customer.getOrders().isEmpty()) {
+            summarizeOrders(customer);
+            update.set("orders", customer.getOrders())
+                    .set("orderCount", customer.getOrderCount())
+                    .set("totalOrderValue", customer.getTotalOrderValue())
+                    .set("lastOrderDate", customer.getLastOrderDate());
         }
 
-        customer.setCustomerId(generateCustomerId(customer.getOrgId()));
+        Query query = Query.query(Criteria.where("_id").is(id).and("orgId").is(orgId));
+        Customer updatedCustomer;
+        try {
+            updatedCustomer = update.getUpdateObject().isEmpty()
+                    ? mongoTemplate.findOne(query, Customer.class)
+                    : mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Customer.class);
+        } catch (DuplicateKeyException e) {
+            throw conflict(e);
+        }
+        if (updatedCustomer == null) {
+            throw new RuntimeException("Customer not found!");
+        }
+        if (!update.getUpdateObject().isEmpty()) {
+            updatedCustomer.setChangeVersion(changeVersionService.stamp(orgId, Customer.class, id));
+        }
+        changeFeedService.publish(orgId, ChangeEvent.Entity.CUSTOMER, ChangeEvent.Action.UPDATED, id, updatedCustomer.getChangeVersion());
+        return updatedCustomer;
+    }
 
-        customer.setSatisfactionLevel(new ArrayList<>());
-        return customerRepository.save(customer);
+    private DuplicateKeyException conflict(DuplicateKeyException e) {
+        String message = switch (DuplicateKeys.index(e)) {
+            case "org_email" -> "Customer with the same email already exists!";
+            case "org_phone" -> "Customer with the same phone number already exists!";
+            case "org_gst_no" -> "Customer with the same GST number already exists!";
+            default -> "Customer with the same id already exists!";
+        };
+        return new DuplicateKeyException(message, e);
     }
 
-    public Customer updateCustomerForOrg(ObjectId orgId, ObjectId id, Customer customer) {
-        if (id == null) {
-            throw new RuntimeException("Customer ID must be provided for update!");
+    public void deleteCustomerForOrg(ObjectId orgId, ObjectId id) {
+        if (!customerRepository.existsByOrgIdAndId(orgId, id)) {
+            throw new RuntimeException("Customer not found!");
         }
-
-        Customer existingCustomer = customerRepository.findByOrgIdAndId(orgId, id)
-                .orElseThrow(() -> new RuntimeException("Customer not found!"));
-
-        if (customer.getName() != null) {
-            existingCustomer.setName(customer.getName());
+        if (customerRepository.deleteByOrgIdAndId(orgId, id) > 0) {
+            organizationService.incrementCount(orgId, Organization.Counter.CUSTOMERS, -1);
+            long version = changeVersionService.recordDeletion(orgId, ChangeEvent.Entity.CUSTOMER, id);
+            changeFeedService.publish(orgId, ChangeEvent.Entity.CUSTOMER, ChangeEvent.Action.DELETED, id, version);
         }
-        if (customer.getPhone() != null) {
-            existingCustomer.setPhone(customer.getPhone());
+    }
+
+    // Adds a new order to the customer's window of latest orders, dropping the oldest one once the
+    // window is full, and folds it into the totals in the same write.
+    public void recordOrder(ObjectId orgId, String customerId, CustomerOrder order) {
+        Update update = new Update();
+        update.push("orders").sort(Sort.by("orderDate")).slice(-recentOrders).each(order);
+        update.inc("orderCount", 1)
+                .inc("totalOrderValue", order.getTotalAmount())
+                .max("lastOrderDate", order.getOrderDate());
+        if (mongoTemplate.updateFirst(customerQuery(orgId, customerId), update, Customer.class).getModifiedCount() > 0) {
+            changeVersionService.stamp(orgId, Customer.class, customerQuery(orgId, customerId));
         }
-        if (customer.getAddress() != null) {
-            existingCustomer.setAddress(customer.getAddress());
+    }
+
+    // Rewrites the customer's copy of an order in place and moves the total by the difference. An
+    // order that has already left the window of latest orders only moves the totals.
+    public void updateOrder(ObjectId orgId, String customerId, CustomerOrder order, double previousAmount) {
+        Query query = Query.query(Criteria.where("orgId").is(orgId)
+                .and("customerId").is(customerId)
+                .and("orders.orderId").is(order.getOrderId()));
+        Update update = new Update()
+                .set("orders.$.status", order.getStatus())
+                .set("orders.$.orderDate", order.getOrderDate())
+                .set("orders.$.totalAmount", order.getTotalAmount())
+                .inc("totalOrderValue", order.getTotalAmount() - previousAmount)
+                .max("lastOrderDate", order.getOrderDate());
+        UpdateResult result = mongoTemplate.updateFirst(query, update, Customer.class);
+        if (result.getMatchedCount() == 0) {
+            Update totals = new Update()
+                    .inc("totalOrderValue", order.getTotalAmount() - previousAmount)
+                    .max("lastOrderDate", order.getOrderDate());
+            result = mongoTemplate.updateFirst(customerQuery(orgId, customerId), totals, Customer.class);
         }
-        if (customer.getEmail() != null) {
-            existingCustomer.setEmail(customer.getEmail());
+        if (result.getModifiedCount() > 0) {
+            changeVersionService.stamp(orgId, Customer.class, customerQuery(orgId, customerId));
         }
-        if (customer.getStatus() != null) {
-            existingCustomer.setStatus(customer.getStatus());
+    }
+
+    public void removeOrder(ObjectId orgId, String customerId, CustomerOrder order) {
+        if (pullOrder(orgId, customerId, order)) {
+            changeVersionService.stamp(orgId, Customer.class, customerQuery(orgId, customerId));
         }
-        if (customer.getGstNo() != null) {
-            existingCustomer.setGstNo(customer.getGstNo());
+    }
+
+    // Called once the order is gone from the orders collection or moved to another customer. false
+    // when the customer doesn't exist. The order is pulled from the window if it's still in it; one
+    // that already left the window only comes off the totals.
+    private boolean pullOrder(ObjectId orgId, String customerId, CustomerOrder order) {
+        Update update = new Update()
+                .pull("orders", Query.query(Criteria.where("orderId").is(order.getOrderId())).getQueryObject())
+                .inc("orderCount", -1)
+                .inc("totalOrderValue", -order.getTotalAmount());
+        if (mongoTemplate.updateFirst(customerQuery(orgId, customerId), update, Customer.class).getModifiedCount() == 0) return false;
+
+        // Only the latest order moves lastOrderDate back, to the date of what is now the last order.
+        // The filter on the old date keeps a newer order recorded in the meantime from being undone.
+        Query latest = customerQuery(orgId, customerId);
+        latest.fields().include("lastOrderDate");
+        Customer customer = mongoTemplate.findOne(latest, Customer.class);
+        if (customer == null || customer.getLastOrderDate() == null
+                || customer.getLastOrderDate().after(order.getOrderDate())) return true;
+
+        // The window may be empty with older orders left, so the last one is looked up in the orders
+        Query lastOrder = customerQuery(orgId, customerId).with(Sort.by(Sort.Direction.DESC, "orderDate")).limit(1);
+        lastOrder.fields().include("orderDate");
+        Order last = mongoTemplate.findOne(lastOrder, Order.class);
+        Date lastOrderDate = last != null ? last.getOrderDate() : null;
+        Query unchanged = customerQuery(orgId, customerId)
+                .addCriteria(Criteria.where("lastOrderDate").is(customer.getLastOrderDate()));
+        mongoTemplate.updateFirst(unchanged, new Update().set("lastOrderDate", lastOrderDate), Customer.class);
+        return true;
+    }
+
+    // Rebuilds every customer's window of latest orders and totals from the orders collection and rewrites the
+    // ones that have drifted, e.g. after a failed write between an order and its customer. Customers
+    // and orders are both read once, in (orgId, customerId) order off their indexes, and matched up
+    // as they stream past.
+    @Scheduled(cron = "${nightshift.customers.metrics-rebuild-cron:0 0 3 * * *}")
+    public int rebuildOrderMetrics() {
+        int rebuilt = 0;
+        Query customerQuery = new Query().with(Sort.by("orgId", "customerId"));
+        customerQuery.fields().include("orgId", "customerId", "orders", "orderCount", "totalOrderValue", "lastOrderDate");
+        Query orderQuery = new Query().with(Sort.by("orgId", "customerId"));
+        orderQuery.fields().include("orgId", "customerId", "orderId", "orderDate", "status", "totalAmount");
+        try (Stream<Customer> customers = mongoTemplate.stream(customerQuery, Customer.class);
+             Stream<Order> orderStream = mongoTemplate.stream(orderQuery, Order.class)) {
+            Iterator<Order> orders = orderStream.iterator();
+            Order next = orders.hasNext() ? orders.next() : null;
+            for (Customer customer : (Iterable<Customer>) customers::iterator) {
+                // Orders of customers that no longer exist
+                while (next != null && compare(next, customer) < 0) next = orders.hasNext() ? orders.next() : null;
+
+                ArrayList<CustomerOrder> customerOrders = new ArrayList<>();
+                while (next != null && compare(next, customer) == 0) {
+                    customerOrders.add(toCustomerOrder(next));
+                    next = orders.hasNext() ? orders.next() : null;
+                }
+
+                Customer expected = Customer.builder().orders(customerOrders).build();
+                summarizeOrders(expected);
+                if (sameOrders(customer, expected)) continue;
+
+                // Only if no order was recorded, changed or removed since the customer was read,
+                // otherwise the next run picks it up
+                Query unchanged = Query.query(Criteria.where("_id").is(customer.getId())
+                        .and("orderCount").is(customer.getOrderCount())
+                        .and("totalOrderValue").is(customer.getTotalOrderValue())
+                        .and("lastOrderDate").is(customer.getLastOrderDate()));
+                Update update = new Update()
+                        .set("orders", expected.getOrders())
+                        .set("orderCount", expected.getOrderCount())
+                        .set("totalOrderValue", expected.getTotalOrderValue())
+                        .set("lastOrderDate", expected.getLastOrderDate());
+                if (mongoTemplate.updateFirst(unchanged, update, Customer.class).getModifiedCount() == 0) continue;
+                changeVersionService.stamp(customer.getOrgId(), Customer.class, customer.getId());
+                rebuilt++;
+            }
         }
-        if (customer.getOrders() != null) {
-            existingCustomer.setOrders(customer.getOrders());
+        if (rebuilt > 0) log.info("Rebuilt the order metrics of {} customers", rebuilt);
+        return rebuilt;
+    }
+
+    // In the order both streams are sorted in
+    private static int compare(Order order, Customer customer) {
+        int org = Objects.compare(order.getOrgId(), customer.getOrgId(), Comparator.nullsFirst(Comparator.naturalOrder()));
+        if (org != 0) return org;
+        return Objects.compare(order.getCustomerId(), customer.getCustomerId(), Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    // Fills in the order totals of customers stored before they were maintained, from the orders
+    // already embedded in them, and cuts those down to the window.
+    public int migrateOrderMetrics() {
+        Query query = Query.query(Criteria.where("orderCount").exists(false));
+        query.fields().include("orders");
+        List<Customer> customers = mongoTemplate.find(query, Customer.class);
+        for (Customer customer : customers) {
+            summarizeOrders(customer);
+            Update update = new Update()
+                    .set("orders", customer.getOrders())
+                    .set("orderCount", customer.getOrderCount())
+                    .set("totalOrderValue", customer.getTotalOrderValue())
+                    .set("lastOrderDate", customer.getLastOrderDate());
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(customer.getId())), update, Customer.class);
         }
+        return customers.size();
+    }
 
-        return customerRepository.save(existingCustomer);
+    public static CustomerOrder toCustomerOrder(Order order) {
+        return CustomerOrder.builder()
+                .orderId(order.getOrderId())
+                .orderDate(order.getOrderDate())
+                .status(order.getStatus())
+                .totalAmount(order.getTotalAmount())
+                .build();
     }
 
-    public void deleteCustomerForOrg(ObjectId orgId, ObjectId id) {
-        if (!customerRepository.existsByOrgIdAndId(orgId, id)) {
-            throw new RuntimeException("Customer not found!");
+    // Totals over all the given orders, of which only the latest are kept on the customer
+    private void summarizeOrders(Customer customer) {
+        ArrayList<CustomerOrder> orders = customer.getOrders() != null ? customer.getOrders() : new ArrayList<>();
+        orders.sort(Comparator.comparing(CustomerOrder::getOrderDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+        customer.setOrders(new ArrayList<>(orders.subList(Math.max(0, orders.size() - recentOrders), orders.size())));
+        customer.setOrderCount(orders.size());
+        customer.setTotalOrderValue(orders.stream().mapToDouble(CustomerOrder::getTotalAmount).sum());
+        customer.setLastOrderDate(orders.isEmpty() ? null : orders.get(orders.size() - 1).getOrderDate());
+    }
+
+    private boolean sameOrders(Customer customer, Customer expected) {
+        List<CustomerOrder> actual = customer.getOrders() != null ? customer.getOrders() : new ArrayList<>();
+        if (customer.getOrderCount() != expected.getOrderCount()
+                || Math.abs(customer.getTotalOrderValue() - expected.getTotalOrderValue()) > 0.005
+                || !Objects.equals(customer.getLastOrderDate(), expected.getLastOrderDate())
+                || actual.size() != expected.getOrders().size()) {
+            return false;
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            CustomerOrder a = actual.get(i);
+            CustomerOrder e = expected.getOrders().get(i);
+            if (!Objects.equals(a.getOrderId(), e.getOrderId())
+                    || a.getStatus() != e.getStatus()
+                    || !Objects.equals(a.getOrderDate(), e.getOrderDate())
+                    || a.getTotalAmount() != e.getTotalAmount()) {
+                return false;
+            }
         }
-        customerRepository.deleteByOrgIdAndId(orgId, id);
+        return true;
+    }
+
+    private Query customerQuery(ObjectId orgId, String customerId) {
+        return Query.query(Criteria.where("orgId").is(orgId).and("customerId").is(customerId));
     }
 }
@@ -0,0 +1,648 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.config.MongoIndexConfig;
+import com.anujsamdariya07.nightshiftInventory.entity.Customer;
+import com.anujsamdariya07.nightshiftInventory.entity.CustomerOrder;
+import com.anujsamdariya07.nightshiftInventory.entity.Employee;
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.Order;
+import com.anujsamdariya07.nightshiftInventory.entity.OrderItem;
+import com.anujsamdariya07.nightshiftInventory.entity.Organization;
+import com.anujsamdariya07.nightshiftInventory.entity.RestockItem;
+import com.anujsamdariya07.nightshiftInventory.entity.Sequence;
+import com.anujsamdariya07.nightshiftInventory.entity.StockMovement;
+import com.anujsamdariya07.nightshiftInventory.entity.UpdateHistory;
+import com.anujsamdariya07.nightshiftInventory.entity.Vendor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Fills the database with large synthetic tenants for scale testing, see DataGeneratorConfig. Orders
+// are generated in date order and replayed against a running stock level per item, so everything
+// that derives from them agrees with them the way it would after the same requests through the API:
+// the stock ledger holds an ORDER entry per order line and a REPLENISHMENT entry per restock, every
+// restock is also in its vendor's replenishment history, the final item quantities are what the
+// ledger adds up to, and each customer's totals and window of latest orders match the orders collection.
+//
+// Item popularity is Zipfian and customers are skewed the same way, more mildly. Order dates follow
+// a growth trend, a yearly season peaking in late November and a weekly cycle with quiet weekends.
+@Slf4j
+@Service
+@Profile("generate")
+public class DataGeneratorService {
+    private static final String[] ITEM_KINDS = {"Bolt", "Nut", "Washer", "Cable", "Bearing", "Valve", "Filter",
+            "Gasket", "Sensor", "Switch", "Relay", "Fuse", "Hose", "Clamp", "Spring", "Pulley"};
+    private static final String[] ITEM_SIZES = {"XS", "S", "M", "L", "XL"};
+    private static final String[] DEPARTMENTS = {"Warehouse", "Sales", "Purchasing", "Dispatch", "Accounts"};
+    // Share of orders with 1, 2, 3, 4 and 5 lines
+    private static final double[] LINE_COUNTS = {0.35, 0.30, 0.20, 0.10, 0.05};
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private MongoIndexConfig mongoIndexConfig;
+
+    @Value("${nightshift.generator.orgs:1}")
+    private int orgs;
+    @Value("${nightshift.generator.items:2000}")
+    private int items;
+    @Value("${nightshift.generator.vendors:50}")
+    private int vendors;
+    @Value("${nightshift.generator.customers:20000}")
+    private int customers;
+    @Value("${nightshift.generator.employees:50}")
+    private int employees;
+    @Value("${nightshift.generator.orders:1000000}")
+    private int orders;
+    @Value("${nightshift.generator.months:24}")
+    private int months;
+    @Value("${nightshift.generator.item-skew:1.0}")
+    private double itemSkew;
+    @Value("${nightshift.generator.customer-skew:0.6}")
+    private double customerSkew;
+    @Value("${nightshift.generator.password:generated-password}")
+    private String password;
+    @Value("${nightshift.generator.seed:42}")
+    private long seed;
+    @Value("${nightshift.generator.batch-size:5000}")
+    private int batchSize;
+    @Value("${nightshift.generator.threads:8}")
+    private int threads;
+    // The same window CustomerService keeps
+    @Value("${nightshift.customers.recent-orders:100}")
+    private int recentOrders;
+
+    public void generate() {
+        if (items < 1 || vendors < 1 || customers < 1 || orders < 0) {
+            throw new RuntimeException("The generator needs at least one item, vendor and customer per org!");
+        }
+        log.info("Generating {} orgs of {} items, {} vendors, {} customers, {} employees and {} orders over {} months",
+                orgs, items, vendors, customers, employees, orders, months);
+
+        // Hashed once, every generated login shares the password
+        String passwordHash = passwordEncoder.encode(password);
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+
+        Inserter inserter = new Inserter();
+        try {
+            for (int org = 0; org < orgs; org++) {
+                long start = System.nanoTime();
+                String admin = new Tenant(org, runId, passwordHash, new SplittableRandom(seed + org), inserter).generate();
+                inserter.await();
+                log.info("Org {} of {} done in {}s, log in as {} with the generator password",
+                        org + 1, orgs, (System.nanoTime() - start) / 1_000_000_000, admin);
+            }
+        } finally {
+            inserter.shutdown();
+        }
+
+        // Building the indexes once the data is in is much faster than maintaining them during the load
+        log.info("Creating indexes");
+        mongoIndexConfig.createIndexes();
+    }
+
+    // One organization being generated
+    private class Tenant {
+        private final int index;
+        private final String suffix;
+        private final String passwordHash;
+        private final SplittableRandom random;
+        private final Inserter inserter;
+        private final ObjectId orgId = new ObjectId();
+        private final long now = System.currentTimeMillis();
+        private final long firstDay = LocalDate.now().minusMonths(months).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        private final List<Employee> staff = new ArrayList<>();
+        private final List<Vendor> vendorList = new ArrayList<>();
+        private final List<Customer> customerList = new ArrayList<>();
+        private final List<Item> itemList = new ArrayList<>();
+        private double[] prices;
+        private int[] itemVendor;
+        private int[] reorderQuantity;
+        private long[] stock;
+        private long[] lastUpdate;
+
+        private List<Order> orderBatch = new ArrayList<>();
+        private List<StockMovement> movementBatch = new ArrayList<>();
+
+        private Tenant(int index, String runId, String passwordHash, SplittableRandom random, Inserter inserter) {
+            this.index = index;
+            this.suffix = runId + "-" + index;
+            this.passwordHash = passwordHash;
+            this.random = random;
+            this.inserter = inserter;
+        }
+
+        private String generate() {
+            String adminEmail = "admin-" + suffix + "@generated.local";
+            String orgName = "Generated Org " + suffix;
+
+            Employee admin = Employee.builder()
+                    .id(new ObjectId())
+                    .orgId(orgId)
+                    .orgName(orgName)
+                    .employeeId("ADMIN-" + now)
+                    .name(orgName + " Admin")
+                    .email(adminEmail)
+                    .password(passwordHash)
+                    .mustChangePassword(false)
+                    .role(Employee.Role.ADMIN)
+                    .department("Administration")
+                    .status(Employee.EmployeeStatus.ACTIVE)
+                    .hireDate(new Date(firstDay))
+                    .experience(0)
+                    .salary(new BigDecimal("0.00"))
+                    .skills(new ArrayList<>())
+                    .build();
+            staff.add(admin);
+            employees(orgName);
+            vendors();
+            items();
+            customers();
+
+            int[] customerOf = new int[orders];
+            double[] totals = new double[orders];
+            long[] dates = orderDates();
+            orders(dates, customerOf, totals);
+
+            finishItems();
+            inserter.insert(itemList, Item.class);
+            inserter.insert(vendorList, Vendor.class);
+            inserter.insert(staff, Employee.class);
+            finishCustomers(dates, customerOf, totals);
+
+            mongoTemplate.insert(Organization.builder()
+                    .id(orgId)
+                    .name(orgName)
+                    .mobileNo(phone(0))
+                    .email(adminEmail)
+                    .gstNo("GEN" + suffix.toUpperCase())
+                    .address(index + " Generated Street")
+                    .employeeCount(staff.size())
+                    .orderCount(orders)
+                    .customerCount(customers)
+                    .itemCount(items)
+                    .vendorCount(vendors)
+                    .build());
+            sequence(Sequence.Type.ITEM, items);
+            sequence(Sequence.Type.ORDER, orders);
+            sequence(Sequence.Type.CUSTOMER, customers);
+            sequence(Sequence.Type.VENDOR, vendors);
+            sequence(Sequence.Type.EMPLOYEE, Sequence.Type.EMPLOYEE.getFloor() + employees);
+            return adminEmail;
+        }
+
+        private void employees(String orgName) {
+            List<String> managers = new ArrayList<>();
+            for (int i = 0; i < employees; i++) {
+                boolean manager = i % 10 == 0;
+                String employeeId = Sequence.Type.EMPLOYEE.format(Sequence.Type.EMPLOYEE.getFloor() + i + 1);
+                String managerId = manager || managers.isEmpty() ? null : managers.get(random.nextInt(managers.size()));
+                staff.add(Employee.builder()
+                        .id(new ObjectId())
+                        .orgId(orgId)
+                        .orgName(orgName)
+                        .employeeId(employeeId)
+                        .name("Employee " + (i + 1))
+                        .email("employee-" + i + "-" + suffix + "@generated.local")
+                        .password(passwordHash)
+                        .mustChangePassword(false)
+                        .role(manager ? Employee.Role.MANAGER : Employee.Role.WORKER)
+                        .department(DEPARTMENTS[i % DEPARTMENTS.length])
+                        .phone(phone(30_000 + i))
+                        .status(Employee.EmployeeStatus.ACTIVE)
+                        .attendance(80 + random.nextInt(21))
+                        .hireDate(new Date(firstDay - random.nextLong(5L * 365 * 86_400_000)))
+                        .experience(random.nextInt(15))
+                        .salary(BigDecimal.valueOf(20_000 + random.nextInt(80_000)))
+                        .managerId(managerId)
+                        .skills(new ArrayList<>())
+                        .build());
+                if (manager) managers.add(employeeId);
+            }
+        }
+
+        private void vendors() {
+            for (int i = 0; i < vendors; i++) {
+                vendorList.add(Vendor.builder()
+                        .id(new ObjectId())
+                        .orgId(orgId)
+                        .vendorId(Sequence.Type.VENDOR.format(i + 1))
+                        .name("Vendor " + (i + 1))
+                        .email("vendor-" + i + "-" + suffix + "@generated.local")
+                        .phone(phone(10_000 + i))
+                        .address((i + 1) + " Supplier Park")
+                        .specialities(new ArrayList<>(List.of(ITEM_KINDS[i % ITEM_KINDS.length])))
+                        .replenishmentHistory(new ArrayList<>())
+                        .rating(new ArrayList<>())
+                        .onTimeDelivery(new ArrayList<>())
+                        .responseTime(new ArrayList<>())
+                        .build());
+            }
+        }
+
+        // Items start with a first delivery from their vendor on the first day, as createItem records it
+        private void items() {
+            prices = new double[items];
+            itemVendor = new int[items];
+            reorderQuantity = new int[items];
+            stock = new long[items];
+            lastUpdate = new long[items];
+
+            double[] popularity = zipfWeights(items, itemSkew);
+            double unitsPerLine = 2.0;
+            double linesPerOrder = 0;
+            for (int i = 0; i < LINE_COUNTS.length; i++) linesPerOrder += (i + 1) * LINE_COUNTS[i];
+
+            for (int i = 0; i < items; i++) {
+                String name = ITEM_KINDS[i % ITEM_KINDS.length] + " " + ITEM_SIZES[(i / ITEM_KINDS.length) % ITEM_SIZES.length] + " " + (i + 1);
+                prices[i] = Math.round((5 + random.nextDouble() * 495) * 100) / 100.0;
+                itemVendor[i] = random.nextInt(vendors);
+                int threshold = 10 + random.nextInt(41);
+                // Enough for about two months of this item's expected demand
+                double monthlyDemand = orders * linesPerOrder * unitsPerLine * popularity[i] / Math.max(months, 1);
+                reorderQuantity[i] = (int) Math.max(3 * threshold, Math.min(Integer.MAX_VALUE / 4, 2 * monthlyDemand));
+
+                Item item = Item.builder()
+                        .id(new ObjectId())
+                        .orgId(orgId)
+                        .itemId(Sequence.Type.ITEM.format(i + 1))
+                        .name(name)
+                        .threshold(threshold)
+                        .build();
+                itemList.add(item);
+                restock(i, reorderQuantity[i], firstDay);
+            }
+        }
+
+        private void customers() {
+            for (int i = 0; i < customers; i++) {
+                customerList.add(Customer.builder()
+                        .id(new ObjectId())
+                        .orgId(orgId)
+                        .customerId(Sequence.Type.CUSTOMER.format(i + 1))
+                        .name("Customer " + (i + 1))
+                        .phone(phone(100_000 + i))
+                        .email("customer-" + i + "-" + suffix + "@generated.local")
+                        .address((i + 1) + " Market Road")
+                        .build());
+            }
+        }
+
+        private long[] orderDates() {
+            int days = (int) Math.max(1, (now - firstDay) / 86_400_000);
+            double[] cumulative = new double[days];
+            LocalDate day = LocalDate.ofInstant(new Date(firstDay).toInstant(), ZoneId.systemDefault());
+            double sum = 0;
+            for (int d = 0; d < days; d++, day = day.plusDays(1)) {
+                double trend = 0.6 + 0.4 * d / days;
+                double season = 1 + 0.3 * Math.cos(2 * Math.PI * (day.getDayOfYear() - 330) / 365.0);
+                double week = day.getDayOfWeek() == DayOfWeek.SUNDAY ? 0.4 : day.getDayOfWeek() == DayOfWeek.SATURDAY ? 0.7 : 1.0;
+                sum += trend * season * week;
+                cumulative[d] = sum;
+            }
+
+            long[] dates = new long[orders];
+            for (int i = 0; i < orders; i++) {
+                int d = search(cumulative, random.nextDouble() * sum);
+                // Business hours, 9:00 to 19:00
+                dates[i] = firstDay + d * 86_400_000L + 9 * 3_600_000L + random.nextLong(10 * 3_600_000L);
+            }
+            Arrays.sort(dates);
+            for (int i = 0; i < orders; i++) dates[i] = Math.min(dates[i], now - 1);
+            return dates;
+        }
+
+        private void orders(long[] dates, int[] customerOf, double[] totals) {
+            double[] itemCdf = cumulative(zipfWeights(items, itemSkew));
+            double[] customerCdf = cumulative(zipfWeights(customers, customerSkew));
+            int[] itemRank = permutation(items);
+            int[] customerRank = permutation(customers);
+            int[] chosen = new int[LINE_COUNTS.length];
+            long progressStep = Math.max(1, orders / 10);
+
+            for (int i = 0; i < orders; i++) {
+                int customer = customerRank[search(customerCdf, random.nextDouble())];
+                customerOf[i] = customer;
+                // Orders are taken by the staff, or by the admin when there is none
+                Employee employee = staff.get(staff.size() > 1 ? 1 + random.nextInt(staff.size() - 1) : 0);
+                Customer buyer = customerList.get(customer);
+                String orderId = Sequence.Type.ORDER.format(i + 1);
+                long date = dates[i];
+
+                int lineCount = Math.min(lineCount(), items);
+                ArrayList<OrderItem> lines = new ArrayList<>(lineCount);
+                double total = 0;
+                for (int l = 0; l < lineCount; l++) {
+                    int item = pickDistinct(itemCdf, itemRank, chosen, l);
+                    chosen[l] = item;
+                    int quantity = 1 + (int) Math.min(9, -Math.log(1 - random.nextDouble()) * 1.5);
+                    // Reordered once the stock is half way below the threshold, so some items are
+                    // low at any given time without ever running out
+                    if (stock[item] - quantity < itemList.get(item).getThreshold() / 2) {
+                        restock(item, reorderQuantity[item], date - 60_000);
+                    }
+                    stock[item] -= quantity;
+                    lastUpdate[item] = date;
+
+                    lines.add(OrderItem.builder()
+                            .itemId(itemList.get(item).getItemId())
+                            .itemName(itemList.get(item).getName())
+                            .quantity(quantity)
+                            .priceAtOrder(prices[item])
+                            .build());
+                    // The same entry StockReservationService writes for an order line
+                    movement(StockMovement.builder()
+                            .itemId(itemList.get(item).getItemId())
+                            .vendorName("")
+                            .orderName("Order")
+                            .orderId(orderId)
+                            .quantityUpdated(quantity)
+                            .cost(prices[item])
+                            .updateType(UpdateHistory.UpdateTypes.ORDER)
+                            .date(new Date(date)));
+                    total += quantity * prices[item];
+                }
+                total = Math.round(total * 100) / 100.0;
+                totals[i] = total;
+
+                orderBatch.add(Order.builder()
+                        .id(new ObjectId(new Date(date)))
+                        .orgId(orgId)
+                        .customerId(buyer.getCustomerId())
+                        .customerName(buyer.getName())
+                        .employeeId(employee.getEmployeeId())
+                        .employeeName(employee.getName())
+                        .orderId(orderId)
+                        .items(lines)
+                        .totalAmount(total)
+                        .status(status(date))
+                        .orderDate(new Date(date))
+                        .deadline(new Date(date + 7 * 86_400_000L))
+                        .build());
+                if (orderBatch.size() >= batchSize) {
+                    inserter.insert(orderBatch, Order.class);
+                    orderBatch = new ArrayList<>();
+                }
+                if ((i + 1) % progressStep == 0) log.info("Org {}: {} of {} orders", index + 1, i + 1, orders);
+            }
+            inserter.insert(orderBatch, Order.class);
+            inserter.insert(movementBatch, StockMovement.class);
+            movementBatch = new ArrayList<>();
+        }
+
+        // A delivery from the item's vendor, recorded in the ledger and the vendor's history the way
+        // updateItemQuantityByVendor records it
+        private void restock(int item, int quantity, long date) {
+            Item target = itemList.get(item);
+            Vendor vendor = vendorList.get(itemVendor[item]);
+            double cost = Math.round(quantity * prices[item] * 60) / 100.0;
+
+            vendor.getReplenishmentHistory().add(RestockItem.builder()
+                    .itemId(target.getItemId())
+                    .itemName(target.getName())
+                    .quantity(quantity)
+                    .cost(cost)
+                    .build());
+            vendor.setTotalRestocks(vendor.getTotalRestocks() + 1);
+            vendor.setTotalValue(vendor.getTotalValue() + cost);
+
+            movement(StockMovement.builder()
+                    .itemId(target.getItemId())
+                    .vendorName(vendor.getName())
+                    .vendorId(vendor.getVendorId())
+                    .quantityUpdated(quantity)
+                    .cost(cost)
+                    .updateType(UpdateHistory.UpdateTypes.REPLENISHMENT)
+                    .date(new Date(date)));
+            stock[item] += quantity;
+            lastUpdate[item] = date;
+        }
+
+        private void movement(StockMovement.StockMovementBuilder movement) {
+            movementBatch.add(movement.id(new ObjectId()).orgId(orgId).build());
+            if (movementBatch.size() >= batchSize) {
+                inserter.insert(movementBatch, StockMovement.class);
+                movementBatch = new ArrayList<>();
+            }
+        }
+
+        private void finishItems() {
+            for (int i = 0; i < items; i++) {
+                Item item = itemList.get(i);
+                item.setQuantity((int) stock[i]);
+                item.setLowStock(stock[i] <= item.getThreshold());
+                item.setLastDateOfUpdate(new Date(lastUpdate[i]));
+            }
+        }
+
+        // Groups the orders by customer (they stay in date order) and writes the customers with the
+        // same totals and window of latest orders CustomerService keeps. The totals are summed from the
+        // order arrays and only the window is built as summaries, and each customer is let go once
+        // its batch is handed to the inserter, so memory stays flat however many orders there are.
+        private void finishCustomers(long[] dates, int[] customerOf, double[] totals) {
+            int[] start = new int[customers + 1];
+            for (int i = 0; i < orders; i++) start[customerOf[i] + 1]++;
+            for (int c = 0; c < customers; c++) start[c + 1] += start[c];
+            int[] next = Arrays.copyOf(start, customers);
+            int[] byCustomer = new int[orders];
+            for (int i = 0; i < orders; i++) byCustomer[next[customerOf[i]]++] = i;
+
+            List<Customer> batch = new ArrayList<>();
+            for (int c = 0; c < customers; c++) {
+                Customer customer = customerList.set(c, null);
+                int count = start[c + 1] - start[c];
+                double value = 0;
+                for (int k = start[c]; k < start[c + 1]; k++) value += totals[byCustomer[k]];
+
+                ArrayList<CustomerOrder> summaries = new ArrayList<>(Math.min(count, recentOrders));
+                for (int k = Math.max(start[c], start[c + 1] - recentOrders); k < start[c + 1]; k++) {
+                    int i = byCustomer[k];
+                    summaries.add(CustomerOrder.builder()
+                            .orderId(Sequence.Type.ORDER.format(i + 1))
+                            .status(status(dates[i]))
+                            .orderDate(new Date(dates[i]))
+                            .totalAmount(totals[i])
+                            .build());
+                }
+                customer.setOrders(summaries);
+                customer.setOrderCount(count);
+                customer.setTotalOrderValue(Math.round(value * 100) / 100.0);
+                customer.setLastOrderDate(count == 0 ? null : new Date(dates[byCustomer[start[c + 1] - 1]]));
+                long firstOrder = count == 0 ? now : dates[byCustomer[start[c]]];
+                customer.setDateOfJoining(new Date(Math.max(firstDay, firstOrder - random.nextLong(30L * 86_400_000))));
+
+                batch.add(customer);
+                if (batch.size() >= Math.max(1, batchSize / 10)) {
+                    inserter.insert(batch, Customer.class);
+                    batch = new ArrayList<>();
+                }
+            }
+            inserter.insert(batch, Customer.class);
+        }
+
+        private Order.OrderStatus status(long date) {
+            long days = (now - date) / 86_400_000;
+            if (days >= 14) return Order.OrderStatus.DELIVERED;
+            if (days >= 7) return Order.OrderStatus.SHIPPED;
+            if (days >= 2) return Order.OrderStatus.PROCESSING;
+            return Order.OrderStatus.PENDING;
+        }
+
+        private int lineCount() {
+            double r = random.nextDouble();
+            for (int i = 0; i < LINE_COUNTS.length; i++) {
+                r -= LINE_COUNTS[i];
+                if (r < 0) return i + 1;
+            }
+            return LINE_COUNTS.length;
+        }
+
+        // An item not already on the order, popular items are drawn again a few times before falling
+        // back to the next free one
+        private int pickDistinct(double[] cdf, int[] rank, int[] chosen, int taken) {
+            int item = rank[search(cdf, random.nextDouble())];
+            for (int attempt = 0; attempt < 8 && contains(chosen, taken, item); attempt++) {
+                item = rank[search(cdf, random.nextDouble())];
+            }
+            while (contains(chosen, taken, item)) item = (item + 1) % items;
+            return item;
+        }
+
+        private int[] permutation(int size) {
+            int[] permutation = new int[size];
+            for (int i = 0; i < size; i++) permutation[i] = i;
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = permutation[i];
+                permutation[i] = permutation[j];
+                permutation[j] = swap;
+            }
+            return permutation;
+        }
+
+        private void sequence(Sequence.Type type, long value) {
+            mongoTemplate.insert(Sequence.builder()
+                    .id(orgId.toHexString() + ":" + type.getPrefix())
+                    .orgId(orgId)
+                    .prefix(type.getPrefix())
+                    .value(value)
+                    .build());
+        }
+
+        // Unique within the run and from one run to the next
+        private String phone(int entity) {
+            return String.format("%04d%03d%06d", now / 1000 % 10_000, index % 1000, entity);
+        }
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    private static double[] zipfWeights(int size, double skew) {
+        double[] weights = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            weights[i] = 1 / Math.pow(i + 1, skew);
+            sum += weights[i];
+        }
+        for (int i = 0; i < size; i++) weights[i] /= sum;
+        return weights;
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    // First index whose cumulative value is above the target
+    private static int search(double[] cumulative, double target) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > target) high = mid;
+            else low = mid + 1;
+        }
+        return low;
+    }
+
+    // Writes batches as unordered bulk inserts on a fixed pool. At most two batches per thread wait
+    // for a writer, so generation never runs more than that far ahead of the database.
+    private class Inserter {
+        private final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        private final Semaphore pending = new Semaphore(threads * 2);
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final AtomicLong written = new AtomicLong();
+
+        private <T> void insert(List<T> batch, Class<T> type) {
+            if (batch.isEmpty()) return;
+            rethrow();
+            pending.acquireUninterruptibly();
+            pool.execute(() -> {
+                try {
+                    mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type).insert(batch).execute();
+                    written.addAndGet(batch.size());
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    pending.release();
+                }
+            });
+        }
+
+        private void await() {
+            pending.acquireUninterruptibly(threads * 2);
+            pending.release(threads * 2);
+            rethrow();
+            log.info("{} documents written so far", written.get());
+        }
+
+        private void rethrow() {
+            RuntimeException e = failure.get();
+            if (e != null) throw new RuntimeException("Generated data could not be written!", e);
+        }
+
+        private void shutdown() {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
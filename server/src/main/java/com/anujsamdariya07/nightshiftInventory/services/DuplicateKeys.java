@@ -0,0 +1,20 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// The unique indexes do the duplicate checks, so a conflict surfaces as a duplicate key error on the
+// write. The server names the index that was hit in the error message, which says which field clashed.
+final class DuplicateKeys {
+    private static final Pattern INDEX = Pattern.compile("index: (\\S+)");
+
+    private DuplicateKeys() {
+    }
+
+    static String index(DuplicateKeyException e) {
+        Matcher matcher = INDEX.matcher(String.valueOf(e.getMessage()));
+        return matcher.find() ? matcher.group(1) : "";
+    }
+}
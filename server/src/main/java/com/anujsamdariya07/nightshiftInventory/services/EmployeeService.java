@@ -1,38 +1,60 @@
 package com.anujsamdariya07.nightshiftInventory.services;
 
-import com.anujsamdariya07.nightshiftInventory.controllers.CookieUtil;
 import com.anujsamdariya07.nightshiftInventory.entity.Customer;
 import com.anujsamdariya07.nightshiftInventory.entity.Employee;
+import com.anujsamdariya07.nightshiftInventory.entity.Organization;
+import com.anujsamdariya07.nightshiftInventory.entity.PerformanceReview;
+import com.anujsamdariya07.nightshiftInventory.entity.ReviewSummary;
+import com.anujsamdariya07.nightshiftInventory.entity.Sequence;
 import com.anujsamdariya07.nightshiftInventory.repository.EmployeeRepository;
+import com.mongodb.DBRef;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
+@Slf4j
 @Service
 public class EmployeeService {
     @Autowired
     private EmployeeRepository employeeRepository;
+    @Autowired
+    private SequenceService sequenceService;
+    @Autowired
+    private OrganizationService organizationService;
+    @Autowired
+    private SessionTokenService sessionTokenService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ListCacheService listCacheService;
+    @Autowired
+    private PasswordHasher passwordHasher;
 
-    private static final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
-
+    // Resolved from the signed session token, so it only carries id, orgId, orgName, employeeId, name
+    // and role. Load the employee by id when the full profile is needed.
     public Employee getCurrentUser(HttpServletRequest request) {
-        String userId = CookieUtil.getCookieValue(request, "loggedInUser");
-//        System.out.println(userId);
-
-        if (userId == null || userId.isEmpty()) {
-            throw new RuntimeException("User not logged in!");
-        }
-
-        return getEmployeeById(new ObjectId(userId));
+        return sessionTokenService.fromRequest(request)
+                .map(SessionTokenService.Session::employee)
+                .orElseThrow(() -> new RuntimeException("User not logged in!"));
     }
 
     public List<Employee> getEmployeesByOrgId(ObjectId orgId) {
@@ -40,16 +62,7 @@ public class EmployeeService {
     }
 
     public Employee getEmployeeById(ObjectId id) {
-//        System.out.println("userId: " + id);
-//        System.out.println("Hey over here!");
-//        Optional<Employee> employeeById = employeeRepository.findById(id);
-//        if (employeeById.isEmpty()) {
-//            System.out.println("No over here!");
-//            throw new NoSuchElementException("Employee does not exists!");
-//        }
-//        return employeeById.get();
         Optional<Employee> employee = employeeRepository.findById(id);
-//        System.out.println("employee: " + employee.isPresent());
         return employee.get();
     }
 
@@ -57,32 +70,19 @@ public class EmployeeService {
         return employeeRepository.findByOrgIdAndEmployeeId(orgId, employeeId);
     }
 
-    private String generateEmployeeId(ObjectId orgId) {
-        List<Employee> employees = employeeRepository.findByOrgId(orgId);
-
-        if (employees.isEmpty()) return "EMP-101";
-
-        int maxId = employees.stream()
-                .map(Employee::getEmployeeId)
-                .filter(id -> id != null && id.startsWith("EMP-"))
-                .map(id -> id.substring(4))
-                .filter(num -> num.matches("\\d+"))
-                .mapToInt(Integer::parseInt)
-                .max()
-                .orElse(0);
-        System.out.println(maxId);
-
-        int nextId = maxId + 1;
-
-        return String.format("EMP-%03d", nextId);
-    }
-
     public Employee saveNewAdminEmployee(Employee employee) {
         try {
-            employee.setPassword(passwordEncoder.encode(employee.getPassword()));
+            employee.setPassword(passwordHasher.encode(employee.getPassword()));
             employee.setRole(Employee.Role.ADMIN);
-            employee.setEmployeeId(generateEmployeeId(employee.getOrgId()));
-            return employeeRepository.save(employee);
+            employee.setEmployeeId(sequenceService.nextId(employee.getOrgId(), Sequence.Type.EMPLOYEE));
+            Employee savedEmployee = employeeRepository.save(employee);
+            organizationService.incrementCount(savedEmployee.getOrgId(), Organization.Counter.EMPLOYEES, 1);
+            listCacheService.invalidate(savedEmployee.getOrgId(), Employee.class);
+            return savedEmployee;
+        } catch (DuplicateKeyException e) {
+            throw conflict(e);
+        } catch (RejectedExecutionException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -90,18 +90,26 @@ public class EmployeeService {
 
     public Employee saveNewEmployee(Employee employee) {
         try {
-            System.out.println("Save New Employee!");
-            employee.setPassword(passwordEncoder.encode("pwd"));
+            employee.setPassword(passwordHasher.encode("pwd"));
             employee.setRole(Employee.Role.WORKER);
-            employee.setEmployeeId(generateEmployeeId(employee.getOrgId()));
-            return employeeRepository.save(employee);
+            employee.setEmployeeId(sequenceService.nextId(employee.getOrgId(), Sequence.Type.EMPLOYEE));
+            Employee savedEmployee = employeeRepository.save(employee);
+            organizationService.incrementCount(savedEmployee.getOrgId(), Organization.Counter.EMPLOYEES, 1);
+            listCacheService.invalidate(savedEmployee.getOrgId(), Employee.class);
+            return savedEmployee;
+        } catch (DuplicateKeyException e) {
+            throw conflict(e);
+        } catch (RejectedExecutionException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
     public Employee saveEmployee(Employee employee) {
-        return employeeRepository.save(employee);
+        Employee savedEmployee = employeeRepository.save(employee);
+        listCacheService.invalidate(savedEmployee.getOrgId(), Employee.class);
+        return savedEmployee;
     }
 
     public boolean employeeExistsByEmailAndOrgId(String email, ObjectId orgId) {
@@ -109,98 +117,200 @@ public class EmployeeService {
     }
 
     public Optional<Employee> loginEmployee(String email, String password) {
-        System.out.println("Starting login employee service!");
         if (email == null || password == null) return Optional.empty();
 
-        System.out.println("Email: " + email + ", Password: " + password);
-
         Optional<Employee> employeeByEmail = employeeRepository.findByEmail(email);
-        System.out.println("employeeByEmail: " + employeeByEmail.get());
         if (employeeByEmail.isPresent()) {
             Employee employee = employeeByEmail.get();
 
-            System.out.println("employee.getPassword(): " + employee.getPassword());
+            boolean passwordMatches = passwordHasher.matches(password, employee.getPassword());
 
-            boolean passwordMatches = passwordEncoder.matches(password, employee.getPassword());
-
-            if (passwordMatches) return Optional.of(employee);
+            if (passwordMatches) {
+                if (passwordHasher.needsRehash(employee.getPassword())) rehash(employee, password);
+                return Optional.of(employee);
+            }
         }
 
         return Optional.empty();
     }
 
-    public Employee updateEmployee(ObjectId id, Employee updateEmployeeData) {
-        System.out.println("updateEmployeeData: " + updateEmployeeData.getEmail());
+    // Brings a hash made with an older cost up to the configured one after a successful login,
+    // without holding up the login. Only replaces the hash that was checked, so a password changed
+    // in the meantime is left alone.
+    private void rehash(Employee employee, String password) {
+        String previous = employee.getPassword();
+        passwordHasher.encodeLater(password)
+                .thenAccept(encoded -> mongoTemplate.updateFirst(
+                        Query.query(Criteria.where("_id").is(employee.getId()).and("password").is(previous)),
+                        new Update().set("password", encoded),
+                        Employee.class))
+                .exceptionally(e -> {
+                    log.debug("Password rehash for {} skipped: {}", employee.getEmployeeId(), e.getMessage());
+                    return null;
+                });
+    }
 
-        Optional<Employee> employeeById = employeeRepository.findById(id);
-        if (employeeById.isEmpty()) {
+    public Employee updateEmployee(ObjectId id, Employee updateEmployeeData) {
+        Query query = Query.query(Criteria.where("_id").is(id));
+        query.fields().include("password", "name", "role");
+        Employee existingEmployee = mongoTemplate.findOne(query, Employee.class);
+        if (existingEmployee == null) {
             throw new NoSuchElementException("Employee Not Found!");
         }
 
-        Employee existingEmployee = employeeById.get();
-        System.out.println(updateEmployeeData.getEmail() != null && !employeeRepository.existsByEmail(updateEmployeeData.getEmail()));
-
-        if (updateEmployeeData.getName() != null) {
-            existingEmployee.setName(updateEmployeeData.getName());
-        }
-        if (updateEmployeeData.getRole() != null) existingEmployee.setRole(updateEmployeeData.getRole());
-        if (updateEmployeeData.getStatus() != null) existingEmployee.setStatus(updateEmployeeData.getStatus());
-        if (updateEmployeeData.getPhone() != null && !employeeRepository.existsByPhone(updateEmployeeData.getPhone())) {
-            existingEmployee.setPhone(updateEmployeeData.getPhone());
-        }
-        if (updateEmployeeData.getEmail() != null && !employeeRepository.existsByEmail(updateEmployeeData.getEmail())) {
-//            System.out.println("HERE");
-            existingEmployee.setEmail(updateEmployeeData.getEmail());
-        }
-        if (updateEmployeeData.getLocation() != null) existingEmployee.setLocation(updateEmployeeData.getLocation());
+        // Only the fields that were sent are written, the rest of the document is left alone
+        Update update = new Update();
+        if (updateEmployeeData.getName() != null) update.set("name", updateEmployeeData.getName());
+        if (updateEmployeeData.getRole() != null) update.set("role", updateEmployeeData.getRole());
+        if (updateEmployeeData.getStatus() != null) update.set("status", updateEmployeeData.getStatus());
+        if (updateEmployeeData.getPhone() != null) update.set("phone", updateEmployeeData.getPhone());
+        if (updateEmployeeData.getEmail() != null) update.set("email", updateEmployeeData.getEmail());
+        if (updateEmployeeData.getLocation() != null) update.set("location", updateEmployeeData.getLocation());
 
         if (updateEmployeeData.getPassword() != null &&
-                !passwordEncoder.matches(updateEmployeeData.getPassword(), existingEmployee.getPassword())) {
-            existingEmployee.setPassword(passwordEncoder.encode(updateEmployeeData.getPassword()));
+                !passwordHasher.matches(updateEmployeeData.getPassword(), existingEmployee.getPassword())) {
+            update.set("password", passwordHasher.encode(updateEmployeeData.getPassword()));
         }
 
-        // Update performance reviews if provided
-        if (updateEmployeeData.getPerformance() != null) {
-            existingEmployee.setPerformance(updateEmployeeData.getPerformance());
-        }
+        if (updateEmployeeData.getDepartment() != null) update.set("department", updateEmployeeData.getDepartment());
+        if (updateEmployeeData.getExperience() != null) update.set("experience", updateEmployeeData.getExperience());
+        if (updateEmployeeData.getSalary() != null) update.set("salary", updateEmployeeData.getSalary());
+        if (updateEmployeeData.getManager() != null) update.set("manager", updateEmployeeData.getManager());
+        if (updateEmployeeData.getManagerId() != null) update.set("managerId", updateEmployeeData.getManagerId());
+        if (updateEmployeeData.getSkills() != null) update.set("skills", updateEmployeeData.getSkills());
 
-        // Update other fields if provided
-        if (updateEmployeeData.getDepartment() != null) {
-            existingEmployee.setDepartment(updateEmployeeData.getDepartment());
-        }
-        if (updateEmployeeData.getExperience() != null) {
-            existingEmployee.setExperience(updateEmployeeData.getExperience());
-        }
-        if (updateEmployeeData.getSalary() != null) {
-            existingEmployee.setSalary(updateEmployeeData.getSalary());
+        Query byId = Query.query(Criteria.where("_id").is(id));
+        if (update.getUpdateObject().isEmpty()) {
+            return mongoTemplate.findOne(byId, Employee.class);
         }
-        if (updateEmployeeData.getManager() != null) {
-            existingEmployee.setManager(updateEmployeeData.getManager());
-        }
-        if (updateEmployeeData.getManagerId() != null) {
-            existingEmployee.setManagerId(updateEmployeeData.getManagerId());
+        Employee updatedEmployee;
+        try {
+            updatedEmployee = mongoTemplate.findAndModify(byId, update, FindAndModifyOptions.options().returnNew(true), Employee.class);
+        } catch (DuplicateKeyException e) {
+            throw conflict(e);
         }
-        if (updateEmployeeData.getSkills() != null) {
-            existingEmployee.setSkills(updateEmployeeData.getSkills());
+        if (updatedEmployee != null) {
+            // Sessions carry the name and role, and a new password has to end the old ones
+            if (update.modifies("password")
+                    || !Objects.equals(existingEmployee.getName(), updatedEmployee.getName())
+                    || existingEmployee.getRole() != updatedEmployee.getRole()) {
+                sessionTokenService.revokeEmployee(updatedEmployee.getId());
+            }
+            listCacheService.invalidate(updatedEmployee.getOrgId(), Employee.class);
         }
+        return updatedEmployee;
+    }
 
-        System.out.println("All clear!");
+    private DuplicateKeyException conflict(DuplicateKeyException e) {
+        String message = switch (DuplicateKeys.index(e)) {
+            case "email_unique" -> "Employee with the same email already exists!";
+            case "org_phone" -> "Employee with the same phone number already exists!";
+            default -> "Employee with the same id already exists!";
+        };
+        return new DuplicateKeyException(message, e);
+    }
 
-        return employeeRepository.save(existingEmployee);
+    // Folds a new review into the employee's summary.
+    public void recordReview(ObjectId id, PerformanceReview review) {
+        Update update = new Update()
+                .inc("reviewSummary.count", 1)
+                .inc("reviewSummary.ratingTotal", review.getRating().score())
+                .max("reviewSummary.lastReviewDate", review.getReviewDate());
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)), update, Employee.class);
+    }
+
+    // Moves the summary by the change in rating of an edited review, which also counts as the latest.
+    public void reviseReview(ObjectId id, int previousScore, PerformanceReview review) {
+        Update update = new Update()
+                .inc("reviewSummary.ratingTotal", review.getRating().score() - previousScore)
+                .max("reviewSummary.lastReviewDate", review.getReviewDate());
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)), update, Employee.class);
+    }
+
+    // Takes a deleted review back out of the summary. The last review date falls back to the newest
+    // review that is left, looked up through the (orgId, employeeId, reviewDate) index.
+    public void forgetReview(Employee employee, PerformanceReview review) {
+        Query latest = Query.query(Criteria.where("orgId").is(employee.getOrgId()).and("employeeId").is(employee.getEmployeeId()))
+                .with(Sort.by(Sort.Direction.DESC, "reviewDate"))
+                .limit(1);
+        latest.fields().include("reviewDate");
+        PerformanceReview newest = mongoTemplate.findOne(latest, PerformanceReview.class);
+
+        Update update = new Update()
+                .inc("reviewSummary.count", -1)
+                .inc("reviewSummary.ratingTotal", -review.getRating().score());
+        if (newest != null) {
+            update.set("reviewSummary.lastReviewDate", newest.getReviewDate());
+        } else {
+            update.unset("reviewSummary.lastReviewDate");
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(employee.getId())), update, Employee.class);
+    }
+
+    // Replaces the legacy @DBRef arrays with the review summary. The reviews an employee referenced are
+    // stamped with its orgId on the way, and the messages array is just dropped since messages are found
+    // by receiverId. Only employees that still carry one of the arrays are touched, so re-running is free.
+    public int migrateReviewReferences() {
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where("performance").exists(true),
+                Criteria.where("messages").exists(true)));
+        query.fields().include("_id").include("orgId").include("performance");
+
+        String collection = mongoTemplate.getCollectionName(Employee.class);
+        List<Document> employees = mongoTemplate.find(query, Document.class, collection);
+        for (Document employee : employees) {
+            List<Object> reviewIds = new ArrayList<>();
+            for (Object reference : employee.getList("performance", Object.class, List.of())) {
+                if (reference instanceof DBRef dbRef) reviewIds.add(dbRef.getId());
+                if (reference instanceof Document document) reviewIds.add(document.get("$id"));
+            }
+
+            ReviewSummary summary = new ReviewSummary();
+            if (!reviewIds.isEmpty()) {
+                Query reviews = Query.query(Criteria.where("_id").in(reviewIds));
+                mongoTemplate.updateMulti(reviews, new Update().set("orgId", employee.getObjectId("orgId")), PerformanceReview.class);
+                for (PerformanceReview review : mongoTemplate.find(reviews, PerformanceReview.class)) {
+                    summary.setCount(summary.getCount() + 1);
+                    summary.setRatingTotal(summary.getRatingTotal() + review.getRating().score());
+                    if (summary.getLastReviewDate() == null || review.getReviewDate().after(summary.getLastReviewDate())) {
+                        summary.setLastReviewDate(review.getReviewDate());
+                    }
+                }
+            }
+
+            Update update = new Update()
+                    .set("reviewSummary.count", summary.getCount())
+                    .set("reviewSummary.ratingTotal", summary.getRatingTotal())
+                    .unset("performance")
+                    .unset("messages");
+            if (summary.getLastReviewDate() != null) update.set("reviewSummary.lastReviewDate", summary.getLastReviewDate());
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(employee.getObjectId("_id"))), update, collection);
+        }
+        return employees.size();
     }
 
     public void deleteEmployeeById(ObjectId id) {
-        employeeRepository.deleteById(id);
+        Employee deletedEmployee = employeeRepository.deleteEmployeeById(id);
+        if (deletedEmployee != null) {
+            organizationService.incrementCount(deletedEmployee.getOrgId(), Organization.Counter.EMPLOYEES, -1);
+            sessionTokenService.revokeEmployee(deletedEmployee.getId());
+            listCacheService.invalidate(deletedEmployee.getOrgId(), Employee.class);
+        }
     }
 
-    public void changePassword(HttpServletRequest request, String password) {
+    public Employee changePassword(HttpServletRequest request, String password) {
         String decodedPassword = URLDecoder.decode(password, StandardCharsets.UTF_8);
-        System.out.println("Inside employee service, password: " + decodedPassword);
         Employee currentUser = getCurrentUser(request);
-        System.out.println("Current User's ID: " + currentUser.getEmployeeId());
-        System.out.println("New Password: " + decodedPassword);
-        currentUser.setPassword(passwordEncoder.encode(decodedPassword));
-        currentUser.setMustChangePassword(false);
-        employeeRepository.save(currentUser);
+        String hash = passwordHasher.encode(decodedPassword);
+        // Only the two fields are written, so a review summary moved meanwhile isn't overwritten
+        Query query = Query.query(Criteria.where("_id").is(currentUser.getId()).and("orgId").is(currentUser.getOrgId()));
+        Update update = new Update().set("password", hash).set("mustChangePassword", false);
+        Employee savedEmployee = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Employee.class);
+        if (savedEmployee == null) {
+            throw new NoSuchElementException("Employee Not Found!");
+        }
+        sessionTokenService.revokeEmployee(savedEmployee.getId());
+        listCacheService.invalidate(savedEmployee.getOrgId(), Employee.class);
+        return savedEmployee;
     }
 }
\ No newline at end of file
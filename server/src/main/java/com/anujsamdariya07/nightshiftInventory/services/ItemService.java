@@ -1,24 +1,45 @@
 package com.anujsamdariya07.nightshiftInventory.services;
 
+import com.anujsamdariya07.nightshiftInventory.dto.ChangeEvent;
 import com.anujsamdariya07.nightshiftInventory.dto.ItemRequest;
 import com.anujsamdariya07.nightshiftInventory.entity.*;
 import com.anujsamdariya07.nightshiftInventory.repository.ItemRepository;
-import com.anujsamdariya07.nightshiftInventory.repository.VendorRepository;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
 
 @Service
 public class ItemService {
     @Autowired
     private ItemRepository itemRepository;
     @Autowired
-    private VendorRepository vendorRepository;
+    private VendorService vendorService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private SequenceService sequenceService;
+    @Autowired
+    private OrganizationService organizationService;
+    @Autowired
+    private StockLedgerService stockLedgerService;
+    @Autowired
+    private LowStockService lowStockService;
+    @Autowired
+    private ChangeFeedService changeFeedService;
+    @Autowired
+    private ChangeVersionService changeVersionService;
 
     public List<Item> getItemsByOrgId(ObjectId orgId) {
         return itemRepository.findAllByOrgId(orgId);
@@ -36,24 +57,6 @@ public class ItemService {
         return itemRepository.existsByName(name);
     }
 
-    private String generateItemId(ObjectId orgId) {
-        List<Item> items = itemRepository.findAllByOrgId(orgId);
-
-        int maxId = items.stream()
-                .map(Item::getItemId)
-                .filter(id -> id != null && id.startsWith("ITEM-"))
-                .map(id -> id.substring(5))
-                .filter(num -> num.matches("\\d+"))
-                .mapToInt(Integer::parseInt)
-                .max()
-                .orElse(0);
-        System.out.println(maxId);
-
-        int nextId = maxId + 1;
-
-        return String.format("ITEM-%03d", nextId);
-    }
-
     public Item createItem(ItemRequest itemRequest) {
         Item item = Item.builder()
                 .orgId(itemRequest.getOrgId())
@@ -73,13 +76,7 @@ public class ItemService {
                 .date(new Date())
                 .updateType(UpdateHistory.UpdateTypes.REPLENISHMENT)
                 .build();
-        if (item.getUpdateHistory() == null) {
-            item.setUpdateHistory(new ArrayList<>());
-        }
-        item.getUpdateHistory().add(updateHistory);
-        item.setItemId(generateItemId(itemRequest.getOrgId()));
-
-        Optional<Vendor> vendor = vendorRepository.findVendorByOrgIdAndVendorId(itemRequest.getOrgId(), itemRequest.getVendorId());
+        item.setItemId(sequenceService.nextId(itemRequest.getOrgId(), Sequence.Type.ITEM));
 
         RestockItem restockItem = RestockItem.builder()
                 .itemName(itemRequest.getName())
@@ -87,31 +84,30 @@ public class ItemService {
                 .itemId(item.getItemId())
                 .quantity(itemRequest.getQuantity())
                 .build();
+        vendorService.addReplenishment(itemRequest.getOrgId(), itemRequest.getVendorId(), restockItem);
 
-        vendor.ifPresent(value -> {
-            if (value.getReplenishmentHistory() == null) {
-                value.setReplenishmentHistory(new ArrayList<>());
-            }
-            value.getReplenishmentHistory().add(restockItem);
-        });
-        vendorRepository.save(vendor.get());
-
-        return itemRepository.save(item);
+        Item savedItem = itemRepository.save(item);
+        organizationService.incrementCount(savedItem.getOrgId(), Organization.Counter.ITEMS, 1);
+        stockLedgerService.record(savedItem.getOrgId(), savedItem.getItemId(), updateHistory);
+        publish(ChangeEvent.Action.CREATED, savedItem);
+        return savedItem;
     }
 
     public Item updateItem(ObjectId id, ItemRequest itemRequest) {
-        Item existingItem = itemRepository.findById(id).orElse(null);
-        if (existingItem == null) {
-            return null;
+        // The restocked quantity is added with $inc so concurrent order reservations aren't overwritten
+        Update update = new Update()
+                .set("name", itemRequest.getName())
+                .inc("quantity", itemRequest.getQuantity())
+                .set("threshold", itemRequest.getThreshold())
+                .set("lastDateOfUpdate", new Date());
+        if (itemRequest.getImage() != null) {
+            update.set("image", itemRequest.getImage());
         }
-
-        existingItem.setName(itemRequest.getName());
-        existingItem.setQuantity(existingItem.getQuantity() + itemRequest.getQuantity());
-        existingItem.setThreshold(itemRequest.getThreshold());
-        if (itemRequest.getImage() != null && !itemRequest.getImage().equals(existingItem.getImage())) {
-            existingItem.setImage(itemRequest.getImage());
+        Item savedItem = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(id)), update,
+                FindAndModifyOptions.options().returnNew(true), Item.class);
+        if (savedItem == null) {
+            return null;
         }
-        existingItem.setLastDateOfUpdate(new Date());
 
         UpdateHistory updateHistory = UpdateHistory.builder()
                 .vendorName(itemRequest.getVendorName())
@@ -124,100 +120,70 @@ public class ItemService {
                 .updateType(UpdateHistory.UpdateTypes.REPLENISHMENT)
                 .build();
 
-        if (existingItem.getUpdateHistory() == null) {
-            existingItem.setUpdateHistory(new ArrayList<>());
-        }
-        existingItem.getUpdateHistory().add(updateHistory);
-
-        Optional<Vendor> vendor = vendorRepository.findVendorByOrgIdAndVendorId(itemRequest.getOrgId(), itemRequest.getVendorId());
-
         RestockItem restockItem = RestockItem.builder()
                 .quantity(itemRequest.getQuantity())
-                .itemId(existingItem.getItemId())
-                .itemName(existingItem.getName())
+                .itemId(savedItem.getItemId())
+                .itemName(savedItem.getName())
                 .cost(itemRequest.getCost())
                 .build();
+        vendorService.addReplenishment(savedItem.getOrgId(), itemRequest.getVendorId(), restockItem);
 
-        vendor.ifPresent(value -> {
-            if (value.getReplenishmentHistory() == null) {
-                value.setReplenishmentHistory(new ArrayList<>());
-            }
-            value.getReplenishmentHistory().add(restockItem);
-        });
+        stockLedgerService.record(savedItem.getOrgId(), savedItem.getItemId(), updateHistory);
+        publish(ChangeEvent.Action.UPDATED, savedItem);
+        return savedItem;
+    }
 
-        vendorRepository.save(vendor.get());
+    public List<Item> getLowStockItems(ObjectId orgId) {
+        return lowStockService.getLowStockItems(orgId);
+    }
 
-        return itemRepository.save(existingItem);
+    public Slice<StockMovement> getItemHistory(Item item, int page, int size) {
+        return stockLedgerService.getHistory(item.getOrgId(), item.getItemId(), page, size);
     }
 
     public void deleteItem(ObjectId id) {
-        itemRepository.deleteById(id);
+        Item deletedItem = itemRepository.deleteItemById(id);
+        if (deletedItem != null) {
+            organizationService.incrementCount(deletedItem.getOrgId(), Organization.Counter.ITEMS, -1);
+            long version = changeVersionService.recordDeletion(deletedItem.getOrgId(), ChangeEvent.Entity.ITEM, deletedItem.getId());
+            changeFeedService.publish(deletedItem.getOrgId(), ChangeEvent.Entity.ITEM, ChangeEvent.Action.DELETED, deletedItem.getId(), version);
+        }
     }
 
     public void deductByOrder(String orderId, ArrayList<OrderItem> items, ObjectId orgId) {
-        for (OrderItem item : items) {
-            Item extractedItem = itemRepository.findByOrgIdAndName(orgId, item.getItemName());
-
-            System.out.println("extractedItem.getName()" + extractedItem.getName());
-
-            if (item.getQuantity() > extractedItem.getQuantity()) {
-                throw new RuntimeException("Desired quantity unavailable!");
-            }
-
-            int deducted = Math.min(item.getQuantity(), extractedItem.getQuantity());
-            int remainingQuantity = extractedItem.getQuantity() - deducted;
-
-            UpdateHistory updateHistory = UpdateHistory.builder()
-                    .vendorName("")
-                    .orderName("Order")
-                    .orderId(orderId)
-                    .quantityUpdated(deducted)
-                    .cost(item.getPriceAtOrder())
-                    .updateType(UpdateHistory.UpdateTypes.ORDER)
-                    .date(new Date())
-                    .build();
+        stockReservationService.reserve(orgId, orderId, items);
+        publishQuantities(orgId, lowStockService.refreshLines(orgId, items));
+    }
 
-            if (extractedItem.getUpdateHistory() == null) {
-                extractedItem.setUpdateHistory(new ArrayList<>());
-            }
-            extractedItem.getUpdateHistory().add(updateHistory);
+    public void revertByOrder(ArrayList<OrderItem> items, ObjectId orgId) {
+        stockReservationService.release(orgId, items);
+        publishQuantities(orgId, lowStockService.refreshLines(orgId, items));
+    }
 
-            extractedItem.setQuantity(Math.max(remainingQuantity, 0));
+    public void adjustByOrder(String orderId, ArrayList<OrderItem> previousItems, ArrayList<OrderItem> items, ObjectId orgId) {
+        stockReservationService.adjust(orgId, orderId, previousItems, items);
+        publishLines(orgId, previousItems, items);
+    }
 
-            itemRepository.save(extractedItem);
-        }
+    public void undoAdjustByOrder(String orderId, ArrayList<OrderItem> previousItems, ArrayList<OrderItem> items, ObjectId orgId) {
+        stockReservationService.undoAdjust(orgId, orderId, previousItems, items);
+        publishLines(orgId, previousItems, items);
     }
 
-    public void revertByOrder(ArrayList<OrderItem> items, ObjectId orgId) {
-        System.out.println("Revert by order!");
-        System.out.println(items != null);
-        for (OrderItem item : items) {
-            Item extractedItem = itemRepository.findByOrgIdAndName(orgId, item.getItemName());
-            System.out.println("extractedItem.getName(): " + extractedItem.getName());
-
-            int reverted = item.getQuantity();
-            extractedItem.setQuantity(extractedItem.getQuantity() + reverted);
-
-            UpdateHistory updateHistory = UpdateHistory.builder()
-                    .vendorName("Order Revert")
-                    .quantityUpdated(reverted)
-                    .updateType(UpdateHistory.UpdateTypes.ORDERREVERT)
-                    .cost(item.getPriceAtOrder())
-                    .date(new Date())
-                    .build();
-
-            if (extractedItem.getUpdateHistory() == null) {
-                extractedItem.setUpdateHistory(new ArrayList<>());
-            }
-            extractedItem.getUpdateHistory().add(updateHistory);
-
-            itemRepository.save(extractedItem);
-        }
+    private void publishLines(ObjectId orgId, List<OrderItem> previousItems, List<OrderItem> items) {
+        List<OrderItem> touched = new ArrayList<>();
+        if (previousItems != null) touched.addAll(previousItems);
+        if (items != null) touched.addAll(items);
+        publishQuantities(orgId, lowStockService.refreshLines(orgId, touched));
     }
 
     public UpdateHistory updateItemQuantityByVendor(ObjectId itemId, UpdateHistory updateQuantityData) {
-        Item item = itemRepository.findById(itemId).get();
-        item.setQuantity(item.getQuantity() + updateQuantityData.getQuantityUpdated());
+        Item item = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(itemId)),
+                new Update().inc("quantity", updateQuantityData.getQuantityUpdated()),
+                FindAndModifyOptions.options().returnNew(true), Item.class);
+        if (item == null) {
+            throw new RuntimeException("Item not found!");
+        }
         UpdateHistory updateHistory = UpdateHistory.builder()
                 .orderName(null)
                 .orderId(null)
@@ -228,8 +194,6 @@ public class ItemService {
                 .updateType(UpdateHistory.UpdateTypes.REPLENISHMENT)
                 .date(new Date())
                 .build();
-        if (item.getUpdateHistory() == null) item.setUpdateHistory(new ArrayList<>());
-        item.getUpdateHistory().add(updateHistory);
 
         RestockItem restockItem = RestockItem.builder()
                 .cost(updateQuantityData.getCost())
@@ -238,18 +202,27 @@ public class ItemService {
                 .itemId(item.getItemId())
                 .build();
 
-        Optional<Vendor> vendor = vendorRepository.findVendorByOrgIdAndVendorId(item.getOrgId(), updateQuantityData.getVendorId());
-        vendor.ifPresent(value -> {
-            if (value.getReplenishmentHistory() == null) {
-                value.setReplenishmentHistory(new ArrayList<>());
-            }
-            value.setTotalRestocks(value.getTotalRestocks()+1);
-            value.setTotalValue(value.getTotalValue() + updateQuantityData.getCost());
-            value.getReplenishmentHistory().add(restockItem);
-        });
-        vendorRepository.save(vendor.get());
-
-        itemRepository.save(item);
+        vendorService.recordRestock(item.getOrgId(), updateQuantityData.getVendorId(), restockItem);
+
+        stockLedgerService.record(item.getOrgId(), item.getItemId(), updateHistory);
+        publishQuantities(item.getOrgId(), lowStockService.refresh(item.getOrgId(), List.of(item.getItemId())));
         return updateHistory;
     }
+
+    private void publish(ChangeEvent.Action action, Item item) {
+        Item refreshed = lowStockService.refresh(item.getOrgId(), item.getItemId());
+        if (refreshed != null) item.setLowStock(refreshed.isLowStock());
+        item.setChangeVersion(changeVersionService.stamp(item.getOrgId(), Item.class, item.getId()));
+        changeFeedService.publish(item.getOrgId(), ChangeEvent.Entity.ITEM, action, item.getId(), item.getChangeVersion());
+    }
+
+    // Stock moved by an order or a restock: one version for all the items, published as QUANTITY
+    private void publishQuantities(ObjectId orgId, List<Item> items) {
+        if (items.isEmpty()) return;
+        List<ObjectId> ids = items.stream().map(Item::getId).toList();
+        long version = changeVersionService.stamp(orgId, Item.class, Query.query(Criteria.where("_id").in(ids)));
+        for (Item item : items) {
+            changeFeedService.publish(orgId, ChangeEvent.Entity.ITEM, ChangeEvent.Action.QUANTITY, item.getId(), version);
+        }
+    }
 }
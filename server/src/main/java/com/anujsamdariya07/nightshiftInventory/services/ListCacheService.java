@@ -0,0 +1,171 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Organization;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Serves the per-org list endpoints from serialized, gzipped bytes cached per collection version.
+// The version is kept on the org (Organization.listVersions) and bumped by the services right after
+// every write to the collection, so every instance agrees on it. A matching If-None-Match is answered
+// with a 304 after reading only that version, and an unchanged list is never serialized twice on an
+// instance. Concurrent misses for the same list share one load.
+@Service
+public class ListCacheService {
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${nightshift.list-cache.max-entries:1000}")
+    private int maxEntries;
+
+    private SingleFlight<CacheKey, CachedList> loads;
+
+    private final Map<CacheKey, CachedList> entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedList> eldest) {
+            return size() > maxEntries;
+        }
+    });
+
+    @PostConstruct
+    void init() {
+        loads = new SingleFlight<>(meterRegistry, "lists");
+    }
+
+    public void invalidate(ObjectId orgId, Class<?> entityClass) {
+        if (orgId == null) return;
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(orgId)), invalidate(new Update(), entityClass),
+                Organization.class);
+    }
+
+    // Adds the version bump to an update of the org that is written anyway
+    Update invalidate(Update update, Class<?> entityClass) {
+        return update.inc("listVersions." + mongoTemplate.getCollectionName(entityClass), 1L);
+    }
+
+    public ResponseEntity<byte[]> respond(HttpServletRequest request, ObjectId orgId, Class<?> entityClass, Supplier<?> loader) {
+        return respond(request, orgId, entityClass, "", loader);
+    }
+
+    // variant is for lists that also depend on something other than the stored documents, such as
+    // the request parameters or the current date. Each variant is cached on its own.
+    public ResponseEntity<byte[]> respond(HttpServletRequest request, ObjectId orgId, Class<?> entityClass, String variant,
+                                         Supplier<?> loader) {
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        Key key = new Key(orgId, collection);
+        // Read before loading, so a write during the load leaves the entry behind the version
+        long version = version(key);
+        // The org is part of the tag: versions are counted per org, so without it two orgs at the same
+        // version would share a tag and a browser that switched orgs could revalidate the other's list
+        String etag = orgId.toHexString() + "-" + collection + "-" + version
+                + (variant.isEmpty() ? "" : "-" + UUID.nameUUIDFromBytes(variant.getBytes(StandardCharsets.UTF_8)));
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(CacheControl.noCache());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        // gzip and identity bodies are different bytes, so each gets its own strong ETag
+        headers.setETag("\"" + etag + (gzip ? "-gzip" : "") + "\"");
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        CacheKey cacheKey = new CacheKey(key, variant);
+        CachedList cached = entries.get(cacheKey);
+        if (cached == null || !cached.etag().equals(etag)) {
+            cached = loads.run(new CacheKey(key, etag), () -> {
+                CachedList loaded = serialize(etag, loader.get());
+                entries.put(cacheKey, loaded);
+                return loaded;
+            });
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return ResponseEntity.status(HttpStatus.OK).headers(headers).body(gzip ? cached.gzip() : cached.json());
+    }
+
+    private long version(Key key) {
+        Query query = Query.query(Criteria.where("_id").is(key.orgId()));
+        query.fields().include("listVersions." + key.collection());
+        Organization organization = mongoTemplate.findOne(query, Organization.class);
+        if (organization == null || organization.getListVersions() == null) return 0;
+        return organization.getListVersions().getOrDefault(key.collection(), 0L);
+    }
+
+    private CachedList serialize(String etag, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+            return new CachedList(etag, json, out.toByteArray());
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals("\"" + etag + "\"") || tag.equals("\"" + etag + "-gzip\"")) return true;
+        }
+        return false;
+    }
+
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) continue;
+            return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    private record Key(ObjectId orgId, String collection) {
+    }
+
+    private record CacheKey(Key key, String variant) {
+    }
+
+    private record CachedList(String etag, byte[] json, byte[] gzip) {
+    }
+}
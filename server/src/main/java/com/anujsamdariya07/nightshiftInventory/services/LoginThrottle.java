@@ -0,0 +1,109 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Counts failed logins over a fixed window three ways, and turns attempts away before any database
+// lookup or BCrypt check is spent on them:
+// - per account from each client address, locked out at its limit until the window ends. Only that
+//   address is locked, so guessing from elsewhere can't lock the account's owner out.
+// - per client address over all accounts, locked out the same way.
+// - per account over all addresses, so guessing spread over many addresses is still limited. This one
+//   never locks: past its threshold every attempt waits a delay that doubles with each failure up to
+//   a cap, so an attacker can slow the owner down by at most that cap.
+// A successful login clears the count for that account and address. The per-account count is left
+// to run out with its window, so it can't be reset by whoever knows the password.
+// Counts are per instance and start over on restart.
+@Service
+public class LoginThrottle {
+    @Value("${nightshift.login.account-failures:5}")
+    private int accountFailures;
+
+    @Value("${nightshift.login.address-failures:50}")
+    private int addressFailures;
+
+    @Value("${nightshift.login.account-delay-after:10}")
+    private int accountDelayAfter;
+
+    @Value("${nightshift.login.account-delay:1s}")
+    private Duration accountDelay;
+
+    @Value("${nightshift.login.account-max-delay:30s}")
+    private Duration accountMaxDelay;
+
+    @Value("${nightshift.login.window:15m}")
+    private Duration window;
+
+    Clock clock = Clock.systemUTC();
+
+    private final Map<String, Failures> pairs = new ConcurrentHashMap<>();
+    private final Map<String, Failures> addresses = new ConcurrentHashMap<>();
+    private final Map<String, Failures> accounts = new ConcurrentHashMap<>();
+
+    // How long the caller has to wait before trying again, zero when the attempt may go ahead
+    public Duration retryAfter(String email, String address) {
+        long now = clock.millis();
+        long wait = Math.max(lockout(pairs.get(pair(email, address)), accountFailures, now),
+                lockout(addresses.get(String.valueOf(address)), addressFailures, now));
+        wait = Math.max(wait, delay(accounts.get(account(email)), now));
+        return Duration.ofMillis(wait);
+    }
+
+    public void failed(String email, String address) {
+        long now = clock.millis();
+        pairs.compute(pair(email, address), (key, failures) -> count(failures, now));
+        addresses.compute(String.valueOf(address), (key, failures) -> count(failures, now));
+        accounts.compute(account(email), (key, failures) -> count(failures, now));
+    }
+
+    public void succeeded(String email, String address) {
+        pairs.remove(pair(email, address));
+    }
+
+    @Scheduled(fixedDelayString = "${nightshift.login.purge-interval:PT1M}")
+    public void purge() {
+        long now = clock.millis();
+        pairs.values().removeIf(failures -> failures.expired(now));
+        addresses.values().removeIf(failures -> failures.expired(now));
+        accounts.values().removeIf(failures -> failures.expired(now));
+    }
+
+    private long lockout(Failures failures, int limit, long now) {
+        if (failures == null || failures.expired(now) || failures.count < limit) return 0;
+        return failures.until - now;
+    }
+
+    // Measured from the last failure, so it is over once the caller has waited it out
+    private long delay(Failures failures, long now) {
+        if (failures == null || failures.expired(now) || failures.count < accountDelayAfter) return 0;
+        int doublings = Math.min(failures.count - accountDelayAfter, 30);
+        long delay = Math.min(accountDelay.toMillis() << doublings, accountMaxDelay.toMillis());
+        return Math.max(0, failures.last + delay - now);
+    }
+
+    private Failures count(Failures failures, long now) {
+        if (failures == null || failures.expired(now)) return new Failures(now + window.toMillis(), 1, now);
+        return new Failures(failures.until, failures.count + 1, now);
+    }
+
+    private String account(String email) {
+        return String.valueOf(email).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private String pair(String email, String address) {
+        return account(email) + " " + address;
+    }
+
+    private record Failures(long until, int count, long last) {
+        private boolean expired(long now) {
+            return now >= until;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.dto.LowStockEvent;
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.OrderItem;
+import com.anujsamdariya07.nightshiftInventory.repository.ItemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps Item.lowStock in step with quantity <= threshold and tells subscribers when an item crosses
+// its threshold either way. Like the change feed, a subscriber with a full buffer is disconnected
+// rather than queued for without bound; the client reloads the low-stock list when it reconnects.
+// The flag itself is in Mongo, but the streams are per process, single instance like the change feed.
+@Service
+public class LowStockService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Value("${nightshift.low-stock.buffer:64}")
+    private int bufferSize;
+
+    @Value("${nightshift.low-stock.stream-timeout:30m}")
+    private Duration streamTimeout;
+
+    @Value("${nightshift.low-stock.threads:1}")
+    private int threads;
+
+    private final Map<ObjectId, List<SseSubscriber>> subscribers = new ConcurrentHashMap<>();
+
+    // Sends happen off the writing thread so a slow client can't hold up a stock change
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    void init() {
+        dispatcher = Executors.newFixedThreadPool(threads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    public List<Item> getLowStockItems(ObjectId orgId) {
+        return itemRepository.findAllByOrgIdAndLowStockTrueOrderByItemIdAsc(orgId);
+    }
+
+    public Item refresh(ObjectId orgId, String itemId) {
+        List<Item> items = refresh(orgId, List.of(itemId));
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    public List<Item> refreshLines(ObjectId orgId, Collection<OrderItem> items) {
+        Set<String> itemIds = new LinkedHashSet<>();
+        if (items != null) {
+            for (OrderItem item : items) {
+                if (item.getItemId() != null) itemIds.add(item.getItemId());
+            }
+        }
+        return refresh(orgId, itemIds);
+    }
+
+    // Re-reads the given items after their quantity changed and flips the flag of those that crossed
+    // their threshold. The flip is conditional on the quantity and threshold it was decided on, so
+    // when another write got in between, that write's own refresh decides instead. Returns the items
+    // as read, with the flag matching the quantity read.
+    public List<Item> refresh(ObjectId orgId, Collection<String> itemIds) {
+        if (orgId == null || itemIds.isEmpty()) return new ArrayList<>();
+
+        Query query = Query.query(Criteria.where("orgId").is(orgId).and("itemId").in(itemIds));
+        query.fields().include("orgId", "itemId", "name", "quantity", "threshold", "lowStock");
+        List<Item> items = mongoTemplate.find(query, Item.class);
+        for (Item item : items) {
+            boolean lowStock = item.getQuantity() <= item.getThreshold();
+            if (lowStock == item.isLowStock()) continue;
+            item.setLowStock(lowStock);
+
+            Query unchanged = Query.query(Criteria.where("_id").is(item.getId())
+                    .and("quantity").is(item.getQuantity())
+                    .and("threshold").is(item.getThreshold())
+                    .and("lowStock").ne(lowStock));
+            if (mongoTemplate.updateFirst(unchanged, new Update().set("lowStock", lowStock), Item.class).getModifiedCount() > 0) {
+                publish(orgId, new LowStockEvent(item.getId().toHexString(), item.getItemId(), item.getName(),
+                        item.getQuantity(), item.getThreshold(), lowStock, new Date()));
+            }
+        }
+        return items;
+    }
+
+    public SseEmitter subscribe(ObjectId orgId) {
+        SseSubscriber subscriber = new SseSubscriber(streamTimeout, bufferSize, dispatcher);
+        List<SseSubscriber> list = subscribers.computeIfAbsent(orgId, id -> new CopyOnWriteArrayList<>());
+        subscriber.onClose(() -> list.remove(subscriber));
+        list.add(subscriber);
+        return subscriber.emitter();
+    }
+
+    // Sets the flag on items stored before it existed, computed by the server in one pass over the
+    // collection. Publishes nothing, these aren't crossings.
+    public int migrateLowStockFlags() {
+        Query query = Query.query(Criteria.where("lowStock").exists(false));
+        Document lowStock = new Document("$lte", List.of("$quantity", new Document("$ifNull", List.of("$threshold", 0))));
+        AggregationUpdate update = AggregationUpdate.from(List.of(context -> new Document("$set", new Document("lowStock", lowStock))));
+        return (int) mongoTemplate.updateMulti(query, update, Item.class).getModifiedCount();
+    }
+
+    private void publish(ObjectId orgId, LowStockEvent event) {
+        List<SseSubscriber> list = subscribers.get(orgId);
+        if (list == null) return;
+
+        for (SseSubscriber subscriber : list) {
+            if (!subscriber.offer(SseEmitter.event().name("low-stock").data(event))) {
+                list.remove(subscriber);
+                subscriber.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Pushes messaging events to the open streams of one employee, one stream per tab. Nothing is kept
+// for employees who aren't connected: the inbox is the record, a client (re)connecting loads its
+// first page and the unread count, then follows the stream. Like the change feed, a subscriber
+// with a full buffer is disconnected rather than allowed to hold events back for everyone else.
+// The streams are held in this process, so like the change feed this assumes a single server
+// instance; a message sent through another one only shows up on the recipient's next inbox load.
+@Service
+public class MessageDeliveryService {
+    @Value("${nightshift.messages.buffer:64}")
+    private int bufferSize;
+
+    @Value("${nightshift.messages.stream-timeout:30m}")
+    private Duration streamTimeout;
+
+    @Value("${nightshift.messages.threads:2}")
+    private int threads;
+
+    private final Map<String, List<SseSubscriber>> recipients = new ConcurrentHashMap<>();
+
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    void init() {
+        dispatcher = Executors.newFixedThreadPool(threads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    public SseEmitter subscribe(ObjectId orgId, String employeeId) {
+        String key = key(orgId, employeeId);
+        SseSubscriber subscriber = new SseSubscriber(streamTimeout, bufferSize, dispatcher);
+        subscriber.onClose(() -> remove(key, subscriber));
+        // Added inside compute so it can't land in a list that remove() is dropping
+        recipients.compute(key, (k, subscribers) -> {
+            List<SseSubscriber> list = subscribers != null ? subscribers : new CopyOnWriteArrayList<>();
+            list.add(subscriber);
+            return list;
+        });
+        return subscriber.emitter();
+    }
+
+    public void deliver(ObjectId orgId, String employeeId, String name, Object data) {
+        String key = key(orgId, employeeId);
+        List<SseSubscriber> subscribers = recipients.get(key);
+        if (subscribers == null) return;
+        for (SseSubscriber subscriber : subscribers) {
+            if (!subscriber.offer(SseEmitter.event().name(name).data(data))) {
+                remove(key, subscriber);
+                subscriber.disconnect();
+            }
+        }
+    }
+
+    private void remove(String key, SseSubscriber subscriber) {
+        recipients.computeIfPresent(key, (k, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private String key(ObjectId orgId, String employeeId) {
+        return orgId.toHexString() + ":" + employeeId;
+    }
+}
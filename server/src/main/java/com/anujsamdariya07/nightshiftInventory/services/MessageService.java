@@ -0,0 +1,154 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.dto.MessagePage;
+import com.anujsamdariya07.nightshiftInventory.entity.Employee;
+import com.anujsamdariya07.nightshiftInventory.entity.Message;
+import com.anujsamdariya07.nightshiftInventory.entity.UnreadCounter;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class MessageService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private EmployeeService employeeService;
+    @Autowired
+    private MessageDeliveryService messageDeliveryService;
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_CONTENT_LENGTH = 2000;
+
+    // Inserts the message, bumps the receiver's counter and pushes both to the receiver if they're
+    // online. Nothing is written to either employee document.
+    public Message send(Employee sender, String receiverId, String content) {
+        if (content == null || content.isBlank()) throw new IllegalArgumentException("Message content is required!");
+        if (content.length() > MAX_CONTENT_LENGTH) throw new IllegalArgumentException("Message is too long!");
+        if (receiverId == null || employeeService.getEmployeeByEmployeeId(sender.getOrgId(), receiverId) == null) {
+            throw new IllegalArgumentException("Recipient not found!");
+        }
+
+        Date now = new Date();
+        Message message = mongoTemplate.insert(Message.builder()
+                .orgId(sender.getOrgId())
+                .senderId(sender.getEmployeeId())
+                .receiverId(receiverId)
+                .content(content)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+
+        long unread = moveCounter(sender.getOrgId(), receiverId, 1);
+        messageDeliveryService.deliver(sender.getOrgId(), receiverId, "message", message);
+        messageDeliveryService.deliver(sender.getOrgId(), receiverId, "unread", Map.of("unread", Math.max(0, unread)));
+        return message;
+    }
+
+    // Newest first. The cursor is the (createdAt, _id) of the last message of the previous page, so
+    // every page is a bounded range on the org_receiver_created index however old the inbox gets.
+    public MessagePage getInbox(ObjectId orgId, String employeeId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Criteria criteria = Criteria.where("orgId").is(orgId).and("receiverId").is(employeeId);
+        if (cursor != null) {
+            String[] position = decodeCursor(cursor);
+            Date lastDate = new Date(Long.parseLong(position[0]));
+            ObjectId lastId = new ObjectId(position[1]);
+            // Bounding createdAt keeps the scan on the index; the $or only settles ties on the same date
+            criteria.and("createdAt").lte(lastDate).orOperator(
+                    Criteria.where("createdAt").lt(lastDate),
+                    Criteria.where("_id").lt(lastId));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(pageSize + 1);
+        List<Message> messages = mongoTemplate.find(query, Message.class);
+
+        String nextCursor = null;
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            Message last = messages.get(pageSize - 1);
+            nextCursor = encodeCursor(last.getCreatedAt(), last.getId());
+        }
+        return new MessagePage(messages, nextCursor, getUnreadCount(orgId, employeeId));
+    }
+
+    public long getUnreadCount(ObjectId orgId, String employeeId) {
+        UnreadCounter counter = mongoTemplate.findById(counterId(orgId, employeeId), UnreadCounter.class);
+        // A mark-all-read racing a send can leave it briefly below zero until the send's $inc lands
+        return counter != null ? Math.max(0, counter.getUnread()) : 0;
+    }
+
+    // Null when the receiver has no such message. Only the first read flips the flag, so the
+    // counter goes down once however many tabs mark the same message.
+    public Message markRead(ObjectId orgId, String employeeId, ObjectId id) {
+        Criteria own = Criteria.where("_id").is(id).and("orgId").is(orgId).and("receiverId").is(employeeId);
+        Message message = mongoTemplate.findAndModify(
+                Query.query(own).addCriteria(Criteria.where("isRead").is(false)),
+                new Update().set("isRead", true).set("updatedAt", new Date()),
+                FindAndModifyOptions.options().returnNew(true),
+                Message.class);
+        if (message == null) return mongoTemplate.findOne(Query.query(own), Message.class);
+
+        long unread = moveCounter(orgId, employeeId, -1);
+        messageDeliveryService.deliver(orgId, employeeId, "unread", Map.of("unread", Math.max(0, unread)));
+        return message;
+    }
+
+    public long markAllRead(ObjectId orgId, String employeeId) {
+        UpdateResult result = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("orgId").is(orgId).and("receiverId").is(employeeId).and("isRead").is(false)),
+                new Update().set("isRead", true).set("updatedAt", new Date()),
+                Message.class);
+        if (result.getModifiedCount() > 0) {
+            long unread = moveCounter(orgId, employeeId, -result.getModifiedCount());
+            messageDeliveryService.deliver(orgId, employeeId, "unread", Map.of("unread", Math.max(0, unread)));
+        }
+        return result.getModifiedCount();
+    }
+
+    private long moveCounter(ObjectId orgId, String employeeId, long delta) {
+        UnreadCounter counter = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(counterId(orgId, employeeId))),
+                new Update()
+                        .setOnInsert("orgId", orgId)
+                        .setOnInsert("employeeId", employeeId)
+                        .inc("unread", delta),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                UnreadCounter.class);
+        return counter.getUnread();
+    }
+
+    private String counterId(ObjectId orgId, String employeeId) {
+        return orgId.toHexString() + ":" + employeeId;
+    }
+
+    private String encodeCursor(Date createdAt, ObjectId id) {
+        String position = createdAt.getTime() + ":" + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (position.length != 2 || !ObjectId.isValid(position[1])) throw new IllegalArgumentException();
+            Long.parseLong(position[0]);
+            return position;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor!");
+        }
+    }
+}
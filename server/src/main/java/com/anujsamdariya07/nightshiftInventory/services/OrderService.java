@@ -1,17 +1,31 @@
 package com.anujsamdariya07.nightshiftInventory.services;
 
+import com.anujsamdariya07.nightshiftInventory.dto.ChangeEvent;
+import com.anujsamdariya07.nightshiftInventory.dto.OrderFilter;
+import com.anujsamdariya07.nightshiftInventory.dto.OrderPage;
 import com.anujsamdariya07.nightshiftInventory.entity.*;
-import com.anujsamdariya07.nightshiftInventory.repository.CustomerRepository;
 import com.anujsamdariya07.nightshiftInventory.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Service
 public class OrderService {
@@ -22,85 +36,175 @@ public class OrderService {
     @Autowired
     private EmployeeService employeeService;
     @Autowired
-    private CustomerRepository customerRepository;
+    private CustomerService customerService;
+    @Autowired
+    private SequenceService sequenceService;
+    @Autowired
+    private OrganizationService organizationService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ChangeFeedService changeFeedService;
+    @Autowired
+    private ChangeVersionService changeVersionService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final List<String> CREATE_STAGES = List.of("sequence", "reserve", "save", "counter", "customer", "version", "publish");
+
+    // Registered once: looking a meter up by name and tags on every order is a measurable share of
+    // the cheaper stages it times
+    private Map<String, Timer> createTimers;
+
+    @PostConstruct
+    void registerTimers() {
+        Map<String, Timer> timers = new HashMap<>();
+        for (String stage : CREATE_STAGES) {
+            timers.put(stage, Timer.builder("nightshift.orders.create")
+                    .description("Time spent in each step of creating an order")
+                    .tag("stage", stage)
+                    .register(meterRegistry));
+        }
+        createTimers = Map.copyOf(timers);
+    }
 
     public List<Order> getOrdersByOrgId(ObjectId orgId) {
         return orderRepository.findAllByOrgId(orgId);
     }
 
-    public Order getOrderById(ObjectId id) {
-        System.out.println("getOrderById");
-        Order order = orderRepository.findById(id).orElse(null);
-        if (order == null) System.out.println("null");
-        System.out.println("getOrderById2: " + order.getOrderId());
-        return order;
+    // Newest first, one page at a time. The cursor is the (orderDate, _id) of the last order of
+    // the previous page, so every page is a bounded index range scan however deep it is.
+    public OrderPage getOrdersPage(ObjectId orgId, OrderFilter filter, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Order> orders = mongoTemplate.find(pageQuery(orgId, filter, pageSize + 1), Order.class);
+
+        String nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            Order last = orders.get(pageSize - 1);
+            nextCursor = encodeCursor(last.getOrderDate(), last.getId());
+        }
+        return new OrderPage(orders, nextCursor);
     }
 
-    private String generateOrderId(ObjectId orgId) {
-        List<Order> orders = orderRepository.findAllByOrgId(orgId);
+    Query pageQuery(ObjectId orgId, OrderFilter filter, int limit) {
+        Criteria criteria = Criteria.where("orgId").is(orgId);
+        if (filter.getStatus() != null) criteria.and("status").is(filter.getStatus());
+        if (filter.getCustomerId() != null) criteria.and("customerId").is(filter.getCustomerId());
+        if (filter.getEmployeeId() != null) criteria.and("employeeId").is(filter.getEmployeeId());
 
-        int maxId = orders.stream()
-                .map(Order::getOrderId)
-                .filter(id -> id != null && id.startsWith("ORD-"))
-                .map(id -> id.substring(4))
-                .filter(num -> num.matches("\\d+"))
-                .mapToInt(Integer::parseInt)
-                .max()
-                .orElse(0);
-        System.out.println(maxId);
+        Criteria orderDate = null;
+        if (filter.getFrom() != null) orderDate = Criteria.where("orderDate").gte(filter.getFrom());
+        if (filter.getTo() != null) {
+            orderDate = orderDate == null ? Criteria.where("orderDate").lt(filter.getTo()) : orderDate.lt(filter.getTo());
+        }
+        if (filter.getCursor() != null) {
+            String[] position = decodeCursor(filter.getCursor());
+            Date lastDate = new Date(Long.parseLong(position[0]));
+            ObjectId lastId = new ObjectId(position[1]);
+            // Bounding orderDate keeps the scan on the index; the $or only settles ties on the same date
+            orderDate = orderDate == null ? Criteria.where("orderDate").lte(lastDate) : orderDate.lte(lastDate);
+            criteria.orOperator(
+                    Criteria.where("orderDate").lt(lastDate),
+                    Criteria.where("_id").lt(lastId));
+        }
 
-        int nextId = maxId + 1;
+        Query query = orderDate == null ? Query.query(criteria) : Query.query(criteria).addCriteria(orderDate);
+        return query.with(Sort.by(Sort.Direction.DESC, "orderDate", "_id")).limit(limit);
+    }
 
-        return String.format("ORD-%03d", nextId);
+    private String encodeCursor(Date orderDate, ObjectId id) {
+        String position = orderDate.getTime() + ":" + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
     }
 
+    private String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (position.length != 2 || !ObjectId.isValid(position[1])) throw new IllegalArgumentException();
+            Long.parseLong(position[0]);
+            return position;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor!");
+        }
+    }
+
+    public Order getOrderById(ObjectId id) {
+        return orderRepository.findById(id).orElse(null);
+    }
+
+    // The items, the customer and the order share one change version
     public Order createOrder(HttpServletRequest request, Order orderRequest) {
+        return changeVersionService.batch(orderRequest.getOrgId(), () -> create(orderRequest));
+    }
+
+    // Each step is timed as nightshift.orders.create{stage}, next to the Mongo command timings, to
+    // show where order creation spends its time
+    private Order create(Order orderRequest) {
+        // checked before an id is handed out, the reservation checks again
+        StockReservationService.validate(orderRequest.getItems());
+
         // generate orderId
-        String generatedOrderId = generateOrderId(orderRequest.getOrgId());
+        String generatedOrderId = stage("sequence", () -> sequenceService.nextId(orderRequest.getOrgId(), Sequence.Type.ORDER));
 
         // set server-generated fields
         orderRequest.setOrderId(generatedOrderId);
         orderRequest.setStatus(Order.OrderStatus.PENDING);
         orderRequest.setOrderDate(new Date());
 
-        // save directly
-        Order savedOrder = orderRepository.save(orderRequest);
+        // reserve stock before the order exists so a short line never leaves an orphan order behind
+        if (orderRequest.getItems() != null && !orderRequest.getItems().isEmpty()) {
+            stage("reserve", () -> itemService.deductByOrder(generatedOrderId, orderRequest.getItems(), orderRequest.getOrgId()));
+        }
 
-        // deduct items
-        if (savedOrder.getItems() != null && !savedOrder.getItems().isEmpty()) {
-            itemService.deductByOrder(savedOrder.getOrderId(), savedOrder.getItems(), savedOrder.getOrgId());
+        Order saved;
+        try {
+            saved = stage("save", () -> orderRepository.save(orderRequest));
+        } catch (RuntimeException e) {
+            if (orderRequest.getItems() != null && !orderRequest.getItems().isEmpty()) {
+                itemService.revertByOrder(orderRequest.getItems(), orderRequest.getOrgId());
+            }
+            throw e;
         }
+        Order savedOrder = saved;
+        stage("counter", () -> organizationService.incrementCount(savedOrder.getOrgId(), Organization.Counter.ORDERS, 1));
 
-        CustomerOrder order = CustomerOrder.builder()
-                .orderId(savedOrder.getOrderId())
-                .orderDate(savedOrder.getOrderDate())
-                .status(savedOrder.getStatus())
-                .totalAmount(savedOrder.getTotalAmount())
-                .build();
-
-        Optional<Customer> customer = customerRepository.findByOrgIdAndCustomerId(orderRequest.getOrgId(), orderRequest.getCustomerId());
-        customer.ifPresent(value -> {
-            if (value.getOrders() == null) value.setOrders(new ArrayList<>());
-            value.getOrders().add(order);
-        });
-        customerRepository.save(customer.get());
+        stage("customer", () -> customerService.recordOrder(savedOrder.getOrgId(), savedOrder.getCustomerId(), CustomerService.toCustomerOrder(savedOrder)));
 
+        stage("version", () -> savedOrder.setChangeVersion(changeVersionService.stamp(savedOrder.getOrgId(), Order.class, savedOrder.getId())));
+        stage("publish", () -> changeFeedService.publish(savedOrder.getOrgId(), ChangeEvent.Entity.ORDER, ChangeEvent.Action.CREATED, savedOrder.getId(), savedOrder.getChangeVersion()));
         return savedOrder;
     }
 
+    private <T> T stage(String stage, Supplier<T> step) {
+        return createTimers.get(stage).record(step);
+    }
+
+    private void stage(String stage, Runnable step) {
+        createTimers.get(stage).record(step);
+    }
+
     public Order updateOrder(ObjectId id, Order orderRequest) {
         Order existingOrder = getOrderById(id);
         if (existingOrder == null) {
             throw new RuntimeException("Order not found!");
         }
+        return changeVersionService.batch(existingOrder.getOrgId(), () -> update(existingOrder, orderRequest));
+    }
 
-        if (orderRequest.getItems() != null) {
-            if (!orderRequest.getItems().isEmpty()) {
-                System.out.println(existingOrder.getItems() != null);
-                itemService.revertByOrder(existingOrder.getItems(), existingOrder.getOrgId());
+    private Order update(Order existingOrder, Order orderRequest) {
+        ObjectId id = existingOrder.getId();
+        CustomerOrder previous = CustomerService.toCustomerOrder(existingOrder);
+        String previousCustomerId = existingOrder.getCustomerId();
+        ArrayList<OrderItem> previousItems = existingOrder.getItems();
+        long revision = existingOrder.getRevision();
 
-                itemService.deductByOrder(orderRequest.getOrderId(), orderRequest.getItems(), existingOrder.getOrgId());
-            }
+        // only the items whose quantity changed move stock, and only by the difference
+        boolean adjusted = orderRequest.getItems() != null;
+        if (adjusted) {
+            itemService.adjustByOrder(existingOrder.getOrderId(), previousItems, orderRequest.getItems(), existingOrder.getOrgId());
         }
 
         if (orderRequest.getCustomerId() != null && !orderRequest.getCustomerId().equals(existingOrder.getCustomerId())) {
@@ -131,36 +235,56 @@ public class OrderService {
             existingOrder.setDeadline(orderRequest.getDeadline());
         }
 
-        Order updatedOrder = orderRepository.save(existingOrder);
-
-        Optional<Customer> customerOpt = customerRepository.findByOrgIdAndCustomerId(
-                updatedOrder.getOrgId(), updatedOrder.getCustomerId());
-
-        customerOpt.ifPresent(customer -> {
-            if (customer.getOrders() != null) {
-                for (CustomerOrder co : customer.getOrders()) {
-                    if (co.getOrderId().equals(updatedOrder.getOrderId())) {
-                        co.setOrderDate(updatedOrder.getOrderDate());
-                        co.setStatus(updatedOrder.getStatus());
-                        co.setTotalAmount(updatedOrder.getTotalAmount());
-                        break;
-                    }
-                }
-                customerRepository.save(customer);
+        // Written only if nobody else updated the order since it was read. The loser of two concurrent
+        // edits takes its stock delta back unconditionally, so the difference is only ever applied
+        // against the items the order really had, and the caller gets the conflict.
+        existingOrder.setRevision(revision + 1);
+        Criteria unchanged = revision == 0
+                ? Criteria.where("revision").in(0L, null)
+                : Criteria.where("revision").is(revision);
+        Order replaced = mongoTemplate.findAndReplace(Query.query(Criteria.where("_id").is(id)).addCriteria(unchanged), existingOrder);
+        if (replaced == null) {
+            if (adjusted) {
+                itemService.undoAdjustByOrder(existingOrder.getOrderId(), previousItems, orderRequest.getItems(), existingOrder.getOrgId());
             }
-        });
+            throw new OptimisticLockingFailureException("The order was changed by someone else, please reload it!");
+        }
+        Order updatedOrder = existingOrder;
 
+        CustomerOrder current = CustomerService.toCustomerOrder(updatedOrder);
+        if (updatedOrder.getCustomerId() != null && !updatedOrder.getCustomerId().equals(previousCustomerId)) {
+            customerService.removeOrder(updatedOrder.getOrgId(), previousCustomerId, previous);
+            customerService.recordOrder(updatedOrder.getOrgId(), updatedOrder.getCustomerId(), current);
+        } else {
+            customerService.updateOrder(updatedOrder.getOrgId(), updatedOrder.getCustomerId(), current, previous.getTotalAmount());
+        }
+
+        updatedOrder.setChangeVersion(changeVersionService.stamp(updatedOrder.getOrgId(), Order.class, updatedOrder.getId()));
+        changeFeedService.publish(updatedOrder.getOrgId(), ChangeEvent.Entity.ORDER, ChangeEvent.Action.UPDATED, updatedOrder.getId(), updatedOrder.getChangeVersion());
         return updatedOrder;
     }
 
-    public void deleteOrder(ObjectId id) {
-        Order existingOrder = getOrderById(id);
-        if (existingOrder != null && existingOrder.getItems() != null && !existingOrder.getItems().isEmpty()) {
-            System.out.println(existingOrder.getOrderId());
+    // False when there was no such order. Deleted first: of two deletes racing, only the one that
+    // actually removed the order puts its stock back and moves the counters.
+    public boolean deleteOrder(ObjectId id) {
+        Order existingOrder = orderRepository.deleteOrderById(id);
+        if (existingOrder == null) {
+            return false;
+        }
+        return changeVersionService.batch(existingOrder.getOrgId(), () -> {
+            revert(existingOrder);
+            return true;
+        });
+    }
+
+    private void revert(Order existingOrder) {
+        ObjectId id = existingOrder.getId();
+        if (existingOrder.getItems() != null && !existingOrder.getItems().isEmpty()) {
             itemService.revertByOrder(existingOrder.getItems(), existingOrder.getOrgId());
-            orderRepository.deleteById(id);
-        } else {
-            throw new RuntimeException("Order not found!");
         }
+        organizationService.incrementCount(existingOrder.getOrgId(), Organization.Counter.ORDERS, -1);
+        customerService.removeOrder(existingOrder.getOrgId(), existingOrder.getCustomerId(), CustomerService.toCustomerOrder(existingOrder));
+        long version = changeVersionService.recordDeletion(existingOrder.getOrgId(), ChangeEvent.Entity.ORDER, id);
+        changeFeedService.publish(existingOrder.getOrgId(), ChangeEvent.Entity.ORDER, ChangeEvent.Action.DELETED, id, version);
     }
 }
@@ -2,16 +2,27 @@ package com.anujsamdariya07.nightshiftInventory.services;
 
 import com.anujsamdariya07.nightshiftInventory.entity.Organization;
 import com.anujsamdariya07.nightshiftInventory.repository.OrganizationRepository;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Optional;
 
 @Service
 public class OrganizationService {
+    // The @DBRef arrays organizations used to carry before the counters replaced them
+    private static final List<String> LEGACY_REFERENCE_FIELDS = List.of("employeeDetails", "orders", "customers", "items", "vendors");
+
     @Autowired
     public OrganizationRepository organizationRepository;
+    @Autowired
+    private MongoTemplate mongoTemplate;
 
     public Optional<Organization> findOrgById(ObjectId orgId) {
         return organizationRepository.findById(orgId);
@@ -36,4 +47,39 @@ public class OrganizationService {
     public void deleteOrgById(ObjectId orgId) {
         organizationRepository.deleteById(orgId);
     }
+
+    public void incrementCount(ObjectId orgId, Organization.Counter counter, long delta) {
+        if (orgId == null || delta == 0) return;
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(orgId)),
+                new Update().inc(counter.getField(), delta),
+                Organization.class
+        );
+    }
+
+    // Replaces the legacy @DBRef arrays with counters computed from the orgId-scoped collections.
+    // Only organizations that still carry one of the arrays are touched, so re-running is free.
+    public int migrateReferenceArrays() {
+        Criteria[] legacy = LEGACY_REFERENCE_FIELDS.stream()
+                .map(field -> Criteria.where(field).exists(true))
+                .toArray(Criteria[]::new);
+        Query query = Query.query(new Criteria().orOperator(legacy));
+        query.fields().include("_id");
+
+        String collection = mongoTemplate.getCollectionName(Organization.class);
+        List<Document> organizations = mongoTemplate.find(query, Document.class, collection);
+        for (Document organization : organizations) {
+            ObjectId orgId = organization.getObjectId("_id");
+
+            Update update = new Update();
+            for (Organization.Counter counter : Organization.Counter.values()) {
+                long count = mongoTemplate.count(Query.query(Criteria.where("orgId").is(orgId)), counter.getEntityClass());
+                update.set(counter.getField(), count);
+            }
+            LEGACY_REFERENCE_FIELDS.forEach(update::unset);
+
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(orgId)), update, collection);
+        }
+        return organizations.size();
+    }
 }
@@ -0,0 +1,138 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs every BCrypt hash and check on a small pool of its own, so a burst of logins at shift change
+// can only ever use that many cores and the rest of the API keeps its CPU. Work beyond the pool waits
+// in a short queue, so whatever is accepted starts within a few hash times. When the queue is full it
+// fails right away with a RejectedExecutionException, which the controllers answer with 503 and
+// Retry-After, instead of holding the request thread. A caller that still hasn't got its answer after
+// the timeout gives up the same way.
+@Service
+public class PasswordHasher {
+    private static final String BUSY = "Too many password checks in progress, please try again shortly!";
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Also the cost of the PasswordEncoder bean. Stored hashes with another cost are redone on login.
+    @Value("${nightshift.passwords.cost:10}")
+    private int cost;
+
+    // 0 uses half the cores
+    @Value("${nightshift.passwords.threads:0}")
+    private int threads;
+
+    // 0 allows two waiting per thread
+    @Value("${nightshift.passwords.queue:0}")
+    private int queueSize;
+
+    @Value("${nightshift.passwords.timeout:5s}")
+    private Duration timeout;
+
+    private ExecutorService executor;
+    private ThreadPoolExecutor pool;
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger count = new AtomicInteger();
+        int queue = queueSize > 0 ? queueSize : size * 2;
+        pool = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue), runnable -> {
+            Thread thread = new Thread(runnable, "password-hasher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "passwords");
+        rejected = Counter.builder("nightshift.passwords.rejected")
+                .description("Password hashes and checks turned away because the pool was saturated")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) return false;
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // For work nobody waits on, such as rehashing after a login. Fails right away when the pool is
+    // saturated, the caller can simply try again next time.
+    public CompletableFuture<String> encodeLater(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // True when the hash was made with another cost than the configured one, raised or lowered
+    public boolean needsRehash(String encodedPassword) {
+        // $2a$10$<salt and hash>
+        if (encodedPassword == null || !encodedPassword.startsWith("$2")) return false;
+        String[] parts = encodedPassword.split("\\$");
+        if (parts.length < 4) return false;
+        try {
+            return Integer.parseInt(parts[2]) != cost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RejectedExecutionException(BUSY, e);
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            rejected.increment();
+            throw new RejectedExecutionException(BUSY, e);
+        } catch (InterruptedException e) {
+            // Drops it if still queued, a hash already running finishes on its own
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(BUSY, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
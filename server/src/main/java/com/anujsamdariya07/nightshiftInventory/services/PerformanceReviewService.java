@@ -4,6 +4,11 @@ import com.anujsamdariya07.nightshiftInventory.entity.PerformanceReview;
 import com.anujsamdariya07.nightshiftInventory.repository.PerformanceReviewRepository;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
@@ -14,6 +19,8 @@ import java.util.Optional;
 public class PerformanceReviewService {
     @Autowired
     private PerformanceReviewRepository performanceReviewRepository;
+    @Autowired
+    private MongoTemplate mongoTemplate;
 
     //    Create review
     public PerformanceReview addReview(PerformanceReview performanceReviewData) {
@@ -22,13 +29,13 @@ public class PerformanceReviewService {
     }
 
     //    Get all reviews received by an employee
-    public List<PerformanceReview> getReviewsReceived(String employeeId) {
-        return performanceReviewRepository.findByEmployeeId(employeeId);
+    public List<PerformanceReview> getReviewsReceived(ObjectId orgId, String employeeId) {
+        return performanceReviewRepository.findByOrgIdAndEmployeeId(orgId, employeeId);
     }
 
     //    Get all reviews given by the employee
-    public List<PerformanceReview> getReviewsGiven(String reviewerId) {
-        return performanceReviewRepository.findByReviewerId(reviewerId);
+    public List<PerformanceReview> getReviewsGiven(ObjectId orgId, String reviewerId) {
+        return performanceReviewRepository.findByOrgIdAndReviewerId(orgId, reviewerId);
     }
 
     //    Get review by id
@@ -37,26 +44,25 @@ public class PerformanceReviewService {
     }
 
     //    Update a review
-    public PerformanceReview updateReview(ObjectId id, PerformanceReview performanceReviewData) {
-        System.out.println("Update Employee Service!");
-        PerformanceReview reviewById = performanceReviewRepository.findById(id).orElseThrow(() -> new RuntimeException("Review not found!"));
-
-        if (!performanceReviewData.getComments().equals(reviewById.getComments())) {
-            System.out.println("Update Comments!");
-            reviewById.setComments(performanceReviewData.getComments());
+    // Written only if the rating is still the one that was read, so the caller can move the employee's
+    // summary by the difference. Null when someone else changed the rating in between.
+    public PerformanceReview updateReview(PerformanceReview reviewById, PerformanceReview performanceReviewData) {
+        Update update = new Update().set("reviewDate", new Date());
+        if (performanceReviewData.getComments() != null && !performanceReviewData.getComments().equals(reviewById.getComments())) {
+            update.set("comments", performanceReviewData.getComments());
         }
 
-        if (!performanceReviewData.getRating().equals(reviewById.getRating())) {
-            System.out.println("Update Rating!");
-            reviewById.setRating(performanceReviewData.getRating());
+        if (performanceReviewData.getRating() != null && !performanceReviewData.getRating().equals(reviewById.getRating())) {
+            update.set("rating", performanceReviewData.getRating());
         }
-        reviewById.setReviewDate(new Date());
 
-        return performanceReviewRepository.save(reviewById);
+        Query query = Query.query(Criteria.where("_id").is(reviewById.getId()).and("rating").is(reviewById.getRating()));
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), PerformanceReview.class);
     }
 
     //    Delete a review
-    public void deleteReview(ObjectId id) {
-        performanceReviewRepository.deleteById(id);
+    // The review as it was removed, null when it was already gone. Of two deletes racing only one gets it.
+    public PerformanceReview deleteReview(ObjectId id) {
+        return performanceReviewRepository.deleteReviewById(id);
     }
 }
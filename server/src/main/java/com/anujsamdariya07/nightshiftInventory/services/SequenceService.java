@@ -0,0 +1,124 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Sequence;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class SequenceService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // How many values a single allocation grabs from the sequences collection. Anything above 1 keeps
+    // a hi/lo block in memory, which saves round trips on bulk paths but leaves gaps on restart and
+    // lets ids from different instances interleave.
+    @Value("${nightshift.sequences.block-size:1}")
+    private int blockSize;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    private final Set<String> seeded = ConcurrentHashMap.newKeySet();
+
+    public String nextId(ObjectId orgId, Sequence.Type type) {
+        String key = key(orgId, type);
+        if (blockSize <= 1) {
+            return type.format(allocate(orgId, type, 1));
+        }
+
+        Block block = blocks.computeIfAbsent(key, k -> new Block());
+        synchronized (block) {
+            if (block.next > block.last) {
+                long hi = allocate(orgId, type, blockSize);
+                block.next = hi - blockSize + 1;
+                block.last = hi;
+            }
+            return type.format(block.next++);
+        }
+    }
+
+    // Hands out count consecutive ids with a single $inc, for callers creating many documents at once.
+    public List<String> nextIds(ObjectId orgId, Sequence.Type type, int count) {
+        List<String> ids = new ArrayList<>(count);
+        if (count <= 0) return ids;
+
+        long hi = allocate(orgId, type, count);
+        for (long value = hi - count + 1; value <= hi; value++) {
+            ids.add(type.format(value));
+        }
+        return ids;
+    }
+
+    private long allocate(ObjectId orgId, Sequence.Type type, int count) {
+        String key = key(orgId, type);
+        if (!seeded.contains(key)) {
+            seed(orgId, type, key);
+        }
+
+        Sequence sequence = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(key)),
+                new Update().inc("value", count)
+                        .setOnInsert("orgId", orgId)
+                        .setOnInsert("prefix", type.getPrefix()),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Sequence.class
+        );
+        return sequence.getValue();
+    }
+
+    // Orgs created before the sequences collection existed already have ids handed out, so the first
+    // allocation for a key starts from the highest existing id. This scans the org's documents once;
+    // $max keeps it safe when another instance seeds or allocates at the same time.
+    private void seed(ObjectId orgId, Sequence.Type type, String key) {
+        if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(key)), Sequence.class)) {
+            seeded.add(key);
+            return;
+        }
+
+        Query query = Query.query(Criteria.where("orgId").is(orgId));
+        query.fields().include(type.getIdField());
+
+        String collection = mongoTemplate.getCollectionName(type.getEntityClass());
+        List<Document> documents = mongoTemplate.find(query, Document.class, collection);
+
+        long max = documents.isEmpty() ? type.getFloor() : documents.stream()
+                .map(document -> document.getString(type.getIdField()))
+                .filter(id -> id != null && id.startsWith(type.getPrefix() + "-"))
+                .map(id -> id.substring(type.getPrefix().length() + 1))
+                .filter(num -> num.matches("\\d+"))
+                .mapToLong(Long::parseLong)
+                .max()
+                .orElse(0);
+
+        mongoTemplate.upsert(
+                Query.query(Criteria.where("_id").is(key)),
+                new Update().max("value", max)
+                        .setOnInsert("orgId", orgId)
+                        .setOnInsert("prefix", type.getPrefix()),
+                Sequence.class
+        );
+        seeded.add(key);
+    }
+
+    private String key(ObjectId orgId, Sequence.Type type) {
+        return orgId.toHexString() + ":" + type.getPrefix();
+    }
+
+    private static class Block {
+        private long next = 1;
+        private long last = 0;
+    }
+}
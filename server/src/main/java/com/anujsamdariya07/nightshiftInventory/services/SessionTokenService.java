@@ -0,0 +1,222 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Employee;
+import com.anujsamdariya07.nightshiftInventory.entity.RevokedSession;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Issues and verifies the signed session tokens carried in the loggedInUser cookie. A token is
+// <key id>.<base64url claims>.<base64url HMAC-SHA256 of the first two parts>, so the caller's
+// employee, org and role are known without a database read.
+@Slf4j
+@Service
+public class SessionTokenService {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final Duration REVOCATION_OVERLAP = Duration.ofMinutes(1);
+    public static final String REQUEST_ATTRIBUTE = "nightshift.session";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private Environment environment;
+
+    // Comma separated <key id>:<base64 secret> pairs. Tokens are signed with the active key and
+    // verified with whichever key they name, so a new key can be rolled in before the old one is
+    // dropped from the list. Required outside the dev profile (the data generator never issues any).
+    @Value("${nightshift.session.keys:}")
+    private String configuredKeys;
+
+    @Value("${nightshift.session.active-key-id:}")
+    private String activeKeyId;
+
+    @Value("${nightshift.session.ttl:24h}")
+    private Duration ttl;
+
+    private final Map<String, byte[]> keys = new LinkedHashMap<>();
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> revokedEmployees = new ConcurrentHashMap<>();
+
+    private volatile Date revocationsSeenUntil = new Date(0);
+
+    @PostConstruct
+    void loadKeys() {
+        for (String entry : configuredKeys.split(",")) {
+            if (entry.isBlank()) continue;
+            String[] parts = entry.trim().split(":", 2);
+            keys.put(parts[0], Base64.getDecoder().decode(parts[1]));
+        }
+        // A random key logs everyone out on every restart and makes each instance reject the
+        // others' tokens, so it is only good enough for a developer's machine
+        if (keys.isEmpty()) {
+            if (!environment.acceptsProfiles(Profiles.of("dev | generate"))) {
+                throw new IllegalStateException("No nightshift.session.keys configured, refusing to start outside the dev profile");
+            }
+            log.warn("No nightshift.session.keys configured, sessions will not survive a restart");
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            keys.put("ephemeral", secret);
+        }
+        if (activeKeyId.isBlank() || !keys.containsKey(activeKeyId)) {
+            activeKeyId = keys.keySet().iterator().next();
+        }
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public String issue(Employee employee) {
+        long now = System.currentTimeMillis();
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("jti", UUID.randomUUID().toString());
+        claims.put("sub", employee.getId().toHexString());
+        claims.put("org", employee.getOrgId().toHexString());
+        claims.put("orgName", employee.getOrgName());
+        claims.put("eid", employee.getEmployeeId());
+        claims.put("name", employee.getName());
+        claims.put("role", employee.getRole().name());
+        claims.put("iat", now);
+        claims.put("exp", now + ttl.toMillis());
+
+        try {
+            String payload = ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            String signed = activeKeyId + "." + payload;
+            return signed + "." + ENCODER.encodeToString(sign(keys.get(activeKeyId), signed));
+        } catch (JsonProcessingException | GeneralSecurityException e) {
+            throw new RuntimeException("Could not issue session token!", e);
+        }
+    }
+
+    // Returns the caller described by the token, or empty when it is malformed, forged, expired or
+    // revoked. The returned employee only carries the fields held in the token.
+    public Optional<Session> verify(String token) {
+        if (token == null) return Optional.empty();
+
+        String[] parts = token.split("\\.");
+        if (parts.length != 3 || !keys.containsKey(parts[0])) return Optional.empty();
+
+        try {
+            byte[] expected = sign(keys.get(parts[0]), parts[0] + "." + parts[1]);
+            if (!MessageDigest.isEqual(expected, DECODER.decode(parts[2]))) return Optional.empty();
+
+            Map<?, ?> claims = objectMapper.readValue(DECODER.decode(parts[1]), Map.class);
+            long issuedAt = ((Number) claims.get("iat")).longValue();
+            long expiresAt = ((Number) claims.get("exp")).longValue();
+            String tokenId = (String) claims.get("jti");
+            String subject = (String) claims.get("sub");
+
+            if (expiresAt <= System.currentTimeMillis()) return Optional.empty();
+            if (revokedTokens.containsKey(tokenId)) return Optional.empty();
+            Long revokedBefore = revokedEmployees.get(subject);
+            if (revokedBefore != null && issuedAt < revokedBefore) return Optional.empty();
+
+            Employee employee = Employee.builder()
+                    .id(new ObjectId(subject))
+                    .orgId(new ObjectId((String) claims.get("org")))
+                    .orgName((String) claims.get("orgName"))
+                    .employeeId((String) claims.get("eid"))
+                    .name((String) claims.get("name"))
+                    .role(Employee.Role.valueOf((String) claims.get("role")))
+                    .build();
+            return Optional.of(new Session(tokenId, expiresAt, employee));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    public Optional<Session> fromRequest(HttpServletRequest request) {
+        Object session = request.getAttribute(REQUEST_ATTRIBUTE);
+        return session instanceof Session ? Optional.of((Session) session) : Optional.empty();
+    }
+
+    public void revokeToken(Session session) {
+        revokedTokens.put(session.tokenId(), session.expiresAt());
+        mongoTemplate.insert(RevokedSession.builder()
+                .tokenId(session.tokenId())
+                .revokedAt(new Date())
+                .expiresAt(new Date(session.expiresAt()))
+                .build());
+    }
+
+    // Invalidates every token the employee was issued up to now, e.g. after a password change.
+    public void revokeEmployee(ObjectId employeeId) {
+        long now = System.currentTimeMillis();
+        revokedEmployees.merge(employeeId.toHexString(), now, Math::max);
+        mongoTemplate.insert(RevokedSession.builder()
+                .employeeId(employeeId.toHexString())
+                .revokedAt(new Date(now))
+                .expiresAt(new Date(now + ttl.toMillis()))
+                .build());
+    }
+
+    // Picks up revocations made by other instances and forgets the ones no token can match anymore.
+    // The window overlaps the previous read a little so clock skew between instances can't hide an
+    // entry; re-reading one is harmless.
+    @Scheduled(fixedDelayString = "${nightshift.session.revocation-refresh:PT30S}")
+    public void refreshRevocations() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedEmployees.values().removeIf(revokedAt -> revokedAt + ttl.toMillis() <= now);
+
+        try {
+            Date since = new Date(revocationsSeenUntil.getTime() - REVOCATION_OVERLAP.toMillis());
+            Query query = Query.query(Criteria.where("revokedAt").gt(since));
+            for (RevokedSession revoked : mongoTemplate.find(query, RevokedSession.class)) {
+                if (revoked.getTokenId() != null) {
+                    revokedTokens.put(revoked.getTokenId(), revoked.getExpiresAt().getTime());
+                }
+                if (revoked.getEmployeeId() != null) {
+                    revokedEmployees.merge(revoked.getEmployeeId(), revoked.getRevokedAt().getTime(), Math::max);
+                }
+                if (revoked.getRevokedAt().after(revocationsSeenUntil)) {
+                    revocationsSeenUntil = revoked.getRevokedAt();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh revoked sessions: {}", e.getMessage());
+        }
+    }
+
+    private byte[] sign(byte[] key, String value) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public record Session(String tokenId, long expiresAt, Employee employee) {
+    }
+}
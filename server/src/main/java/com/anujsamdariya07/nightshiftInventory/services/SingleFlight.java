@@ -0,0 +1,58 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Lets concurrent callers asking for the same key share one call of the loader: the first one runs
+// it, the ones arriving while it runs wait for its result (or its exception) instead of running it
+// again. Nothing is kept once the call is done.
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter calls;
+    private final Counter shared;
+
+    public SingleFlight(MeterRegistry meterRegistry, String name) {
+        calls = Counter.builder("nightshift.singleflight.calls")
+                .description("Loads requested")
+                .tag("name", name)
+                .register(meterRegistry);
+        shared = Counter.builder("nightshift.singleflight.shared")
+                .description("Loads answered by a call already in flight for the same key")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public V run(K key, Supplier<V> loader) {
+        calls.increment();
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            shared.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error cause) throw cause;
+                throw e;
+            }
+        }
+
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+}
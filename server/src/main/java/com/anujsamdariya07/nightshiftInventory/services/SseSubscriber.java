@@ -0,0 +1,70 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// One open SSE stream with a bounded buffer, drained on the owning service's dispatcher so a slow
+// client can't hold up the write that published the event. offer() returns false once the buffer
+// is full or the stream broke; the owner then drops the subscriber and disconnects it, and the
+// client catches up (or reloads) when it reconnects. Shared by the change feed, the low-stock
+// stream and message delivery.
+class SseSubscriber {
+    private final Queue<SseEmitter.SseEventBuilder> buffer;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Executor dispatcher;
+    private final SseEmitter emitter;
+    private volatile boolean closed;
+
+    SseSubscriber(Duration timeout, int capacity, Executor dispatcher) {
+        this.emitter = new SseEmitter(timeout.toMillis());
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.dispatcher = dispatcher;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    // Runs when the stream ends for any reason: completed, timed out or broken
+    void onClose(Runnable callback) {
+        emitter.onCompletion(callback);
+        emitter.onTimeout(callback);
+        emitter.onError(e -> callback.run());
+    }
+
+    // Sending an event builder consumes it, so every subscriber needs its own
+    boolean offer(SseEmitter.SseEventBuilder event) {
+        if (closed || !buffer.offer(event)) return false;
+        if (draining.compareAndSet(false, true)) dispatcher.execute(this::drain);
+        return true;
+    }
+
+    void disconnect() {
+        closed = true;
+        buffer.clear();
+        emitter.complete();
+    }
+
+    private void drain() {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = buffer.poll()) != null) {
+                emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            closed = true;
+            buffer.clear();
+            return;
+        } finally {
+            draining.set(false);
+        }
+        // An event may have been queued after the last poll but before the flag was cleared
+        if (!buffer.isEmpty() && draining.compareAndSet(false, true)) dispatcher.execute(this::drain);
+    }
+}
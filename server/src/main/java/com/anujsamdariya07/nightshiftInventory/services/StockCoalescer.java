@@ -0,0 +1,244 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Groups concurrent stock decrements of the same item into one conditional $inc per window, so a
+// hot item takes one write per window instead of one per order line. Every caller still gets its
+// own answer: the batch is granted whole when the stock covers it, otherwise first come first
+// served on what is left. A request no flush has picked up within max-wait is taken out of its
+// batch and written on its own by the caller, so a backed up scheduler can't hold requests.
+@Service
+public class StockCoalescer {
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${nightshift.stock.coalescing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${nightshift.stock.coalescing.window:5ms}")
+    private Duration window;
+
+    @Value("${nightshift.stock.coalescing.threads:4}")
+    private int threads;
+
+    @Value("${nightshift.stock.coalescing.max-wait:50ms}")
+    private Duration maxWait;
+
+    private final Map<Key, Batch> batches = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private Counter requests;
+    private Counter writes;
+    private Counter rejections;
+    private Counter fallbacks;
+    private DistributionSummary batchSize;
+    private Timer wait;
+
+    @PostConstruct
+    void init() {
+        requests = Counter.builder("nightshift.stock.coalescer.requests")
+                .description("Stock decrements submitted to the coalescer")
+                .register(meterRegistry);
+        writes = Counter.builder("nightshift.stock.coalescer.writes")
+                .description("Conditional $inc writes issued for them; requests / writes is the coalescing ratio")
+                .register(meterRegistry);
+        rejections = Counter.builder("nightshift.stock.coalescer.rejections")
+                .description("Decrements refused for insufficient stock")
+                .register(meterRegistry);
+        fallbacks = Counter.builder("nightshift.stock.coalescer.fallbacks")
+                .description("Decrements written on their own because no batch picked them up within max-wait")
+                .register(meterRegistry);
+        batchSize = DistributionSummary.builder("nightshift.stock.coalescer.batch.size")
+                .description("Decrements folded into one batch")
+                .register(meterRegistry);
+        wait = Timer.builder("nightshift.stock.coalescer.wait")
+                .description("Time from submitting a decrement to getting its answer")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        if (enabled) scheduler = Executors.newScheduledThreadPool(threads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) scheduler.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Completes with true once the quantity has been taken off the item, false when there wasn't
+    // enough stock (or no such item). Wait for it with await.
+    public CompletableFuture<Boolean> decrement(ObjectId orgId, String itemId, int quantity) {
+        Key key = new Key(orgId, itemId);
+        Request request = new Request(key, quantity);
+        requests.increment();
+
+        batches.compute(key, (k, batch) -> {
+            if (batch == null) {
+                Batch created = new Batch();
+                scheduler.schedule(() -> flush(k, created), window.toNanos(), TimeUnit.NANOSECONDS);
+                batch = created;
+            }
+            batch.requests.add(request);
+            return batch;
+        });
+        return request;
+    }
+
+    // The answer to a decrement, waiting at most max-wait for a flush to pick it up. After that the
+    // request is withdrawn from its batch and taken with a conditional write of its own; only when a
+    // flush already has it does this keep waiting, for that flush's writes.
+    public boolean await(CompletableFuture<Boolean> result) {
+        try {
+            return result.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            // taken over below
+        }
+        if (result instanceof Request request && request.claim()) {
+            fallbacks.increment();
+            return request.answer(take(request.key, request.quantity));
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        return cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause);
+    }
+
+    private void flush(Key key, Batch batch) {
+        // Once removed no more requests can join this batch, later ones start the next window
+        batches.remove(key, batch);
+        List<Request> pending = new ArrayList<>(batch.requests);
+        pending.removeIf(request -> !request.claim());
+        if (pending.isEmpty()) return;
+        batchSize.record(pending.size());
+        try {
+            settle(key, pending);
+        } catch (RuntimeException e) {
+            pending.forEach(request -> request.completeExceptionally(e));
+        }
+    }
+
+    private void settle(Key key, List<Request> pending) {
+        int total = pending.stream().mapToInt(request -> request.quantity).sum();
+        if (take(key, total)) {
+            pending.forEach(request -> request.answer(true));
+            return;
+        }
+
+        // Not enough for everyone: grant in arrival order what the current stock covers. The write is
+        // still conditional, so if another writer got in between we look again.
+        for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+            Query query = itemQuery(key);
+            query.fields().include("quantity");
+            Item item = mongoTemplate.findOne(query, Item.class);
+            if (item == null) break;
+
+            int remaining = item.getQuantity();
+            Set<Request> granted = new HashSet<>();
+            for (Request request : pending) {
+                if (request.quantity <= remaining) {
+                    granted.add(request);
+                    remaining -= request.quantity;
+                }
+            }
+            if (granted.isEmpty()) break;
+
+            if (take(key, item.getQuantity() - remaining)) {
+                for (Request request : pending) request.answer(granted.contains(request));
+                return;
+            }
+        }
+        pending.forEach(request -> request.answer(false));
+    }
+
+    private boolean take(Key key, int quantity) {
+        writes.increment();
+        Query query = itemQuery(key).addCriteria(Criteria.where("quantity").gte(quantity));
+        Update update = new Update()
+                .inc("quantity", -quantity)
+                .set("lastDateOfUpdate", new Date());
+        return mongoTemplate.updateFirst(query, update, Item.class).getModifiedCount() > 0;
+    }
+
+    private Query itemQuery(Key key) {
+        return Query.query(Criteria.where("orgId").is(key.orgId()).and("itemId").is(key.itemId()));
+    }
+
+    private record Key(ObjectId orgId, String itemId) {
+    }
+
+    private static class Batch {
+        private final List<Request> requests = new ArrayList<>();
+    }
+
+    private class Request extends CompletableFuture<Boolean> {
+        private final Key key;
+        private final int quantity;
+        private final long submittedAt = System.nanoTime();
+        // Set by whichever settles the request first, its batch's flush or a caller that gave up waiting
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Request(Key key, int quantity) {
+            this.key = key;
+            this.quantity = quantity;
+        }
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private boolean answer(boolean granted) {
+            if (!granted) rejections.increment();
+            wait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            complete(granted);
+            return granted;
+        }
+    }
+}
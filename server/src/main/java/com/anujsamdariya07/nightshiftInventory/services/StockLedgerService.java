@@ -0,0 +1,95 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.StockMovement;
+import com.anujsamdariya07.nightshiftInventory.entity.UpdateHistory;
+import com.anujsamdariya07.nightshiftInventory.repository.StockMovementRepository;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class StockLedgerService {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public StockMovement record(ObjectId orgId, String itemId, UpdateHistory updateHistory) {
+        return stockMovementRepository.insert(toMovement(orgId, itemId, updateHistory));
+    }
+
+    public void recordAll(List<StockMovement> movements) {
+        if (movements.isEmpty()) return;
+        stockMovementRepository.insert(movements);
+    }
+
+    public Slice<StockMovement> getHistory(ObjectId orgId, String itemId, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        return stockMovementRepository.findByOrgIdAndItemIdOrderByDateDesc(orgId, itemId, pageRequest);
+    }
+
+    public StockMovement toMovement(ObjectId orgId, String itemId, UpdateHistory updateHistory) {
+        return StockMovement.builder()
+                .orgId(orgId)
+                .itemId(itemId)
+                .vendorName(updateHistory.getVendorName())
+                .vendorId(updateHistory.getVendorId())
+                .orderName(updateHistory.getOrderName())
+                .orderId(updateHistory.getOrderId())
+                .quantityUpdated(updateHistory.getQuantityUpdated())
+                .cost(updateHistory.getCost())
+                .updateType(updateHistory.getUpdateType())
+                .date(updateHistory.getDate())
+                .build();
+    }
+
+    // Moves the histories that used to be embedded in item documents into the ledger, one item at a
+    // time: the entries are inserted first and the embedded array is unset afterwards, so an
+    // interrupted run never loses history (at worst the item being migrated is copied twice).
+    public int migrateEmbeddedHistory() {
+        String collection = mongoTemplate.getCollectionName(Item.class);
+        Query query = Query.query(Criteria.where("updateHistory").exists(true));
+        query.fields().include("orgId").include("itemId").include("updateHistory");
+
+        int migrated = 0;
+        try (Stream<Document> items = mongoTemplate.stream(query, Document.class, collection)) {
+            for (Document item : (Iterable<Document>) items::iterator) {
+                migrateItem(collection, item);
+                migrated++;
+            }
+        }
+        return migrated;
+    }
+
+    private void migrateItem(String collection, Document item) {
+        ObjectId orgId = item.getObjectId("orgId");
+        String itemId = item.getString("itemId");
+
+        List<StockMovement> movements = new ArrayList<>();
+        for (Document entry : item.getList("updateHistory", Document.class, new ArrayList<>())) {
+            UpdateHistory updateHistory = mongoTemplate.getConverter().read(UpdateHistory.class, entry);
+            movements.add(toMovement(orgId, itemId, updateHistory));
+        }
+        recordAll(movements);
+
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(item.getObjectId("_id"))),
+                new Update().unset("updateHistory"),
+                collection
+        );
+    }
+}
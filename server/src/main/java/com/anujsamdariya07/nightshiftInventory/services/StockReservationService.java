@@ -0,0 +1,319 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.OrderItem;
+import com.anujsamdariya07.nightshiftInventory.entity.StockMovement;
+import com.anujsamdariya07.nightshiftInventory.entity.UpdateHistory;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+public class StockReservationService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private StockLedgerService stockLedgerService;
+    @Autowired
+    private StockCoalescer stockCoalescer;
+    @Autowired
+    private ListCacheService listCacheService;
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    // Decrements every line of an order in a single ordered bulk write. Each line is a conditional
+    // upsert on (orgId, itemId, quantity >= requested): when the item is short the upsert collides
+    // with the unique (orgId, itemId) index and the bulk stops there. A missing item is turned away
+    // before anything is written. Whatever stops the bulk, the lines that did go through are compensated.
+    public void reserve(ObjectId orgId, String orderId, List<OrderItem> items) {
+        validate(items);
+        if (stockCoalescer.isEnabled()) {
+            reserveCoalesced(orgId, orderId, group(items));
+            return;
+        }
+        apply(orgId, orderId, group(items), new ArrayList<>());
+    }
+
+    // Same outcome as the bulk write, but each line waits for its item's next coalesced write so
+    // concurrent orders on a hot item share one $inc. Every line's answer is collected before
+    // deciding, and the granted lines are put back when any line was short or its batch failed.
+    private void reserveCoalesced(ObjectId orgId, String orderId, List<Line> lines) {
+        if (lines.isEmpty()) return;
+
+        Date now = new Date();
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (Line line : lines) {
+            results.add(stockCoalescer.decrement(orgId, line.itemId, line.quantity));
+        }
+
+        List<Line> reserved = new ArrayList<>();
+        Line shortLine = null;
+        RuntimeException failure = null;
+        for (int i = 0; i < lines.size(); i++) {
+            try {
+                if (stockCoalescer.await(results.get(i))) {
+                    reserved.add(lines.get(i));
+                } else if (shortLine == null) {
+                    shortLine = lines.get(i);
+                }
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+
+        if (shortLine == null && failure == null) {
+            stockLedgerService.recordAll(movements(orgId, reserved, orderId, UpdateHistory.UpdateTypes.ORDER, now));
+            return;
+        }
+        compensate(orgId, reserved, new ArrayList<>(), new ArrayList<>());
+        if (failure != null) throw failure;
+        throw new RuntimeException("Desired quantity unavailable for item " + shortLine.itemId + "!");
+    }
+
+    // Moves stock by the difference between the old and new lines of an edited order only: items
+    // whose quantity went up are reserved conditionally, items whose quantity went down are put
+    // back, and unchanged items aren't touched at all.
+    public void adjust(ObjectId orgId, String orderId, List<OrderItem> previousItems, List<OrderItem> items) {
+        validate(items);
+        List<Line> reserved = new ArrayList<>();
+        List<Line> released = new ArrayList<>();
+        difference(previousItems, items, reserved, released);
+        apply(orgId, orderId, reserved, released);
+    }
+
+    // Takes back an adjust that went through, for an edit that then couldn't be saved. Unconditional,
+    // so it can't fail for stock that was sold in the meantime.
+    public void undoAdjust(ObjectId orgId, String orderId, List<OrderItem> previousItems, List<OrderItem> items) {
+        List<Line> reserved = new ArrayList<>();
+        List<Line> released = new ArrayList<>();
+        difference(previousItems, items, reserved, released);
+        if (reserved.isEmpty() && released.isEmpty()) return;
+
+        Date now = new Date();
+        compensate(orgId, reserved, released, new ArrayList<>());
+        List<StockMovement> movements = movements(orgId, reserved, orderId, UpdateHistory.UpdateTypes.ORDERREVERT, now);
+        movements.addAll(movements(orgId, released, orderId, UpdateHistory.UpdateTypes.ORDER, now));
+        stockLedgerService.recordAll(movements);
+    }
+
+    private void difference(List<OrderItem> previousItems, List<OrderItem> items, List<Line> reserved, List<Line> released) {
+        Map<String, Line> previous = new LinkedHashMap<>();
+        for (Line line : group(previousItems)) previous.put(line.itemId, line);
+
+        for (Line line : group(items)) {
+            Line before = previous.remove(line.itemId);
+            int delta = line.quantity - (before != null ? before.quantity : 0);
+            if (delta > 0) reserved.add(line.delta(delta));
+            if (delta < 0) released.add(line.delta(-delta));
+        }
+        for (Line before : previous.values()) released.add(before.delta(before.quantity));
+    }
+
+    // Puts the stock of the given lines back, one unconditional $inc per item in a single bulk write.
+    public void release(ObjectId orgId, List<OrderItem> items) {
+        List<Line> lines = group(items);
+        if (lines.isEmpty()) return;
+
+        Date now = new Date();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Item.class);
+        lines.forEach(line -> bulk.updateOne(itemQuery(orgId, line), restock(line, now)));
+        bulk.execute();
+        stockLedgerService.recordAll(movements(orgId, lines, null, UpdateHistory.UpdateTypes.ORDERREVERT, now));
+    }
+
+    // Runs the conditional decrements followed by the restocks as one ordered bulk write. The
+    // restocks come last so a short item stops the bulk before any of them runs. Items are checked to
+    // exist first, so the upserts only insert a placeholder for an item deleted in between.
+    private void apply(ObjectId orgId, String orderId, List<Line> reserved, List<Line> released) {
+        if (reserved.isEmpty() && released.isEmpty()) return;
+        requireItems(orgId, reserved);
+
+        Date now = new Date();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Item.class);
+        for (Line line : reserved) {
+            Query query = Query.query(Criteria.where("orgId").is(orgId)
+                    .and("itemId").is(line.itemId)
+                    .and("quantity").gte(line.quantity));
+            Update update = new Update()
+                    .inc("quantity", -line.quantity)
+                    .set("lastDateOfUpdate", now);
+            bulk.upsert(query, update);
+        }
+        released.forEach(line -> bulk.updateOne(itemQuery(orgId, line), restock(line, now)));
+
+        BulkWriteResult result;
+        BulkOperationException failure = null;
+        // The first write that didn't go through, the ordered bulk stops there
+        int failedAt = reserved.size() + released.size();
+        try {
+            result = bulk.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            failure = e;
+            // Without a write error only the write concern failed, and every write was applied
+            if (!e.getErrors().isEmpty()) failedAt = e.getErrors().get(0).getIndex();
+        }
+
+        Set<Integer> placeholders = new HashSet<>();
+        List<Object> placeholderIds = new ArrayList<>();
+        for (BulkWriteUpsert upsert : result.getUpserts()) {
+            placeholders.add(upsert.getIndex());
+            placeholderIds.add(upsert.getId().asObjectId().getValue());
+        }
+
+        if (failure == null && placeholders.isEmpty()) {
+            List<StockMovement> movements = movements(orgId, reserved, orderId, UpdateHistory.UpdateTypes.ORDER, now);
+            movements.addAll(movements(orgId, released, orderId, UpdateHistory.UpdateTypes.ORDERREVERT, now));
+            stockLedgerService.recordAll(movements);
+            return;
+        }
+
+        List<Line> appliedReserved = new ArrayList<>();
+        for (int i = 0; i < Math.min(failedAt, reserved.size()); i++) {
+            if (!placeholders.contains(i)) appliedReserved.add(reserved.get(i));
+        }
+        List<Line> appliedReleased = released.subList(0, Math.max(0, failedAt - reserved.size()));
+        compensate(orgId, appliedReserved, appliedReleased, placeholderIds);
+
+        // A short item shows up as the upsert colliding with the unique (orgId, itemId) index
+        int shortAt = failure != null && failedAt < reserved.size()
+                && failure.getErrors().get(0).getCode() == DUPLICATE_KEY ? failedAt : reserved.size();
+        for (Integer index : placeholders) shortAt = Math.min(shortAt, index);
+        if (shortAt == reserved.size()) throw failure;
+
+        throw new RuntimeException("Desired quantity unavailable for item " + reserved.get(shortAt).itemId + "!");
+    }
+
+    // Checked with one covered read on the (orgId, itemId) index
+    private void requireItems(ObjectId orgId, List<Line> lines) {
+        if (lines.isEmpty()) return;
+        List<String> itemIds = lines.stream().map(line -> line.itemId).toList();
+        Query query = Query.query(Criteria.where("orgId").is(orgId).and("itemId").in(itemIds));
+        query.fields().include("itemId").exclude("_id");
+
+        Set<String> found = new HashSet<>();
+        for (Item item : mongoTemplate.find(query, Item.class)) found.add(item.getItemId());
+        for (String itemId : itemIds) {
+            if (!found.contains(itemId)) {
+                throw new RuntimeException("Desired quantity unavailable for item " + itemId + "!");
+            }
+        }
+    }
+
+    private void compensate(ObjectId orgId, List<Line> reserved, List<Line> released, List<Object> placeholderIds) {
+        if (!reserved.isEmpty() || !released.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Item.class);
+            reserved.forEach(line -> bulk.updateOne(itemQuery(orgId, line), new Update().inc("quantity", line.quantity)));
+            released.forEach(line -> bulk.updateOne(itemQuery(orgId, line), new Update().inc("quantity", -line.quantity)));
+            bulk.execute();
+        }
+        if (!placeholderIds.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(placeholderIds)), Item.class);
+            // A list read while the placeholder existed must not stay cached
+            listCacheService.invalidate(orgId, Item.class);
+        }
+    }
+
+    private Query itemQuery(ObjectId orgId, Line line) {
+        return Query.query(Criteria.where("orgId").is(orgId).and("itemId").is(line.itemId));
+    }
+
+    private Update restock(Line line, Date now) {
+        return new Update()
+                .inc("quantity", line.quantity)
+                .set("lastDateOfUpdate", now);
+    }
+
+    private List<StockMovement> movements(ObjectId orgId, List<Line> lines, String orderId, UpdateHistory.UpdateTypes type, Date date) {
+        List<StockMovement> movements = new ArrayList<>();
+        for (Line line : lines) {
+            for (UpdateHistory updateHistory : line.history(orderId, type, date)) {
+                movements.add(stockLedgerService.toMovement(orgId, line.itemId, updateHistory));
+            }
+        }
+        return movements;
+    }
+
+    // A line without an item or with nothing to take can't be reserved, so it must not end up on an
+    // order either. Stored orders are grouped leniently, their lines went through here when written.
+    static void validate(List<OrderItem> items) {
+        if (items == null) return;
+        for (OrderItem item : items) {
+            if (item == null || item.getItemId() == null || item.getItemId().isBlank()) {
+                throw new IllegalArgumentException("Every order line needs an item!");
+            }
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity for item " + item.getItemId() + " must be positive!");
+            }
+        }
+    }
+
+    // Folds repeated lines for the same item into one so each item is touched once per bulk write.
+    private List<Line> group(List<OrderItem> items) {
+        Map<String, Line> lines = new LinkedHashMap<>();
+        if (items == null) return new ArrayList<>();
+        for (OrderItem item : items) {
+            if (item == null || item.getItemId() == null || item.getQuantity() <= 0) continue;
+            lines.computeIfAbsent(item.getItemId(), Line::new).add(item.getQuantity(), item.getPriceAtOrder());
+        }
+        return new ArrayList<>(lines.values());
+    }
+
+    private static class Line {
+        private final String itemId;
+        private final List<Integer> quantities = new ArrayList<>();
+        private final List<Double> costs = new ArrayList<>();
+        private int quantity;
+
+        private Line(String itemId) {
+            this.itemId = itemId;
+        }
+
+        private void add(int quantity, double cost) {
+            quantities.add(quantity);
+            costs.add(cost);
+            this.quantity += quantity;
+        }
+
+        // A single entry line for part of this item's quantity, priced like its first order line.
+        private Line delta(int quantity) {
+            Line line = new Line(itemId);
+            line.add(quantity, costs.get(0));
+            return line;
+        }
+
+        private List<UpdateHistory> history(String orderId, UpdateHistory.UpdateTypes type, Date date) {
+            List<UpdateHistory> history = new ArrayList<>();
+            for (int i = 0; i < quantities.size(); i++) {
+                history.add(UpdateHistory.builder()
+                        .vendorName(type == UpdateHistory.UpdateTypes.ORDER ? "" : "Order Revert")
+                        .orderName(type == UpdateHistory.UpdateTypes.ORDER ? "Order" : null)
+                        .orderId(orderId)
+                        .quantityUpdated(quantities.get(i))
+                        .cost(costs.get(i))
+                        .updateType(type)
+                        .date(date)
+                        .build());
+            }
+            return history;
+        }
+    }
+}
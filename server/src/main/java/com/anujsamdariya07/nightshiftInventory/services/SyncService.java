@@ -0,0 +1,58 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.dto.SyncResponse;
+import com.anujsamdariya07.nightshiftInventory.entity.Customer;
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.Order;
+import com.anujsamdariya07.nightshiftInventory.entity.Organization;
+import com.anujsamdariya07.nightshiftInventory.entity.Tombstone;
+import com.anujsamdariya07.nightshiftInventory.entity.Vendor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SyncService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ChangeVersionService changeVersionService;
+    @Autowired
+    private CustomerService customerService;
+
+    // Everything written or deleted in the org after version since, read off the (orgId,
+    // changeVersion) indexes. since = 0 is a full load, which doesn't need any deletes.
+    public SyncResponse changesSince(ObjectId orgId, long since) {
+        SyncResponse response = new SyncResponse();
+        // The version and the stamps still pending, read together before the queries, see ChangeVersionService
+        Organization organization = changeVersionService.organization(orgId);
+        long version = organization != null ? organization.getChangeVersion() : 0;
+        response.setVersion(version);
+
+        if (since > version || (since > 0 && since < organization.getPurgedVersion())) {
+            response.setReset(true);
+            return response;
+        }
+        if (since == version) return response;
+        response.setVersion(changeVersionService.settledVersion(organization, since));
+
+        response.setItems(mongoTemplate.find(changedQuery(orgId, since), Item.class));
+        response.setOrders(mongoTemplate.find(changedQuery(orgId, since), Order.class));
+        response.setCustomers(customerService.toDTOs(mongoTemplate.find(changedQuery(orgId, since), Customer.class)));
+        response.setVendors(mongoTemplate.find(changedQuery(orgId, since), Vendor.class));
+        if (since > 0) {
+            response.setDeleted(mongoTemplate.find(Query.query(Criteria.where("orgId").is(orgId).and("version").gt(since)),
+                    Tombstone.class));
+        }
+        return response;
+    }
+
+    private Query changedQuery(ObjectId orgId, long since) {
+        Criteria criteria = Criteria.where("orgId").is(orgId);
+        if (since > 0) criteria.and("changeVersion").gt(since);
+        return Query.query(criteria);
+    }
+}
@@ -1,9 +1,19 @@
 package com.anujsamdariya07.nightshiftInventory.services;
 
+import com.anujsamdariya07.nightshiftInventory.dto.ChangeEvent;
+import com.anujsamdariya07.nightshiftInventory.entity.Organization;
+import com.anujsamdariya07.nightshiftInventory.entity.RestockItem;
+import com.anujsamdariya07.nightshiftInventory.entity.Sequence;
 import com.anujsamdariya07.nightshiftInventory.entity.Vendor;
 import com.anujsamdariya07.nightshiftInventory.repository.VendorRepository;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -12,6 +22,16 @@ import java.util.List;
 public class VendorService {
     @Autowired
     private VendorRepository vendorRepository;
+    @Autowired
+    private SequenceService sequenceService;
+    @Autowired
+    private OrganizationService organizationService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ChangeVersionService changeVersionService;
+    @Autowired
+    private ChangeFeedService changeFeedService;
 
     public List<Vendor> getAllVendorsByOrgId(ObjectId orgId) {
         return vendorRepository.findAllByOrgId(orgId);
@@ -21,67 +41,97 @@ public class VendorService {
         return vendorRepository.findById(vendorId).orElseThrow(() -> new RuntimeException("Vendor Not Found"));
     }
 
-    private String generateVendorId(ObjectId orgId) {
-        List<Vendor> vendors = vendorRepository.findAllByOrgId(orgId);
-
-        int maxId = vendors.stream()
-                .map(Vendor::getVendorId)
-                .filter(id -> id != null && id.startsWith("VEND-"))
-                .map(id -> id.substring(5)) // remove "VEN-"
-                .filter(num -> num.matches("\\d+")) // keep only numeric parts
-                .mapToInt(Integer::parseInt)
-                .max()
-                .orElse(0);
-        System.out.println(maxId);
-
-        int nextId = maxId + 1;
+    public Vendor createVendor(Vendor vendor) {
+        vendor.setVendorId(sequenceService.nextId(vendor.getOrgId(), Sequence.Type.VENDOR));
 
-        return String.format("VEND-%03d", nextId);
+        Vendor savedVendor;
+        try {
+            savedVendor = vendorRepository.insert(vendor);
+        } catch (DuplicateKeyException e) {
+            throw conflict(e);
+        }
+        organizationService.incrementCount(savedVendor.getOrgId(), Organization.Counter.VENDORS, 1);
+        savedVendor.setChangeVersion(changeVersionService.stamp(savedVendor.getOrgId(), Vendor.class, savedVendor.getId()));
+        changeFeedService.publish(savedVendor.getOrgId(), ChangeEvent.Entity.VENDOR, ChangeEvent.Action.CREATED, savedVendor.getId(), savedVendor.getChangeVersion());
+        return savedVendor;
     }
 
-
-    public Vendor createVendor(Vendor vendor) {
-        if (vendor.getId() != null && vendorRepository.existsById(vendor.getId())) {
-            throw new RuntimeException("Vendor with this id already exists!");
+    public Vendor updateVendor(ObjectId vendorId, Vendor vendor) {
+        if (vendorId == null) {
+            throw new RuntimeException("Vendor Id not provided!");
         }
-        if (vendor.getEmail() != null && vendorRepository.existsByEmail(vendor.getEmail())) {
-            throw new RuntimeException("Vendor with this email already exists!");
+
+        // Only the fields that were sent are written, so the replenishment history isn't rewritten
+        Update update = new Update();
+        if (vendor.getName() != null) update.set("name", vendor.getName());
+        if (vendor.getEmail() != null) update.set("email", vendor.getEmail());
+        if (vendor.getPhone() != null) update.set("phone", vendor.getPhone());
+        if (vendor.getStatus() != null) update.set("status", vendor.getStatus());
+        if (vendor.getGstNo() != null) update.set("gstNo", vendor.getGstNo());
+        if (vendor.getAddress() != null) update.set("address", vendor.getAddress());
+        if (vendor.getSpecialities() != null) update.set("specialities", vendor.getSpecialities());
+        if (vendor.getReplenishmentHistory() != null) update.set("replenishmentHistory", vendor.getReplenishmentHistory());
+
+        Query query = Query.query(Criteria.where("_id").is(vendorId));
+        Vendor updatedVendor;
+        try {
+            updatedVendor = update.getUpdateObject().isEmpty()
+                    ? mongoTemplate.findOne(query, Vendor.class)
+                    : mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Vendor.class);
+        } catch (DuplicateKeyException e) {
+            throw conflict(e);
         }
-        if (vendor.getPhone() != null && vendorRepository.existsByPhone(vendor.getPhone())) {
-            throw new RuntimeException("Vendor with this phone number already exists!");
+        if (updatedVendor == null) {
+            throw new RuntimeException("Vendor with the given ID does not exist!");
         }
-        if (vendor.getGstNo() != null && vendorRepository.existsByGstNo(vendor.getGstNo())) {
-            throw new RuntimeException("Vendor with this GST number already exists!");
+        if (!update.getUpdateObject().isEmpty()) {
+            updatedVendor.setChangeVersion(changeVersionService.stamp(updatedVendor.getOrgId(), Vendor.class, vendorId));
         }
+        changeFeedService.publish(updatedVendor.getOrgId(), ChangeEvent.Entity.VENDOR, ChangeEvent.Action.UPDATED, vendorId, updatedVendor.getChangeVersion());
+        return updatedVendor;
+    }
 
-        vendor.setVendorId(generateVendorId(vendor.getOrgId()));
-
-        return vendorRepository.save(vendor);
+    private DuplicateKeyException conflict(DuplicateKeyException e) {
+        String message = switch (DuplicateKeys.index(e)) {
+            case "org_email" -> "Vendor with this email already exists!";
+            case "org_phone" -> "Vendor with this phone number already exists!";
+            case "org_gst_no" -> "Vendor with this GST number already exists!";
+            default -> "Vendor with this id already exists!";
+        };
+        return new DuplicateKeyException(message, e);
     }
 
-    public Vendor updateVendor(ObjectId vendorId, Vendor vendor) {
-        if (vendorId == null) {
-            throw new RuntimeException("Vendor Id not provided!");
+    // Appends a restock to the vendor's history in place. A missing vendor is skipped.
+    public void addReplenishment(ObjectId orgId, String vendorId, RestockItem restockItem) {
+        if (vendorId == null) return;
+        if (mongoTemplate.updateFirst(vendorQuery(orgId, vendorId), new Update().push("replenishmentHistory", restockItem), Vendor.class).getModifiedCount() > 0) {
+            changeVersionService.stamp(orgId, Vendor.class, vendorQuery(orgId, vendorId));
         }
+    }
 
-        Vendor exisitingVendor = vendorRepository.findById(vendorId).orElseThrow(() -> new RuntimeException("Vendor with the given ID does not exist!"));
-
-        if (vendor.getName() != null) exisitingVendor.setName(vendor.getName());
-        if (vendor.getEmail() != null && !vendorRepository.existsByEmail(vendor.getEmail())) exisitingVendor.setEmail(vendor.getEmail());
-        if (vendor.getPhone() != null && !vendorRepository.existsByPhone(vendor.getPhone())) exisitingVendor.setPhone(vendor.getPhone());
-        if (vendor.getStatus() != null) exisitingVendor.setStatus(vendor.getStatus());
-        if (vendor.getGstNo() != null && !vendorRepository.existsByGstNo(vendor.getGstNo())) exisitingVendor.setGstNo(vendor.getGstNo());
-        if (vendor.getAddress() != null) exisitingVendor.setAddress(vendor.getAddress());
-        if (vendor.getSpecialities() != null) exisitingVendor.setSpecialities(vendor.getSpecialities());
-        if (vendor.getReplenishmentHistory() != null) exisitingVendor.setReplenishmentHistory(vendor.getReplenishmentHistory());
+    // Same, and also counts it towards the vendor's restock totals.
+    public void recordRestock(ObjectId orgId, String vendorId, RestockItem restockItem) {
+        if (vendorId == null) return;
+        Update update = new Update()
+                .push("replenishmentHistory", restockItem)
+                .inc("totalRestocks", 1)
+                .inc("totalValue", restockItem.getCost());
+        if (mongoTemplate.updateFirst(vendorQuery(orgId, vendorId), update, Vendor.class).getModifiedCount() > 0) {
+            changeVersionService.stamp(orgId, Vendor.class, vendorQuery(orgId, vendorId));
+        }
+    }
 
-        return vendorRepository.save(exisitingVendor);
+    private Query vendorQuery(ObjectId orgId, String vendorId) {
+        return Query.query(Criteria.where("orgId").is(orgId).and("vendorId").is(vendorId));
     }
 
     public void deleteVendor(ObjectId vendorId) {
-        if (!vendorRepository.existsById(vendorId)) {
+        Vendor deletedVendor = vendorRepository.deleteVendorById(vendorId);
+        if (deletedVendor == null) {
             throw new RuntimeException("Vendor not found!");
         }
-        vendorRepository.deleteById(vendorId);
+        organizationService.incrementCount(deletedVendor.getOrgId(), Organization.Counter.VENDORS, -1);
+        long version = changeVersionService.recordDeletion(deletedVendor.getOrgId(), ChangeEvent.Entity.VENDOR, vendorId);
+        changeFeedService.publish(deletedVendor.getOrgId(), ChangeEvent.Entity.VENDOR, ChangeEvent.Action.DELETED, vendorId, version);
     }
 }
@@ -2,8 +2,11 @@ package com.anujsamdariya07.nightshiftInventory;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+// Loads the context without a database, so the startup check on the unique indexes can't run here
+@ActiveProfiles("dev")
+@SpringBootTest(properties = "nightshift.indexes.require-unique=false")
 class ApplicationTests {
 
     @Test
@@ -0,0 +1,34 @@
+package com.anujsamdariya07.nightshiftInventory.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Server code logs through SLF4J, which carries the request id and goes through the async appender.
+// Printing to the console bypasses both, so any System.out/System.err/printStackTrace fails the build.
+class ConsoleOutputTest {
+    private static final Pattern CONSOLE = Pattern.compile("System\\.(out|err)\\.|\\.printStackTrace\\(");
+
+    @Test
+    void mainCodeDoesNotPrintToTheConsole() throws IOException {
+        List<String> offenders = new ArrayList<>();
+        try (Stream<Path> sources = Files.walk(Path.of("src/main/java"))) {
+            for (Path source : sources.filter(path -> path.toString().endsWith(".java")).toList()) {
+                List<String> lines = Files.readAllLines(source);
+                for (int i = 0; i < lines.size(); i++) {
+                    String line = lines.get(i).trim();
+                    if (!line.startsWith("//") && CONSOLE.matcher(line).find()) offenders.add(source + ":" + (i + 1));
+                }
+            }
+        }
+        assertTrue(offenders.isEmpty(), "use the class's logger instead of the console: " + offenders);
+    }
+}
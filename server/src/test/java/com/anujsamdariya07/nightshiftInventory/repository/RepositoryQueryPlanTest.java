@@ -0,0 +1,214 @@
+package com.anujsamdariya07.nightshiftInventory.repository;
+
+import com.anujsamdariya07.nightshiftInventory.config.MongoIndexConfig;
+import com.anujsamdariya07.nightshiftInventory.services.MessageService;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs every derived query in the repository package and explains the commands it sends, so a
+// query that isn't backed by a declared index fails here instead of scanning a tenant's data in
+// production. Runs against a real MongoDB, so it is skipped where Docker isn't available.
+@ActiveProfiles("dev")
+@SpringBootTest(properties = "nightshift.migrations.enabled=false")
+@Testcontainers(disabledWithoutDocker = true)
+class RepositoryQueryPlanTest {
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "count", "aggregate", "delete", "update", "findAndModify");
+    private static final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+    private static final ObjectId ORG_ID = new ObjectId();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ApplicationContext applicationContext;
+    @Autowired
+    private CustomerRepository customerRepository;
+    @Autowired
+    private EmployeeRepository employeeRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrganizationRepository organizationRepository;
+    @Autowired
+    private PerformanceReviewRepository performanceReviewRepository;
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+    @Autowired
+    private VendorRepository vendorRepository;
+    @Autowired
+    private MessageService messageService;
+
+    @TestConfiguration
+    static class CommandCapture {
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandCapture() {
+            return builder -> builder.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    // The event's document is only valid during the callback
+                    if (QUERY_COMMANDS.contains(event.getCommandName())) commands.add(event.getCommand().clone());
+                }
+            });
+        }
+    }
+
+    @BeforeAll
+    static void provision(@Autowired MongoIndexConfig mongoIndexConfig) {
+        mongoIndexConfig.createIndexes();
+    }
+
+    private Map<String, Runnable> queries() {
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("CustomerRepository.findByOrgId", () -> customerRepository.findByOrgId(ORG_ID));
+        queries.put("CustomerRepository.findByOrgIdAndId", () -> customerRepository.findByOrgIdAndId(ORG_ID, new ObjectId()));
+        queries.put("CustomerRepository.findByOrgIdAndCustomerId", () -> customerRepository.findByOrgIdAndCustomerId(ORG_ID, "CUST-1"));
+        queries.put("CustomerRepository.deleteByOrgIdAndId", () -> customerRepository.deleteByOrgIdAndId(ORG_ID, new ObjectId()));
+        queries.put("CustomerRepository.existsByOrgIdAndId", () -> customerRepository.existsByOrgIdAndId(ORG_ID, new ObjectId()));
+
+        queries.put("EmployeeRepository.findByOrgId", () -> employeeRepository.findByOrgId(ORG_ID));
+        queries.put("EmployeeRepository.findByOrgIdAndEmployeeId", () -> employeeRepository.findByOrgIdAndEmployeeId(ORG_ID, "EMP-101"));
+        queries.put("EmployeeRepository.existsByEmailAndOrgId", () -> employeeRepository.existsByEmailAndOrgId("employee@example.com", ORG_ID));
+        queries.put("EmployeeRepository.findByEmail", () -> employeeRepository.findByEmail("employee@example.com"));
+        queries.put("EmployeeRepository.deleteEmployeeById", () -> employeeRepository.deleteEmployeeById(new ObjectId()));
+
+        queries.put("ItemRepository.findAllByOrgId", () -> itemRepository.findAllByOrgId(ORG_ID));
+        queries.put("ItemRepository.findByOrgIdAndName", () -> itemRepository.findByOrgIdAndName(ORG_ID, "Bolt"));
+        queries.put("ItemRepository.existsByNameAndOrgId", () -> itemRepository.existsByNameAndOrgId("Bolt", ORG_ID));
+        queries.put("ItemRepository.existsByName", () -> itemRepository.existsByName("Bolt"));
+        queries.put("ItemRepository.deleteItemById", () -> itemRepository.deleteItemById(new ObjectId()));
+        queries.put("ItemRepository.findAllByOrgIdAndLowStockTrueOrderByItemIdAsc", () -> itemRepository.findAllByOrgIdAndLowStockTrueOrderByItemIdAsc(ORG_ID));
+
+        queries.put("OrderRepository.findAllByOrgId", () -> orderRepository.findAllByOrgId(ORG_ID));
+        queries.put("OrderRepository.findAllByCustomerIdAndOrgId", () -> orderRepository.findAllByCustomerIdAndOrgId("CUST-1", ORG_ID));
+        queries.put("OrderRepository.deleteOrderById", () -> orderRepository.deleteOrderById(new ObjectId()));
+
+        queries.put("OrganizationRepository.findByEmail", () -> organizationRepository.findByEmail("org@example.com"));
+        queries.put("OrganizationRepository.findByMobileNo", () -> organizationRepository.findByMobileNo("9999999999"));
+        queries.put("OrganizationRepository.findByGstNo", () -> organizationRepository.findByGstNo("22AAAAA0000A1Z5"));
+
+        queries.put("PerformanceReviewRepository.findByOrgIdAndEmployeeId", () -> performanceReviewRepository.findByOrgIdAndEmployeeId(ORG_ID, "EMP-101"));
+        queries.put("PerformanceReviewRepository.findByOrgIdAndReviewerId", () -> performanceReviewRepository.findByOrgIdAndReviewerId(ORG_ID, "EMP-100"));
+        queries.put("PerformanceReviewRepository.deleteReviewById", () -> performanceReviewRepository.deleteReviewById(new ObjectId()));
+
+        queries.put("StockMovementRepository.findByOrgIdAndItemIdOrderByDateDesc", () -> stockMovementRepository.findByOrgIdAndItemIdOrderByDateDesc(ORG_ID, "ITEM-1", PageRequest.of(0, 20)));
+
+        queries.put("VendorRepository.findAllByOrgId", () -> vendorRepository.findAllByOrgId(ORG_ID));
+        queries.put("VendorRepository.findVendorByOrgIdAndVendorId", () -> vendorRepository.findVendorByOrgIdAndVendorId(ORG_ID, "VEND-1"));
+        queries.put("VendorRepository.deleteVendorById", () -> vendorRepository.deleteVendorById(new ObjectId()));
+
+        // The messaging queries go through MongoTemplate but run on every inbox open, so they're held to the same bar
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((System.currentTimeMillis() + ":" + new ObjectId().toHexString()).getBytes(StandardCharsets.UTF_8));
+        queries.put("MessageService.getInbox", () -> messageService.getInbox(ORG_ID, "EMP-101", null, 50));
+        queries.put("MessageService.getInbox.cursor", () -> messageService.getInbox(ORG_ID, "EMP-101", cursor, 50));
+        queries.put("MessageService.markRead", () -> messageService.markRead(ORG_ID, "EMP-101", new ObjectId()));
+        queries.put("MessageService.markAllRead", () -> messageService.markAllRead(ORG_ID, "EMP-101"));
+        return queries;
+    }
+
+    // A new query method has to get an entry above before the suite passes again.
+    @Test
+    void everyDerivedQueryIsExplained() {
+        Set<String> covered = queries().keySet();
+        Repositories repositories = new Repositories(applicationContext);
+        List<String> uncovered = new ArrayList<>();
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+            Class<?> repository = information.getRepositoryInterface();
+            if (!repository.getPackageName().equals(getClass().getPackageName())) continue;
+            for (Method method : information.getQueryMethods()) {
+                String name = repository.getSimpleName() + "." + method.getName();
+                if (!covered.contains(name)) uncovered.add(name);
+            }
+        }
+        assertTrue(uncovered.isEmpty(), "queries without a plan check: " + uncovered);
+    }
+
+    @TestFactory
+    Stream<DynamicTest> derivedQueriesUseAnIndex() {
+        return queries().entrySet().stream()
+                .map(query -> DynamicTest.dynamicTest(query.getKey(), () -> assertIndexed(query.getValue())));
+    }
+
+    private void assertIndexed(Runnable query) {
+        commands.clear();
+        query.run();
+        List<BsonDocument> sent = new ArrayList<>(commands);
+        assertFalse(sent.isEmpty(), "no query was sent");
+
+        for (BsonDocument command : sent) {
+            Document explain = mongoTemplate.getDb().runCommand(new BsonDocument("explain", strip(command))
+                    .append("verbosity", new BsonString("queryPlanner")));
+            List<String> stages = new ArrayList<>();
+            collectWinningStages(explain, stages, false);
+            assertFalse(stages.contains("COLLSCAN"), "collection scan for " + command.toJson() + ": " + stages);
+            assertTrue(stages.stream().anyMatch(stage -> stage.equals("IXSCAN") || stage.equals("IDHACK") || stage.startsWith("EXPRESS")),
+                    "no index in plan for " + command.toJson() + ": " + stages);
+        }
+    }
+
+    // Drops the session and routing fields the driver adds, explain wants the bare command
+    private BsonDocument strip(BsonDocument command) {
+        BsonDocument bare = new BsonDocument();
+        command.forEach((key, value) -> {
+            if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber")) bare.append(key, value);
+        });
+        return bare;
+    }
+
+    // Only the winning plans count, a rejected candidate may well be a scan
+    private void collectWinningStages(Object node, List<String> stages, boolean winning) {
+        if (node instanceof Document document) {
+            Object stage = document.get("stage");
+            if (winning && stage instanceof String) stages.add((String) stage);
+            document.forEach((key, value) -> {
+                if (!key.equals("rejectedPlans")) collectWinningStages(value, stages, winning || key.equals("winningPlan"));
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectWinningStages(value, stages, winning));
+        }
+    }
+}
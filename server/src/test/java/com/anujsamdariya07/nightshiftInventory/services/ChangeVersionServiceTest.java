@@ -0,0 +1,144 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.dto.ChangeEvent;
+import com.anujsamdariya07.nightshiftInventory.dto.SyncResponse;
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.Organization;
+import com.anujsamdariya07.nightshiftInventory.entity.Tombstone;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+// Runs against a real MongoDB, so it is skipped where Docker isn't available.
+@ActiveProfiles("dev")
+@SpringBootTest(properties = "nightshift.migrations.enabled=false")
+@Testcontainers(disabledWithoutDocker = true)
+class ChangeVersionServiceTest {
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @SpyBean
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ChangeVersionService changeVersionService;
+    @Autowired
+    private SyncService syncService;
+
+    @Test
+    void syncBetweenTakingAVersionAndWritingItStillDeliversTheDocument() {
+        Organization organization = mongoTemplate.insert(Organization.builder().name("Night Shift").build());
+        Item item = mongoTemplate.insert(Item.builder().orgId(organization.getId()).itemId("ITEM-001").name("Bolts").build());
+        changeVersionService.stamp(organization.getId(), Item.class, item.getId());
+        long since = syncService.changesSince(organization.getId(), 0).getVersion();
+
+        // A sync lands after the stamp has taken its version, right before the item is given it
+        List<SyncResponse> interleaved = new ArrayList<>();
+        doAnswer(invocation -> {
+            interleaved.add(syncService.changesSince(organization.getId(), since));
+            return invocation.callRealMethod();
+        }).when(mongoTemplate).updateMulti(any(Query.class), any(UpdateDefinition.class), eq(Item.class));
+
+        long stamped = changeVersionService.stamp(organization.getId(), Item.class, item.getId());
+
+        SyncResponse during = interleaved.get(0);
+        assertTrue(during.getItems().isEmpty());
+        assertTrue(during.getVersion() < stamped, "a sync must not hand out a version still being written");
+
+        SyncResponse after = syncService.changesSince(organization.getId(), during.getVersion());
+        assertEquals(List.of("ITEM-001"), after.getItems().stream().map(Item::getItemId).toList());
+        assertEquals(stamped, after.getVersion());
+    }
+
+    @Test
+    void stampsInABatchShareOneVersionAndSettleTogether() {
+        Organization organization = mongoTemplate.insert(Organization.builder().name("Night Shift").build());
+        ObjectId orgId = organization.getId();
+        Item item = mongoTemplate.insert(Item.builder().orgId(orgId).itemId("ITEM-001").name("Bolts").build());
+
+        List<Long> versions = new ArrayList<>();
+        SyncResponse during = changeVersionService.batch(orgId, () -> {
+            versions.add(changeVersionService.stamp(orgId, Item.class, item.getId()));
+            versions.add(changeVersionService.recordDeletion(orgId, ChangeEvent.Entity.ORDER, new ObjectId()));
+            return syncService.changesSince(orgId, 0);
+        });
+
+        assertEquals(List.of(1L, 1L), versions);
+        assertEquals(0, during.getVersion(), "a sync must not hand out a version still pending");
+
+        Organization after = changeVersionService.organization(orgId);
+        assertEquals(1, after.getChangeVersion());
+        assertTrue(after.getPendingStamps().isEmpty());
+        assertEquals(1, syncService.changesSince(orgId, 0).getVersion());
+        Map<String, Long> listVersions = mongoTemplate.findById(orgId, Organization.class).getListVersions();
+        assertEquals(Map.of("items", 1L, "orders", 1L), listVersions);
+    }
+
+    @Test
+    void purgeDropsOldTombstonesAndRemembersTheHighestVersion() {
+        Organization organization = mongoTemplate.insert(Organization.builder().name("Night Shift").changeVersion(3).build());
+        ObjectId orgId = organization.getId();
+        Date old = Date.from(Instant.now().minus(Duration.ofDays(40)));
+        tombstone(orgId, 1, old);
+        tombstone(orgId, 2, old);
+        tombstone(orgId, 3, new Date());
+
+        assertEquals(2, changeVersionService.purgeTombstones());
+
+        assertEquals(2, changeVersionService.organization(orgId).getPurgedVersion());
+        List<Tombstone> left = mongoTemplate.find(Query.query(Criteria.where("orgId").is(orgId)), Tombstone.class);
+        assertEquals(List.of(3L), left.stream().map(Tombstone::getVersion).toList());
+    }
+
+    @Test
+    void syncFromBeforeThePurgeOrAheadOfTheOrgIsReset() {
+        Organization organization = mongoTemplate.insert(Organization.builder().name("Night Shift").changeVersion(3).build());
+        ObjectId orgId = organization.getId();
+        tombstone(orgId, 2, Date.from(Instant.now().minus(Duration.ofDays(40))));
+        tombstone(orgId, 3, new Date());
+        changeVersionService.purgeTombstones();
+
+        assertTrue(syncService.changesSince(orgId, 1).isReset(), "deletes up to version 2 are gone");
+        assertTrue(syncService.changesSince(orgId, 4).isReset(), "the client is ahead of the org");
+
+        SyncResponse fromPurge = syncService.changesSince(orgId, 2);
+        assertFalse(fromPurge.isReset());
+        assertEquals(List.of(3L), fromPurge.getDeleted().stream().map(Tombstone::getVersion).toList());
+        assertFalse(syncService.changesSince(orgId, 0).isReset(), "a full load never needs the deletes");
+    }
+
+    private void tombstone(ObjectId orgId, long version, Date deletedAt) {
+        mongoTemplate.insert(Tombstone.builder()
+                .orgId(orgId)
+                .entity(ChangeEvent.Entity.ITEM)
+                .entityId(new ObjectId())
+                .version(version)
+                .deletedAt(deletedAt)
+                .build());
+    }
+}
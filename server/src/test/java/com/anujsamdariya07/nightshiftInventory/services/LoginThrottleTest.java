@@ -0,0 +1,114 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginThrottleTest {
+    private static final String EMAIL = "owner@nightshift.test";
+
+    private final LoginThrottle throttle = new LoginThrottle();
+    private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(throttle, "accountFailures", 5);
+        ReflectionTestUtils.setField(throttle, "addressFailures", 50);
+        ReflectionTestUtils.setField(throttle, "accountDelayAfter", 10);
+        ReflectionTestUtils.setField(throttle, "accountDelay", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(throttle, "accountMaxDelay", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(throttle, "window", Duration.ofMinutes(15));
+        tick(Duration.ZERO);
+    }
+
+    @Test
+    void accountIsLockedOnlyForTheAddressItFailedFrom() {
+        fail(EMAIL, "10.0.0.1", 5);
+
+        assertEquals(Duration.ofMinutes(15), throttle.retryAfter(EMAIL, "10.0.0.1"));
+        assertEquals(Duration.ZERO, throttle.retryAfter(EMAIL, "10.0.0.2"));
+    }
+
+    @Test
+    void addressIsLockedOverAllAccounts() {
+        for (int i = 0; i < 50; i++) throttle.failed("user" + i + "@nightshift.test", "10.0.0.1");
+
+        assertTrue(throttle.retryAfter("someone@nightshift.test", "10.0.0.1").compareTo(Duration.ZERO) > 0);
+        assertEquals(Duration.ZERO, throttle.retryAfter("someone@nightshift.test", "10.0.0.2"));
+    }
+
+    @Test
+    void guessingSpreadOverAddressesIsDelayedPerAccount() {
+        for (int i = 0; i < 9; i++) throttle.failed(EMAIL, "10.0.1." + i);
+        assertEquals(Duration.ZERO, throttle.retryAfter(EMAIL, "10.0.2.1"));
+
+        throttle.failed(EMAIL, "10.0.1.9");
+        assertEquals(Duration.ofSeconds(1), throttle.retryAfter(EMAIL, "10.0.2.1"));
+
+        throttle.failed(EMAIL, "10.0.1.10");
+        assertEquals(Duration.ofSeconds(2), throttle.retryAfter(EMAIL, "10.0.2.1"));
+
+        throttle.failed(EMAIL, "10.0.1.11");
+        assertEquals(Duration.ofSeconds(4), throttle.retryAfter(EMAIL, "10.0.2.1"));
+    }
+
+    @Test
+    void perAccountDelayIsCappedAndNeverALockout() {
+        for (int i = 0; i < 40; i++) throttle.failed(EMAIL, "10.0.1." + i);
+
+        assertEquals(Duration.ofSeconds(30), throttle.retryAfter(EMAIL, "10.0.2.1"));
+        tick(Duration.ofSeconds(30));
+        assertEquals(Duration.ZERO, throttle.retryAfter(EMAIL, "10.0.2.1"));
+    }
+
+    @Test
+    void emailIsMatchedWithoutCaseOrSurroundingSpace() {
+        fail(EMAIL, "10.0.0.1", 4);
+        throttle.failed("  Owner@NightShift.test ", "10.0.0.1");
+
+        assertTrue(throttle.retryAfter(EMAIL, "10.0.0.1").compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void successClearsTheAccountAndAddressButNotTheAccountDelay() {
+        fail(EMAIL, "10.0.0.1", 4);
+        for (int i = 0; i < 4; i++) throttle.failed(EMAIL, "10.0.1." + i);
+        throttle.succeeded(EMAIL, "10.0.0.1");
+
+        // five failures from this address, but only one since the success
+        throttle.failed(EMAIL, "10.0.0.1");
+        assertEquals(Duration.ZERO, throttle.retryAfter(EMAIL, "10.0.0.1"));
+
+        // the tenth for the account overall
+        throttle.failed(EMAIL, "10.0.0.1");
+        assertEquals(Duration.ofSeconds(1), throttle.retryAfter(EMAIL, "10.0.0.1"));
+    }
+
+    @Test
+    void countsRunOutWithTheWindow() {
+        fail(EMAIL, "10.0.0.1", 12);
+        tick(Duration.ofMinutes(15));
+
+        assertEquals(Duration.ZERO, throttle.retryAfter(EMAIL, "10.0.0.1"));
+        throttle.purge();
+        throttle.failed(EMAIL, "10.0.0.1");
+        assertEquals(Duration.ZERO, throttle.retryAfter(EMAIL, "10.0.0.1"));
+    }
+
+    private void fail(String email, String address, int times) {
+        for (int i = 0; i < times; i++) throttle.failed(email, address);
+    }
+
+    private void tick(Duration duration) {
+        now = now.plus(duration);
+        throttle.clock = Clock.fixed(now, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,143 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.dto.OrderFilter;
+import com.anujsamdariya07.nightshiftInventory.dto.OrderPage;
+import com.anujsamdariya07.nightshiftInventory.entity.Order;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs against a real MongoDB, so it is skipped where Docker isn't available.
+@ActiveProfiles("dev")
+@SpringBootTest(properties = "nightshift.migrations.enabled=false")
+@Testcontainers(disabledWithoutDocker = true)
+class OrderQueryPlanTest {
+    @Container
+    @ServiceConnection
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static final ObjectId ORG_ID = new ObjectId();
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void seed(@Autowired MongoTemplate mongoTemplate, @Autowired MongoMappingContext mongoMappingContext) {
+        IndexOperations indexOps = mongoTemplate.indexOps(Order.class);
+        new MongoPersistentEntityIndexResolver(mongoMappingContext).resolveIndexFor(Order.class).forEach(indexOps::ensureIndex);
+
+        List<Order> orders = new ArrayList<>();
+        Order.OrderStatus[] statuses = Order.OrderStatus.values();
+        for (int i = 0; i < 5000; i++) {
+            orders.add(Order.builder()
+                    .orgId(i % 10 == 0 ? new ObjectId() : ORG_ID)
+                    .orderId("ORD-" + i)
+                    .customerId("CUST-" + (i % 40))
+                    .employeeId("EMP-" + (100 + i % 7))
+                    .status(statuses[i % statuses.length])
+                    .totalAmount(i)
+                    // a few orders share each timestamp so the cursor has ties to break
+                    .orderDate(new Date(1_700_000_000_000L + (i / 3) * 60_000L))
+                    .build());
+        }
+        mongoTemplate.insertAll(orders);
+    }
+
+    @Test
+    void unfilteredPagesUseTheIndex() {
+        assertIndexOnly(new OrderFilter(), "org_date_id");
+    }
+
+    @Test
+    void statusPagesUseTheIndex() {
+        assertIndexOnly(OrderFilter.builder().status(Order.OrderStatus.SHIPPED).build(), "org_status_date_id");
+    }
+
+    @Test
+    void customerPagesUseTheIndex() {
+        assertIndexOnly(OrderFilter.builder().customerId("CUST-7").build(), "org_customer_date_id");
+    }
+
+    @Test
+    void employeePagesUseTheIndex() {
+        assertIndexOnly(OrderFilter.builder().employeeId("EMP-103").build(), "org_employee_date_id");
+    }
+
+    @Test
+    void dateRangePagesUseTheIndex() {
+        assertIndexOnly(OrderFilter.builder()
+                .from(new Date(1_700_000_000_000L + 100 * 60_000L))
+                .to(new Date(1_700_000_000_000L + 900 * 60_000L))
+                .build(), "org_date_id");
+    }
+
+    // Checks the first page and a page further in, where the cursor adds the keyset bound.
+    private void assertIndexOnly(OrderFilter filter, String index) {
+        assertPlan(orderService.pageQuery(ORG_ID, filter, 21), index);
+
+        OrderPage first = orderService.getOrdersPage(ORG_ID, filter, 20);
+        assertNotNull(first.getNextCursor());
+        filter.setCursor(first.getNextCursor());
+        assertPlan(orderService.pageQuery(ORG_ID, filter, 21), index);
+    }
+
+    // The expected index has to serve the whole query: a less specific one would still show an
+    // IXSCAN, with the rest of the filter applied to every fetched document
+    private void assertPlan(Query query, String index) {
+        Document explain = mongoTemplate.getCollection("orders")
+                .find(query.getQueryObject())
+                .sort(query.getSortObject())
+                .limit(query.getLimit())
+                .explain();
+        Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+
+        List<Document> stages = new ArrayList<>();
+        collectStages(winningPlan, stages);
+        List<String> names = stages.stream().map(stage -> stage.getString("stage")).toList();
+        assertFalse(names.contains("COLLSCAN"), "collection scan in plan: " + names);
+        assertFalse(names.contains("SORT"), "in-memory sort in plan: " + names);
+
+        List<String> indexes = stages.stream()
+                .filter(stage -> "IXSCAN".equals(stage.getString("stage")))
+                .map(stage -> stage.getString("indexName"))
+                .toList();
+        assertEquals(List.of(index), indexes, "index scans in plan " + winningPlan.toJson());
+        assertTrue(stages.stream()
+                        .filter(stage -> "FETCH".equals(stage.getString("stage")))
+                        .noneMatch(stage -> stage.containsKey("filter")),
+                "filtered after the fetch: " + winningPlan.toJson());
+    }
+
+    private void collectStages(Object node, List<Document> stages) {
+        if (node instanceof Document document) {
+            if (document.get("stage") instanceof String) stages.add(document);
+            document.values().forEach(value -> collectStages(value, stages));
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectStages(value, stages));
+        }
+    }
+}
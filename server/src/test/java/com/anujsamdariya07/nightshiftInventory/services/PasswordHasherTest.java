@@ -0,0 +1,103 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        if (hasher != null) hasher.shutdown();
+    }
+
+    @Test
+    void hashesAndChecksOnThePool() {
+        hasher = hasher(new BCryptPasswordEncoder(4), 2, 0, Duration.ofSeconds(5));
+
+        String hash = hasher.encode("secret");
+
+        assertTrue(hasher.matches("secret", hash));
+        assertFalse(hasher.matches("guess", hash));
+        assertFalse(hasher.matches(null, hash));
+        assertFalse(hasher.needsRehash(hash));
+        assertTrue(hasher.needsRehash(new BCryptPasswordEncoder(5).encode("secret")));
+    }
+
+    @Test
+    void saturatedPoolTurnsCallersAwayRightAway() {
+        hasher = hasher(blocking(), 1, 1, Duration.ofSeconds(30));
+        hasher.encodeLater("running");
+        hasher.encodeLater("queued");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1),
+                () -> assertThrows(RejectedExecutionException.class, () -> hasher.encode("secret")));
+        assertTrue(hasher.encodeLater("also turned away").isCompletedExceptionally());
+        assertEquals(2, meterRegistry.counter("nightshift.passwords.rejected").count());
+    }
+
+    @Test
+    void callerGivesUpAfterTheTimeout() {
+        hasher = hasher(blocking(), 1, 1, Duration.ofMillis(100));
+        CompletableFuture<String> running = hasher.encodeLater("running");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1),
+                () -> assertThrows(RejectedExecutionException.class, () -> hasher.encode("secret")));
+        assertEquals(1, meterRegistry.counter("nightshift.passwords.rejected").count());
+
+        // the work that was already running is left to finish
+        release.countDown();
+        assertEquals("hash", running.orTimeout(1, TimeUnit.SECONDS).join());
+    }
+
+    private PasswordHasher hasher(PasswordEncoder encoder, int threads, int queue, Duration timeout) {
+        PasswordHasher hasher = new PasswordHasher();
+        ReflectionTestUtils.setField(hasher, "passwordEncoder", encoder);
+        ReflectionTestUtils.setField(hasher, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(hasher, "cost", 4);
+        ReflectionTestUtils.setField(hasher, "threads", threads);
+        ReflectionTestUtils.setField(hasher, "queueSize", queue);
+        ReflectionTestUtils.setField(hasher, "timeout", timeout);
+        hasher.init();
+        return hasher;
+    }
+
+    // Holds every hash until the test releases it
+    private PasswordEncoder blocking() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+    }
+}
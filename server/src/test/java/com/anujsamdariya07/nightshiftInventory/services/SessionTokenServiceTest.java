@@ -0,0 +1,171 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Employee;
+import com.anujsamdariya07.nightshiftInventory.entity.RevokedSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionTokenServiceTest {
+    private static final String KEY_A = "a:" + Base64.getEncoder().encodeToString("first secret, 32 bytes long....".getBytes(StandardCharsets.UTF_8));
+    private static final String KEY_B = "b:" + Base64.getEncoder().encodeToString("second secret, 32 bytes long...".getBytes(StandardCharsets.UTF_8));
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final Employee employee = Employee.builder()
+            .id(new ObjectId())
+            .orgId(new ObjectId())
+            .orgName("Night Shift")
+            .employeeId("EMP-101")
+            .name("Asha")
+            .role(Employee.Role.MANAGER)
+            .build();
+
+    @Test
+    void issuedTokenCarriesTheCaller() {
+        SessionTokenService tokens = service(KEY_A, "", Duration.ofHours(1));
+
+        SessionTokenService.Session session = tokens.verify(tokens.issue(employee)).orElseThrow();
+
+        Employee caller = session.employee();
+        assertEquals(employee.getId(), caller.getId());
+        assertEquals(employee.getOrgId(), caller.getOrgId());
+        assertEquals("Night Shift", caller.getOrgName());
+        assertEquals("EMP-101", caller.getEmployeeId());
+        assertEquals("Asha", caller.getName());
+        assertEquals(Employee.Role.MANAGER, caller.getRole());
+        assertTrue(session.expiresAt() > System.currentTimeMillis());
+    }
+
+    @Test
+    void tamperedTokensAreRejected() {
+        SessionTokenService tokens = service(KEY_A, "", Duration.ofHours(1));
+        String[] parts = tokens.issue(employee).split("\\.");
+        String claims = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+        String promoted = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(claims.replace("MANAGER", "ADMIN").getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(tokens.verify(parts[0] + "." + promoted + "." + parts[2]).isPresent(), "changed claims");
+        assertFalse(tokens.verify(parts[0] + "." + parts[1] + "." + parts[2].substring(1)).isPresent(), "changed signature");
+        assertFalse(tokens.verify("b." + parts[1] + "." + parts[2]).isPresent(), "unknown key");
+        assertFalse(tokens.verify(parts[0] + "." + parts[1]).isPresent(), "missing signature");
+        assertFalse(tokens.verify("not a token").isPresent());
+        assertFalse(tokens.verify(null).isPresent());
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        SessionTokenService tokens = service(KEY_A, "", Duration.ofMillis(-1));
+
+        assertFalse(tokens.verify(tokens.issue(employee)).isPresent());
+    }
+
+    @Test
+    void tokensOfTheOldKeyStayValidWhileANewOneIsRolledIn() {
+        SessionTokenService before = service(KEY_A, "a", Duration.ofHours(1));
+        SessionTokenService during = service(KEY_A + "," + KEY_B, "b", Duration.ofHours(1));
+        SessionTokenService after = service(KEY_B, "b", Duration.ofHours(1));
+
+        String old = before.issue(employee);
+        String rolled = during.issue(employee);
+
+        assertTrue(rolled.startsWith("b."));
+        assertTrue(during.verify(old).isPresent());
+        assertTrue(before.verify(rolled).isEmpty(), "an instance without the new key can't check it");
+        assertTrue(after.verify(rolled).isPresent());
+        assertTrue(after.verify(old).isEmpty(), "the old key is gone");
+    }
+
+    @Test
+    void revokedTokenIsRejectedAndRecorded() {
+        SessionTokenService tokens = service(KEY_A, "", Duration.ofHours(1));
+        String token = tokens.issue(employee);
+        SessionTokenService.Session session = tokens.verify(token).orElseThrow();
+
+        tokens.revokeToken(session);
+
+        assertFalse(tokens.verify(token).isPresent());
+        assertTrue(tokens.verify(tokens.issue(employee)).isPresent(), "only that token is revoked");
+        verify(mongoTemplate).insert(argThat((RevokedSession revoked) -> session.tokenId().equals(revoked.getTokenId())));
+    }
+
+    @Test
+    void revokingAnEmployeeRejectsTheTokensIssuedBefore() throws InterruptedException {
+        SessionTokenService tokens = service(KEY_A, "", Duration.ofHours(1));
+        String before = tokens.issue(employee);
+        Thread.sleep(5);
+
+        tokens.revokeEmployee(employee.getId());
+        Thread.sleep(5);
+
+        assertFalse(tokens.verify(before).isPresent());
+        assertTrue(tokens.verify(tokens.issue(employee)).isPresent());
+    }
+
+    @Test
+    void refreshPicksUpRevocationsFromOtherInstances() {
+        SessionTokenService tokens = service(KEY_A, "", Duration.ofHours(1));
+        String token = tokens.issue(employee);
+        String tokenId = tokens.verify(token).orElseThrow().tokenId();
+        when(mongoTemplate.find(any(Query.class), eq(RevokedSession.class))).thenReturn(List.of(RevokedSession.builder()
+                .tokenId(tokenId)
+                .revokedAt(new Date())
+                .expiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .build()));
+
+        tokens.refreshRevocations();
+
+        assertFalse(tokens.verify(token).isPresent());
+    }
+
+    @Test
+    void startupWithoutKeysFailsOutsideTheDevProfile() {
+        assertThrows(IllegalStateException.class, () -> service("", "", Duration.ofHours(1), new MockEnvironment()));
+
+        MockEnvironment dev = new MockEnvironment();
+        dev.setActiveProfiles("dev");
+        SessionTokenService tokens = service("", "", Duration.ofHours(1), dev);
+        assertTrue(tokens.verify(tokens.issue(employee)).isPresent());
+    }
+
+    private SessionTokenService service(String keys, String activeKeyId, Duration ttl) {
+        return service(keys, activeKeyId, ttl, new MockEnvironment());
+    }
+
+    private SessionTokenService service(String keys, String activeKeyId, Duration ttl, MockEnvironment environment) {
+        SessionTokenService tokens = new SessionTokenService();
+        ReflectionTestUtils.setField(tokens, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(tokens, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(tokens, "environment", environment);
+        ReflectionTestUtils.setField(tokens, "configuredKeys", keys);
+        ReflectionTestUtils.setField(tokens, "activeKeyId", activeKeyId);
+        ReflectionTestUtils.setField(tokens, "ttl", ttl);
+        tokens.loadKeys();
+        return tokens;
+    }
+}
@@ -0,0 +1,64 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseSubscriberTest {
+    // Holds the drains back until the test runs them, as a busy dispatcher would
+    private final Queue<Runnable> dispatched = new ArrayDeque<>();
+
+    @Test
+    void refusesEventsOnceTheBufferIsFull() {
+        SseSubscriber subscriber = new SseSubscriber(Duration.ofMinutes(1), 2, dispatched::add);
+
+        assertTrue(subscriber.offer(SseEmitter.event().name("one").data(1)));
+        assertTrue(subscriber.offer(SseEmitter.event().name("two").data(2)));
+        assertFalse(subscriber.offer(SseEmitter.event().name("three").data(3)));
+        assertEquals(1, dispatched.size(), "one drain per burst");
+    }
+
+    @Test
+    void acceptsEventsAgainOnceDrained() {
+        SseSubscriber subscriber = new SseSubscriber(Duration.ofMinutes(1), 1, dispatched::add);
+
+        assertTrue(subscriber.offer(SseEmitter.event().name("one").data(1)));
+        runDispatched();
+
+        assertTrue(subscriber.offer(SseEmitter.event().name("two").data(2)));
+        assertEquals(1, dispatched.size());
+    }
+
+    @Test
+    void refusesEventsOnceTheStreamBroke() {
+        SseSubscriber subscriber = new SseSubscriber(Duration.ofMinutes(1), 4, dispatched::add);
+        subscriber.emitter().complete();
+
+        assertTrue(subscriber.offer(SseEmitter.event().name("one").data(1)));
+        runDispatched();
+
+        assertFalse(subscriber.offer(SseEmitter.event().name("two").data(2)));
+    }
+
+    @Test
+    void refusesEventsOnceDisconnected() {
+        SseSubscriber subscriber = new SseSubscriber(Duration.ofMinutes(1), 4, dispatched::add);
+
+        subscriber.disconnect();
+
+        assertFalse(subscriber.offer(SseEmitter.event().name("one").data(1)));
+        assertTrue(dispatched.isEmpty());
+    }
+
+    private void runDispatched() {
+        Runnable drain;
+        while ((drain = dispatched.poll()) != null) drain.run();
+    }
+}
@@ -0,0 +1,281 @@
+package com.anujsamdariya07.nightshiftInventory.services;
+
+import com.anujsamdariya07.nightshiftInventory.entity.Item;
+import com.anujsamdariya07.nightshiftInventory.entity.OrderItem;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+    private static final ObjectId ORG_ID = new ObjectId();
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private StockLedgerService stockLedgerService;
+    @Mock
+    private StockCoalescer stockCoalescer;
+    @Mock
+    private ListCacheService listCacheService;
+    @Mock
+    private BulkOperations bulk;
+
+    @InjectMocks
+    private StockReservationService stockReservationService;
+
+    // The coalesced path of reserve, with the coalescer's answers scripted per item
+    @Nested
+    class Coalesced {
+        private final Map<String, CompletableFuture<Boolean>> results = new HashMap<>();
+
+        @BeforeEach
+        void coalesce() {
+            when(stockCoalescer.isEnabled()).thenReturn(true);
+            when(stockCoalescer.decrement(eq(ORG_ID), anyString(), anyInt())).thenAnswer(invocation -> {
+                CompletableFuture<Boolean> result = new CompletableFuture<>();
+                results.put(invocation.getArgument(1), result);
+                return result;
+            });
+        }
+
+        @Test
+        void shortLinePutsBackTheGrantedLines() {
+            answer("ITEM-001", true);
+            answer("ITEM-002", false);
+            answer("ITEM-003", true);
+            when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Item.class)).thenReturn(bulk);
+
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> stockReservationService.reserve(ORG_ID, "ORD-001", lines()));
+
+            assertEquals("Desired quantity unavailable for item ITEM-002!", e.getMessage());
+            assertEquals(Map.of("ITEM-001", 2, "ITEM-003", 4), putBack(bulk));
+            verify(stockLedgerService, never()).recordAll(any());
+        }
+
+        @Test
+        void failedBatchPutsBackTheGrantedLinesAndRethrows() {
+            RuntimeException failure = new RuntimeException("write failed");
+            answer("ITEM-001", true);
+            when(stockCoalescer.await(result("ITEM-002"))).thenThrow(failure);
+            answer("ITEM-003", true);
+            when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Item.class)).thenReturn(bulk);
+
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> stockReservationService.reserve(ORG_ID, "ORD-001", lines()));
+
+            assertSame(failure, e);
+            // the line after the failed one is still waited for, and put back with the first
+            assertEquals(Map.of("ITEM-001", 2, "ITEM-003", 4), putBack(bulk));
+            verify(stockLedgerService, never()).recordAll(any());
+        }
+
+        @Test
+        void grantedOrderIsRecordedAndNothingPutBack() {
+            answer("ITEM-001", true);
+            answer("ITEM-002", true);
+            answer("ITEM-003", true);
+
+            stockReservationService.reserve(ORG_ID, "ORD-001", lines());
+
+            verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Item.class));
+            verify(stockLedgerService).recordAll(any());
+        }
+
+        // The coalescer is only asked once reserve has submitted every line, so the answer is looked up lazily
+        private void answer(String itemId, boolean granted) {
+            when(stockCoalescer.await(result(itemId))).thenReturn(granted);
+        }
+
+        private CompletableFuture<Boolean> result(String itemId) {
+            return argThat(result -> result != null && result == results.get(itemId));
+        }
+    }
+
+    // The single ordered bulk write, with the server's answer scripted. The coalescer is left disabled.
+    @Nested
+    class BulkWrite {
+        @Mock
+        private BulkOperations compensation;
+
+        @Test
+        void shortLinePutsBackTheLinesBeforeIt() {
+            existing("ITEM-001", "ITEM-002", "ITEM-003");
+            bulks();
+            BulkOperationException failure = failure(List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)));
+            when(bulk.execute()).thenThrow(failure);
+
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> stockReservationService.reserve(ORG_ID, "ORD-001", lines()));
+
+            assertEquals("Desired quantity unavailable for item ITEM-002!", e.getMessage());
+            assertEquals(Map.of("ITEM-001", 2), putBack(compensation));
+            verify(stockLedgerService, never()).recordAll(any());
+            verify(mongoTemplate, never()).remove(any(Query.class), eq(Item.class));
+        }
+
+        @Test
+        void missingItemIsTurnedAwayBeforeAnythingIsWritten() {
+            existing("ITEM-001", "ITEM-003");
+
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> stockReservationService.reserve(ORG_ID, "ORD-001", lines()));
+
+            assertEquals("Desired quantity unavailable for item ITEM-002!", e.getMessage());
+            verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Item.class));
+        }
+
+        @Test
+        void itemDeletedDuringTheWriteLeavesNoPlaceholderBehind() {
+            existing("ITEM-001", "ITEM-002", "ITEM-003");
+            bulks();
+            BulkWriteResult result = mock(BulkWriteResult.class);
+            when(result.getUpserts()).thenReturn(List.of(new BulkWriteUpsert(1, new BsonObjectId(new ObjectId()))));
+            when(bulk.execute()).thenReturn(result);
+
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> stockReservationService.reserve(ORG_ID, "ORD-001", lines()));
+
+            assertEquals("Desired quantity unavailable for item ITEM-002!", e.getMessage());
+            assertEquals(Map.of("ITEM-001", 2, "ITEM-003", 4), putBack(compensation));
+            verify(mongoTemplate).remove(any(Query.class), eq(Item.class));
+            verify(listCacheService).invalidate(ORG_ID, Item.class);
+        }
+
+        @Test
+        void writeConcernErrorPutsBackEveryLineAndRethrows() {
+            existing("ITEM-001", "ITEM-002", "ITEM-003");
+            bulks();
+            BulkOperationException failure = failure(List.of());
+            when(bulk.execute()).thenThrow(failure);
+
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> stockReservationService.reserve(ORG_ID, "ORD-001", lines()));
+
+            assertSame(failure, e);
+            assertEquals(Map.of("ITEM-001", 2, "ITEM-002", 3, "ITEM-003", 4), putBack(compensation));
+        }
+
+        @Test
+        void failedRestockTakesBackWhatWentThroughAndRethrows() {
+            existing("ITEM-001");
+            bulks();
+            // ITEM-001 goes up by 2, ITEM-002 and ITEM-003 are dropped; the second restock fails
+            BulkOperationException failure = failure(List.of(new BulkWriteError(121, "Document failed validation", new BsonDocument(), 2)));
+            when(bulk.execute()).thenThrow(failure);
+
+            RuntimeException e = assertThrows(RuntimeException.class, () -> stockReservationService.adjust(ORG_ID, "ORD-001",
+                    lines(), List.of(OrderItem.builder().itemId("ITEM-001").quantity(4).build())));
+
+            assertSame(failure, e);
+            assertEquals(Map.of("ITEM-001", 2, "ITEM-002", -3), putBack(compensation));
+        }
+
+        @Test
+        void reservedOrderIsRecordedAndNothingPutBack() {
+            existing("ITEM-001", "ITEM-002", "ITEM-003");
+            when(mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Item.class)).thenReturn(bulk);
+            BulkWriteResult result = mock(BulkWriteResult.class);
+            when(result.getUpserts()).thenReturn(List.of());
+            when(bulk.execute()).thenReturn(result);
+
+            stockReservationService.reserve(ORG_ID, "ORD-001", lines());
+
+            verify(bulk, times(3)).upsert(any(Query.class), any(Update.class));
+            verify(mongoTemplate, never()).bulkOps(BulkOperations.BulkMode.UNORDERED, Item.class);
+            verify(stockLedgerService).recordAll(any());
+        }
+
+        @Test
+        void releasePutsTheStockBack() {
+            when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Item.class)).thenReturn(compensation);
+
+            stockReservationService.release(ORG_ID, lines());
+
+            assertEquals(Map.of("ITEM-001", 2, "ITEM-002", 3, "ITEM-003", 4), putBack(compensation));
+            verify(stockLedgerService).recordAll(any());
+        }
+
+        private void bulks() {
+            when(mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Item.class)).thenReturn(bulk);
+            when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Item.class)).thenReturn(compensation);
+        }
+
+        private void existing(String... itemIds) {
+            List<Item> items = new ArrayList<>();
+            for (String itemId : itemIds) items.add(Item.builder().itemId(itemId).build());
+            when(mongoTemplate.find(any(Query.class), eq(Item.class))).thenReturn(items);
+        }
+
+        private BulkOperationException failure(List<BulkWriteError> errors) {
+            BulkWriteResult result = mock(BulkWriteResult.class);
+            when(result.getUpserts()).thenReturn(List.of());
+            BulkOperationException failure = mock(BulkOperationException.class);
+            when(failure.getErrors()).thenReturn(errors);
+            when(failure.getResult()).thenReturn(result);
+            return failure;
+        }
+    }
+
+    private List<OrderItem> lines() {
+        return List.of(
+                OrderItem.builder().itemId("ITEM-001").quantity(2).build(),
+                OrderItem.builder().itemId("ITEM-002").quantity(3).build(),
+                OrderItem.builder().itemId("ITEM-003").quantity(4).build());
+    }
+
+    // Quantity put back per item by the compensating bulk write
+    private Map<String, Integer> putBack(BulkOperations compensation) {
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(compensation, atLeastOnce()).updateOne(queries.capture(), updates.capture());
+        verify(compensation).execute();
+
+        Map<String, Integer> putBack = new HashMap<>();
+        for (int i = 0; i < queries.getAllValues().size(); i++) {
+            String itemId = queries.getAllValues().get(i).getQueryObject().getString("itemId");
+            Document inc = (Document) updates.getAllValues().get(i).getUpdateObject().get("$inc");
+            putBack.put(itemId, inc.getInteger("quantity"));
+        }
+        return putBack;
+    }
+}